@@ -0,0 +1,155 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Synthetic dataset persisted to a temporary directory, with DAOs and services wired
+ * the same way as in {@link ServiceFactory}.
+ * <p>
+ * Students are spread evenly over the groups, every subject gets the same number of grade criteria
+ * and grades are assigned to random (student, criterion) pairs. Every subject is assigned to every group.
+ * Generation is seeded, so the same sizes always produce the same shape of data. Call {@link #close()} to delete the files.
+ */
+class BenchmarkDataset implements AutoCloseable {
+    /** Directory holding the data files */
+    final Path directory;
+
+    final StudentDataStreamHandler studentHandler;
+    final StudentGroupDataStreamHandler studentGroupHandler;
+    final SubjectDataStreamHandler subjectHandler;
+    final GradeCriterionDataStreamHandler gradeCriterionHandler;
+    final GradeDataStreamHandler gradeHandler;
+    final StudentGroupSubjectAssignmentDataStreamHandler assignmentHandler;
+
+    final Dao<Student> studentDao;
+    final Dao<StudentGroup> studentGroupDao;
+    final Dao<Subject> subjectDao;
+    final Dao<GradeCriterion> gradeCriterionDao;
+    final Dao<Grade> gradeDao;
+    final Dao<StudentGroupSubjectAssignment> assignmentDao;
+
+    final StudentService studentService;
+    final GradeService gradeService;
+    final GradeQueryService gradeQueryService;
+    final GradeExportService gradeExportService;
+
+    final List<StudentGroup> groups = new ArrayList<>();
+    final List<Student> students = new ArrayList<>();
+    final List<Subject> subjects = new ArrayList<>();
+    final List<GradeCriterion> criteria = new ArrayList<>();
+    final List<Grade> grades = new ArrayList<>();
+    final List<StudentGroupSubjectAssignment> assignments = new ArrayList<>();
+
+    /**
+     * Generates and persists a dataset.
+     *
+     * @param groupCount         number of student groups
+     * @param studentCount       number of students, spread evenly over the groups
+     * @param subjectCount       number of subjects
+     * @param criteriaPerSubject number of grade criteria of every subject
+     * @param gradeCount         number of grades
+     * @param storageMode        layout the files are written in, {@link StorageMode#FIXED_SLOTS}
+     *                           applies only to grades and the other files use the append-only log
+     * @throws IOException if the files cannot be written
+     */
+    BenchmarkDataset(int groupCount, int studentCount, int subjectCount, int criteriaPerSubject, int gradeCount,
+                     StorageMode storageMode) throws IOException {
+        directory = Files.createTempDirectory("student-management-benchmark");
+        var random = new Random(42);
+
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(new StudentGroup(String.format("G%04d", i), "Specialization " + i, "Group " + i));
+        }
+        for (int i = 0; i < studentCount; i++) {
+            var student = new Student("First" + i, "Last" + i, String.format("A%06d", i));
+            student.setStudentGroupId(groups.get(i % groupCount).getId());
+            students.add(student);
+        }
+        for (int i = 0; i < subjectCount; i++) {
+            var subject = new Subject("Subject " + i);
+            subjects.add(subject);
+            for (int j = 0; j < criteriaPerSubject; j++) {
+                criteria.add(new GradeCriterion("Criterion " + j, (byte) 100, subject.getId()));
+            }
+        }
+        for (StudentGroup group : groups) {
+            for (Subject subject : subjects) {
+                assignments.add(new StudentGroupSubjectAssignment(group.getId(), subject.getId()));
+            }
+        }
+        for (int i = 0; i < gradeCount; i++) {
+            var student = students.get(random.nextInt(students.size()));
+            var criterion = criteria.get(random.nextInt(criteria.size()));
+            grades.add(new Grade(criterion.getSubjectId(), criterion.getId(), student.getId(),
+                    (byte) random.nextInt(101)));
+        }
+
+        studentHandler = new StudentDataStreamHandler(file("student.dat"));
+        studentGroupHandler = new StudentGroupDataStreamHandler(file("studentgroup.dat"));
+        subjectHandler = new SubjectDataStreamHandler(file("subject.dat"));
+        gradeCriterionHandler = new GradeCriterionDataStreamHandler(file("gradecriterion.dat"));
+        gradeHandler = new GradeDataStreamHandler(file("grade.dat"));
+        assignmentHandler = new StudentGroupSubjectAssignmentDataStreamHandler(file("studentgroupsubject.dat"));
+        for (DataStreamHandler<?> handler : List.of(studentHandler, studentGroupHandler, subjectHandler,
+                gradeCriterionHandler, gradeHandler, assignmentHandler)) {
+            // Like in ServiceFactory, only fixed-size records can be stored in slots
+            handler.setStorageMode(storageMode == StorageMode.FIXED_SLOTS && handler.recordSize() <= 0
+                    ? StorageMode.APPEND_LOG : storageMode);
+        }
+        studentHandler.writeAll(students);
+        studentGroupHandler.writeAll(groups);
+        subjectHandler.writeAll(subjects);
+        gradeCriterionHandler.writeAll(criteria);
+        gradeHandler.writeAll(grades);
+        assignmentHandler.writeAll(assignments);
+
+        studentDao = new Dao<>(studentHandler);
+        studentGroupDao = new Dao<>(studentGroupHandler);
+        subjectDao = new Dao<>(subjectHandler);
+        gradeCriterionDao = new Dao<>(gradeCriterionHandler);
+        gradeDao = new Dao<>(gradeHandler);
+        assignmentDao = new Dao<>(assignmentHandler);
+
+        studentService = new StudentService(studentDao, studentGroupDao, gradeDao);
+        gradeService = new GradeService(gradeDao, studentDao, gradeCriterionDao, subjectDao);
+        gradeQueryService = new GradeQueryService(gradeDao, studentDao, gradeCriterionDao);
+        gradeExportService = new GradeExportService(gradeQueryService, assignmentDao, subjectDao, studentGroupDao);
+    }
+
+    /**
+     * Loads all files into the DAO caches, so that measurements do not include the first read.
+     */
+    void warmUp() {
+        studentDao.getAll();
+        studentGroupDao.getAll();
+        subjectDao.getAll();
+        gradeCriterionDao.getAll();
+        gradeDao.getAll();
+        assignmentDao.getAll();
+    }
+
+    /**
+     * Deletes the data files.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private String file(String name) {
+        return directory.resolve(name).toString();
+    }
+}
@@ -0,0 +1,49 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reads served by {@link Dao} from its in-memory cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+    @Param("10000")
+    int students;
+
+    private BenchmarkDataset dataset;
+    private UUID[] ids;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new BenchmarkDataset(10, students, 1, 1, 0, StorageMode.APPEND_LOG);
+        dataset.warmUp();
+        ids = dataset.students.stream().map(Student::getId).toArray(UUID[]::new);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Benchmark
+    public Optional<Student> get() {
+        return dataset.studentDao.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<Student> getAll() {
+        return dataset.studentDao.getAll();
+    }
+}
@@ -0,0 +1,85 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single-record mutations of {@link DataStreamHandler} in both storage modes.
+ * <p>
+ * The grade file is recreated before every iteration, so appended records and log garbage
+ * do not accumulate across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataStreamHandlerBenchmark {
+    @Param("10000")
+    int grades;
+
+    /** Name of a {@link StorageMode}, the enum is not visible to the generated benchmark code */
+    @Param({"SNAPSHOT", "APPEND_LOG", "FIXED_SLOTS"})
+    String storageMode;
+
+    private BenchmarkDataset dataset;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new BenchmarkDataset(1, 100, 1, 10, grades, StorageMode.valueOf(storageMode));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetFile() throws IOException {
+        dataset.gradeHandler.writeAll(dataset.grades);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        dataset.gradeHandler.write(newGrade());
+    }
+
+    @Benchmark
+    public void update() throws IOException {
+        var grade = dataset.grades.get(random.nextInt(dataset.grades.size()));
+        grade.setGrade((byte) random.nextInt(101));
+        dataset.gradeHandler.update(grade);
+    }
+
+    @Benchmark
+    public void deleteById(Victim victim) throws IOException {
+        dataset.gradeHandler.deleteById(victim.grade.getId());
+    }
+
+    private Grade newGrade() {
+        var criterion = dataset.criteria.get(random.nextInt(dataset.criteria.size()));
+        var student = dataset.students.get(random.nextInt(dataset.students.size()));
+        return new Grade(criterion.getSubjectId(), criterion.getId(), student.getId(), (byte) random.nextInt(101));
+    }
+
+    /**
+     * Grade written before every invocation of {@link #deleteById(Victim)}, so that there is always
+     * a record to delete. Each handler operation touches the file, so the per-invocation overhead
+     * is negligible.
+     */
+    @State(Scope.Thread)
+    public static class Victim {
+        private Grade grade;
+
+        @Setup(Level.Invocation)
+        public void write(DataStreamHandlerBenchmark benchmark) throws IOException {
+            grade = benchmark.newGrade();
+            benchmark.dataset.gradeHandler.write(grade);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures updates of a grade appended to an {@link StorageMode#APPEND_LOG} file under each
+ * {@link Durability} policy. With {@code GROUP_COMMIT} a group is forced every {@code groupSize} updates.
+ * <p>
+ * After each trial the commit latency histogram collected by the handler is printed, as the average
+ * reported by JMH hides that under {@code GROUP_COMMIT} most updates are fast and every group-closing
+ * update pays for the sync.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DurabilityBenchmark {
+    @Param({"SYNC_EACH", "GROUP_COMMIT", "OS_BUFFERED"})
+    String durability;
+
+    @Param("64")
+    int groupSize;
+
+    private Path directory;
+    private GradeDataStreamHandler handler;
+    private Grade grade;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("durability-benchmark");
+        handler = new GradeDataStreamHandler(directory.resolve("grade.dat").toString());
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        handler.setDurability(Durability.valueOf(durability));
+        handler.setGroupCommit(groupSize, DataStreamHandler.DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS);
+        grade = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 50);
+        handler.write(grade);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        LatencyHistogram latencies = handler.getCommitLatencies(Durability.valueOf(durability));
+        System.out.printf("%n%s commits: %d, p50 <= %d ns, p99 <= %d ns, p99.9 <= %d ns, max %d ns%n",
+                durability, latencies.getCount(),
+                latencies.getPercentileNanos(50), latencies.getPercentileNanos(99),
+                latencies.getPercentileNanos(99.9), latencies.getMaxNanos());
+        try (var files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void update() throws IOException {
+        grade.setGrade((byte) (grade.getGrade() % 100 + 1));
+        handler.update(grade);
+    }
+}
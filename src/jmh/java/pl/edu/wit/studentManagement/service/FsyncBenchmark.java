@@ -0,0 +1,119 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the cost of forcing writes to disk, to help choosing a durability level.
+ * <p>
+ * The raw benchmarks append a {@code recordBytes} long record to a file without syncing it, followed by
+ * {@link FileChannel#force(boolean) force(false)} (fdatasync) and followed by {@code force(true)} (fsync).
+ * {@link #walCommit()} is the cost of a single {@link WriteAheadLog} commit, {@link #atomicReplace()} the
+ * cost of writing, syncing and atomically renaming a temporary file. {@link #slotUpdate()} is a whole
+ * in-place update of a grade in {@link StorageMode#FIXED_SLOTS} mode, including its write-ahead log commit.
+ * Appended updates under each {@link Durability} policy are measured by {@link DurabilityBenchmark}.
+ * Results depend heavily on the disk; run them on the target machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FsyncBenchmark {
+    /** Size after which appends wrap around to the start of the file, keeping it small */
+    private static final long APPEND_FILE_SIZE = 16 * 1024 * 1024;
+
+    @Param("128")
+    int recordBytes;
+
+    private Path directory;
+    private FileChannel channel;
+    private ByteBuffer record;
+    private long position;
+    private WriteAheadLog writeAheadLog;
+    private GradeDataStreamHandler slotHandler;
+    private Grade slotGrade;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fsync-benchmark");
+        channel = FileChannel.open(directory.resolve("append.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        record = ByteBuffer.allocate(recordBytes);
+        writeAheadLog = new WriteAheadLog(directory.resolve("commit.wal"));
+
+        slotHandler = new GradeDataStreamHandler(directory.resolve("slots.dat").toString());
+        slotHandler.setStorageMode(StorageMode.FIXED_SLOTS);
+        slotGrade = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 50);
+        slotHandler.write(slotGrade);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        try (var files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private void append() throws IOException {
+        record.clear();
+        channel.write(record, position);
+        position = (position + recordBytes) % APPEND_FILE_SIZE;
+    }
+
+    @Benchmark
+    public void appendWithoutSync() throws IOException {
+        append();
+    }
+
+    @Benchmark
+    public void appendWithDataSync() throws IOException {
+        append();
+        channel.force(false);
+    }
+
+    @Benchmark
+    public void appendWithFullSync() throws IOException {
+        append();
+        channel.force(true);
+    }
+
+    @Benchmark
+    public void walCommit() throws IOException {
+        if (writeAheadLog.needsCheckpoint()) {
+            writeAheadLog.checkpoint(null);
+        }
+        writeAheadLog.commit(List.of(new WriteAheadLog.Write(0, record.array())));
+    }
+
+    @Benchmark
+    public void atomicReplace() throws IOException {
+        Path temp = directory.resolve("replace.dat.tmp");
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            file.write(ByteBuffer.wrap(record.array()));
+            file.force(false);
+        }
+        Files.move(temp, directory.resolve("replace.dat"),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Benchmark
+    public void slotUpdate() throws IOException {
+        slotGrade.setGrade((byte) (slotGrade.getGrade() % 100 + 1));
+        slotHandler.update(slotGrade);
+    }
+}
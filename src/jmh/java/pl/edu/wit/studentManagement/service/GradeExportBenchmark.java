@@ -0,0 +1,58 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+import pl.edu.wit.studentManagement.service.dto.dataExport.ExportResultDto;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full-faculty export of grade matrices, by default 200 groups with 30 subjects each,
+ * i.e. 6000 files, written by a single thread and by one thread per processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GradeExportBenchmark {
+    @Param("200")
+    int groups;
+
+    @Param("30")
+    int subjects;
+
+    @Param("6000")
+    int students;
+
+    @Param("5")
+    int criteriaPerSubject;
+
+    @Param("500000")
+    int grades;
+
+    /** Number of threads exporting, 0 for one per available processor */
+    @Param({"1", "0"})
+    int parallelism;
+
+    private BenchmarkDataset dataset;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new BenchmarkDataset(groups, students, subjects, criteriaPerSubject, grades, StorageMode.FIXED_SLOTS);
+        dataset.warmUp();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Benchmark
+    public ExportResultDto exportAll() throws ValidationException {
+        return dataset.gradeExportService.exportGradeMatrices(dataset.directory.resolve("export"), ExportFormat.CSV,
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
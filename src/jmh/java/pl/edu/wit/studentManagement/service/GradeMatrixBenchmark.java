@@ -0,0 +1,114 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixRowDto;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares building a grade matrix from scratch through the indexes used by
+ * {@link GradeQueryService} against the original nested-loop algorithm, which scanned
+ * all grades of the subject for every student of the group.
+ * <p>
+ * The dataset is one group of {@code students} students and one subject with {@code criteria}
+ * criteria and {@code grades} grades spread over the students, see {@link BenchmarkDataset}.
+ * Entities are loaded into the DAO caches before measuring, so only the matrix construction is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradeMatrixBenchmark {
+    @Param("500")
+    int students;
+
+    @Param("40")
+    int criteria;
+
+    @Param("20000")
+    int grades;
+
+    private BenchmarkDataset dataset;
+    private Dao<Grade> gradeDao;
+    private Dao<Student> studentDao;
+    private Dao<GradeCriterion> gradeCriterionDao;
+    private GradeQueryService gradeQueryService;
+    private UUID subjectId;
+    private UUID groupId;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new BenchmarkDataset(1, students, 1, criteria, grades, StorageMode.APPEND_LOG);
+        dataset.warmUp();
+        gradeDao = dataset.gradeDao;
+        studentDao = dataset.studentDao;
+        gradeCriterionDao = dataset.gradeCriterionDao;
+        gradeQueryService = dataset.gradeQueryService;
+        subjectId = dataset.subjects.get(0).getId();
+        groupId = dataset.groups.get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Benchmark
+    public GradeMatrixDto indexed() {
+        return gradeQueryService.buildGradeMatrix(subjectId, groupId).toDto();
+    }
+
+    @Benchmark
+    public GradeMatrixDto nestedLoop() {
+        var students = studentDao.getAll()
+                .stream()
+                .filter(s -> Objects.equals(s.getStudentGroupId(), groupId))
+                .collect(Collectors.toList());
+
+        var gradeCriteria = gradeCriterionDao.getAll()
+                .stream()
+                .filter(s -> Objects.equals(s.getSubjectId(), subjectId))
+                .collect(Collectors.toList());
+
+        var grades = gradeDao.getAll()
+                .stream()
+                .filter(s -> Objects.equals(s.getSubjectId(), subjectId))
+                .collect(Collectors.toList());
+
+        Map<UUID, Integer> criterionIndex = new HashMap<>();
+        List<String> criterionNames = new ArrayList<>();
+        for (int i = 0; i < gradeCriteria.size(); i++) {
+            criterionIndex.put(gradeCriteria.get(i).getId(), i);
+            criterionNames.add(gradeCriteria.get(i).getName());
+        }
+
+        List<GradeMatrixRowDto> rows = new ArrayList<>();
+        for (Student student : students) {
+            var gradesArray = new GradeDto[gradeCriteria.size()];
+
+            for (Grade grade : grades) {
+                if (grade.getStudentId().equals(student.getId())) {
+                    var index = criterionIndex.get(grade.getGradeCriterionId());
+                    if (index != null) {
+                        gradesArray[index] = GradeMapper.toDto(grade);
+                    }
+                }
+            }
+
+            rows.add(new GradeMatrixRowDto(
+                    student.getId(),
+                    student.getFirstName() + " " + student.getLastName(),
+                    Arrays.asList(gradesArray)
+            ));
+        }
+
+        return new GradeMatrixDto(criterionNames, rows);
+    }
+}
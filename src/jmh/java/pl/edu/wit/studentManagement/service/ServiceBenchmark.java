@@ -0,0 +1,84 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+import pl.edu.wit.studentManagement.service.dto.grade.AssignGradeDto;
+import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
+import pl.edu.wit.studentManagement.service.dto.student.StudentDto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the service operations behind the most frequent user interactions:
+ * searching students, assigning grades and displaying a grade matrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    @Param("20")
+    int groups;
+
+    @Param("10000")
+    int students;
+
+    @Param("10")
+    int subjects;
+
+    @Param("10")
+    int criteriaPerSubject;
+
+    @Param("100000")
+    int grades;
+
+    private BenchmarkDataset dataset;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new BenchmarkDataset(groups, students, subjects, criteriaPerSubject, grades, StorageMode.APPEND_LOG);
+        dataset.warmUp();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Benchmark
+    public List<StudentDto> search(SearchQuery searchQuery) {
+        return dataset.studentService.search(searchQuery.query);
+    }
+
+    @Benchmark
+    public GradeDto assignGrade() throws ValidationException {
+        var criterion = dataset.criteria.get(random.nextInt(dataset.criteria.size()));
+        var student = dataset.students.get(random.nextInt(dataset.students.size()));
+        return dataset.gradeService.assignGrade(new AssignGradeDto(
+                criterion.getSubjectId(), criterion.getId(), student.getId(), (byte) random.nextInt(101)));
+    }
+
+    @Benchmark
+    public GradeMatrixDto getGradeMatrixForSubjectAndGroup() {
+        var subject = dataset.subjects.get(random.nextInt(dataset.subjects.size()));
+        var group = dataset.groups.get(random.nextInt(dataset.groups.size()));
+        return dataset.gradeQueryService.getGradeMatrixForSubjectAndGroup(subject.getId(), group.getId());
+    }
+
+    /**
+     * Search queries, kept in a separate state so that only {@link #search(SearchQuery)} runs once per query:
+     * a selective one matching few students and a broad one matching most of them.
+     */
+    @State(Scope.Benchmark)
+    public static class SearchQuery {
+        @Param({"Last1234", "a00"})
+        String query;
+    }
+}
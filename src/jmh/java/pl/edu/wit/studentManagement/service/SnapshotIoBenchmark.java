@@ -0,0 +1,87 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing a snapshot {@code grade.dat} through the buffered streams of
+ * {@link DataStreamHandler} with the original unbuffered implementation, which looped on
+ * {@link InputStream#available()} and issued system calls for every field of every record.
+ * {@link #memoryMappedReadAll()} reads the same file through the memory-mapped read path;
+ * as the file does not change between invocations, it is mapped only once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotIoBenchmark {
+    @Param("100000")
+    int grades;
+
+    @Param({"8192", "65536"})
+    int bufferSize;
+
+    private BenchmarkDataset dataset;
+    private GradeDataStreamHandler handler;
+    private GradeDataStreamHandler mappedHandler;
+    private String filePath;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new BenchmarkDataset(1, 500, 1, 40, grades, StorageMode.SNAPSHOT);
+        handler = dataset.gradeHandler;
+        handler.setBufferSize(bufferSize);
+        filePath = dataset.directory.resolve("grade.dat").toString();
+        mappedHandler = new GradeDataStreamHandler(filePath);
+        mappedHandler.setMemoryMapped(true);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Benchmark
+    public List<Grade> readAll() throws IOException {
+        return handler.readAll();
+    }
+
+    @Benchmark
+    public List<Grade> memoryMappedReadAll() throws IOException {
+        return mappedHandler.readAll();
+    }
+
+    @Benchmark
+    public void writeAll() throws IOException {
+        handler.writeAll(dataset.grades);
+    }
+
+    @Benchmark
+    public List<Grade> unbufferedReadAll() throws IOException {
+        List<Grade> objects = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            while (in.available() > 0) {
+                Grade object = handler.readObject(in);
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+        }
+        return objects;
+    }
+
+    @Benchmark
+    public void unbufferedWriteAll() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(filePath))) {
+            for (Grade object : dataset.grades) {
+                handler.writeObject(out, object);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.wit.studentManagement.service.dto.student.StudentDto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares searching students through the trigram index used by {@link StudentService#search(String)}
+ * against the original implementation, which lowercased the full name, first name, last name and album
+ * number of every student on every call.
+ * <p>
+ * The dataset is {@code students} students named {@code First<i> Last<i>} with album numbers
+ * {@code A<i>}, see {@link BenchmarkDataset}. Queries match a single student ({@code Last12345}),
+ * about a thousand ({@code st12}) and none ({@code a00000x}, whose last trigram occurs nowhere);
+ * {@code a0} is shorter than a trigram and is answered by scanning the precomputed strings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentSearchBenchmark {
+    @Param("50000")
+    int students;
+
+    @Param({"Last12345", "st12", "a00000x", "a0"})
+    String query;
+
+    private BenchmarkDataset dataset;
+    private Dao<Student> studentDao;
+    private StudentService studentService;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new BenchmarkDataset(1, students, 1, 1, 0, StorageMode.APPEND_LOG);
+        dataset.warmUp();
+        studentDao = dataset.studentDao;
+        studentService = dataset.studentService;
+        studentService.search("");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Benchmark
+    public List<StudentDto> trigramIndex() {
+        return studentService.search(query);
+    }
+
+    @Benchmark
+    public List<StudentDto> fullScan() {
+        var students = studentDao.getAll();
+        var lowerQuery = query.toLowerCase();
+
+        return students.stream()
+                .filter(s -> {
+                    var fullName = s.getFirstName() + " " + s.getLastName();
+                    if (fullName.toLowerCase().contains(lowerQuery)) return true;
+                    if (s.getFirstName().toLowerCase().contains(lowerQuery)) return true;
+                    if (s.getLastName().toLowerCase().contains(lowerQuery)) return true;
+                    if (s.getAlbum().toLowerCase().contains(lowerQuery)) return true;
+                    return false;
+                }).map(StudentMapper::toDto).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,184 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Prefix tree of students keyed by album number, answering exact lookups and prefix completions in time
+ * proportional to the length of the album number rather than the number of students.
+ * <p>
+ * Keys are folded to upper case, so that both exact lookups and completions ignore case. Album numbers are
+ * unique regardless of case (see {@link StudentService#studentsByAlbum(Dao)}), so every node holds at most
+ * one student. Album numbers are short and drawn from few characters, so every node keeps its
+ * children in a small array sorted by character instead of a map, which also lets completions be listed
+ * in album number order. Nodes left empty by removals are kept until the tree is cleared.
+ * Not thread-safe, see {@link StudentSearchIndex}.
+ */
+class AlbumTrie {
+    /**
+     * The root node, standing for the empty prefix.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Adds a student under its album number.
+     *
+     * @param student the student to add
+     */
+    void put(Student student) {
+        Node node = root;
+        String key = fold(student.getAlbum());
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+        }
+        node.student = student;
+    }
+
+    /**
+     * Removes a student stored under the given album number.
+     *
+     * @param album     the album number the student was added under
+     * @param studentId the id of the student
+     */
+    void remove(String album, UUID studentId) {
+        Node node = find(fold(album));
+        if (node != null && node.student != null && node.student.getId().equals(studentId)) {
+            node.student = null;
+        }
+    }
+
+    /**
+     * Removes all students.
+     */
+    void clear() {
+        root.keys = new char[0];
+        root.children = new Node[0];
+        root.student = null;
+    }
+
+    /**
+     * Finds the student with exactly the given album number.
+     *
+     * @param album the album number, compared ignoring case
+     * @return the student, or empty if there is none
+     */
+    Optional<Student> get(String album) {
+        Node node = find(fold(album));
+        return node == null ? Optional.empty() : Optional.ofNullable(node.student);
+    }
+
+    /**
+     * Lists the students whose album number starts with the given prefix, ignoring case.
+     *
+     * @param prefix the prefix
+     * @param limit  maximum number of students to return
+     * @return matching students in album number order, at most {@code limit}
+     */
+    List<Student> withPrefix(String prefix, int limit) {
+        List<Student> result = new ArrayList<>();
+        Node node = find(fold(prefix));
+        if (node != null && limit > 0) {
+            collect(node, result, limit);
+        }
+        return result;
+    }
+
+    /**
+     * Follows the given folded key from the root.
+     *
+     * @param key the folded key
+     * @return the node reached, or null if no album number starts with the key
+     */
+    private Node find(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Adds the students of a subtree to the result in key order, until the limit is reached.
+     *
+     * @param node   root of the subtree
+     * @param result list receiving the students
+     * @param limit  maximum size of the result
+     * @return true if the limit has been reached
+     */
+    private static boolean collect(Node node, List<Student> result, int limit) {
+        if (node.student != null) {
+            result.add(node.student);
+            if (result.size() == limit) {
+                return true;
+            }
+        }
+        for (Node child : node.children) {
+            if (collect(child, result, limit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Folds an album number to the form used as a key.
+     *
+     * @param album the album number
+     * @return the album number in upper case
+     */
+    private static String fold(String album) {
+        return album.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Node of the tree, standing for the prefix spelled by the path from the root.
+     */
+    private static final class Node {
+        /** Characters leading to the children, in ascending order */
+        private char[] keys = new char[0];
+        /** Children, parallel to {@link #keys} */
+        private Node[] children = new Node[0];
+        /** The student whose folded album number ends at this node, {@code null} if none */
+        private Student student;
+
+        /**
+         * Returns the child reached by a character.
+         *
+         * @param c the character
+         * @return the child, or null if there is none
+         */
+        private Node child(char c) {
+            int position = Arrays.binarySearch(keys, c);
+            return position >= 0 ? children[position] : null;
+        }
+
+        /**
+         * Returns the child reached by a character, inserting it at its sorted position if missing.
+         *
+         * @param c the character
+         * @return the child
+         */
+        private Node childOrCreate(char c) {
+            int position = Arrays.binarySearch(keys, c);
+            if (position >= 0) {
+                return children[position];
+            }
+            position = -position - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            newKeys[position] = c;
+            newChildren[position] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return children[position];
+        }
+    }
+}
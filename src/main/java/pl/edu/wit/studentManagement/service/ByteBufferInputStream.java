@@ -0,0 +1,73 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream reading the remaining bytes of a {@link ByteBuffer}.
+ * <p>
+ * Used by {@link DataStreamHandler} to decode records directly from a memory-mapped file
+ * through the same {@link java.io.DataInputStream} based code as regular reads.
+ * The stream supports {@link #mark(int)} and {@link #reset()}.
+ */
+class ByteBufferInputStream extends InputStream {
+    /**
+     * Buffer the bytes are read from, its position is the position of the stream.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructs a stream reading the bytes between the buffer's position and limit.
+     * The buffer's position is advanced as the stream is read.
+     *
+     * @param buffer the buffer to read
+     */
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        buffer.mark();
+    }
+
+    @Override
+    public synchronized void reset() {
+        buffer.reset();
+    }
+}
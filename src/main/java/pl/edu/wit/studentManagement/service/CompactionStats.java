@@ -0,0 +1,61 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics collected while compacting the log of a single {@link DataStreamHandler}.
+ * <p>
+ * Counters are updated from the background compaction thread and can be read from any thread.
+ */
+class CompactionStats {
+    /** Number of successful compactions */
+    private final AtomicLong compactions = new AtomicLong();
+    /** Number of compactions that failed with an I/O error */
+    private final AtomicLong failures = new AtomicLong();
+    /** Total number of bytes reclaimed by all compactions */
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    /** Total time spent compacting, in nanoseconds */
+    private final AtomicLong totalDurationNanos = new AtomicLong();
+    /** Duration of the most recent compaction, in nanoseconds */
+    private final AtomicLong lastDurationNanos = new AtomicLong();
+
+    /**
+     * Records a successful compaction.
+     *
+     * @param reclaimed      number of bytes by which the file shrank
+     * @param durationNanos  time the compaction took, in nanoseconds
+     */
+    void recordCompaction(long reclaimed, long durationNanos) {
+        compactions.incrementAndGet();
+        bytesReclaimed.addAndGet(reclaimed);
+        totalDurationNanos.addAndGet(durationNanos);
+        lastDurationNanos.set(durationNanos);
+    }
+
+    /**
+     * Records a compaction that failed.
+     */
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    long getCompactions() {
+        return compactions.get();
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+
+    long getTotalDurationNanos() {
+        return totalDurationNanos.get();
+    }
+
+    long getLastDurationNanos() {
+        return lastDurationNanos.get();
+    }
+}
@@ -0,0 +1,122 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsing and formatting of single lines of delimiter-separated values, as described by RFC 4180.
+ * <p>
+ * Fields containing the separator, a quote or a line break are enclosed in double quotes and quotes inside
+ * them are doubled. Lines are handled one at a time, so that files can be streamed; quoted fields spanning
+ * several lines are therefore not supported and are reported as malformed.
+ */
+final class Csv {
+    /** Separator of comma-separated files */
+    static final char COMMA = ',';
+    /** Separator of tab-separated files */
+    static final char TAB = '\t';
+
+    private static final char QUOTE = '"';
+
+    private Csv() {
+    }
+
+    /**
+     * Splits a line into its fields.
+     *
+     * @param line      the line, without its line terminator
+     * @param separator the field separator
+     * @return the fields of the line, unquoted
+     * @throws IllegalArgumentException if a quoted field is not closed or is followed by anything but a separator
+     */
+    static List<String> parse(String line, char separator) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            field.setLength(0);
+            if (i < length && line.charAt(i) == QUOTE) {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != QUOTE) {
+                        field.append(c);
+                    } else if (i < length && line.charAt(i) == QUOTE) {
+                        field.append(QUOTE);
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < length && line.charAt(i) != separator) {
+                    throw new IllegalArgumentException("Unexpected character after quoted field");
+                }
+            } else {
+                int end = line.indexOf(separator, i);
+                if (end < 0) {
+                    end = length;
+                }
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i >= length) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Joins fields into a line, quoting the fields that need it.
+     *
+     * @param fields    the fields, {@code null} is written as an empty field
+     * @param separator the field separator
+     * @return the line, without a line terminator
+     */
+    static String format(List<String> fields, char separator) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                line.append(separator);
+            }
+            appendField(line, fields.get(i), separator);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Appends a single field, quoting it if it contains the separator, a quote or a line break.
+     *
+     * @param line      the line being built
+     * @param field     the field, {@code null} is written as an empty field
+     * @param separator the field separator
+     */
+    static void appendField(StringBuilder line, String field, char separator) {
+        if (field == null) {
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < field.length() && !quoted; i++) {
+            char c = field.charAt(i);
+            quoted = c == separator || c == QUOTE || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            line.append(field);
+            return;
+        }
+        line.append(QUOTE);
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == QUOTE) {
+                line.append(QUOTE);
+            }
+            line.append(c);
+        }
+        line.append(QUOTE);
+    }
+}
@@ -2,13 +2,56 @@ package pl.edu.wit.studentManagement.service;
 
 import pl.edu.wit.studentManagement.exceptions.ValidationException;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Generic Data Access Object (DAO) class that provides CRUD operations for entities.
  * This class handles basic database operations using a DataStreamHandler for persistence.
+ * <p>
+ * Entities are cached in memory: the file is read once into a map keyed by id, reads are served
+ * from the map and mutations are written through to the file and the map. Before every operation
+ * the modification time and length of the file are compared with the values recorded when the cache
+ * was last synchronized, so changes made by other application instances (e.g. on a shared drive)
+ * cause the cache to be reloaded. {@link #invalidate()} forces a reload explicitly.
+ * <p>
+ * Secondary indexes can be declared with {@link #createIndex(String, Function)} and queried with
+ * {@link #findByIndex(DaoIndex, Object)}. They are maintained together with the cache, so lookups by
+ * an indexed key do not scan the entities. Indexes declared with {@link #createUniqueIndex(String, Function, String)}
+ * also reject writes that would give two entities the same key.
+ * <p>
+ * Interested parties can register a {@link DaoListener} to be notified about every persisted change.
+ * Events are queued while the write lock is held and delivered after it is released, one at a time,
+ * so listeners observe the changes in the order they were committed even when several threads write.
+ * <p>
+ * Many entities can be saved, updated or deleted at once with {@link #saveAll(Collection)},
+ * {@link #updateAll(Collection)} and {@link #deleteAll(Collection)}, which write them to the file in a
+ * single batch. Changes to several DAOs can be grouped into a {@link Transaction}, which writes the changes
+ * of every DAO in a single batch and either applies all of them or none.
+ * <p>
+ * Cached entities are shared between callers. When a mutation fails, the cache is dropped so that
+ * changes applied to a cached instance before the failed call do not survive it.
+ * <p>
+ * The DAO is guarded by a read-write lock. Reads served from an up-to-date cache only take the read lock
+ * and run in parallel; mutations, and reads that have to reload the cache, take the write lock.
  *
  * @param <T> the type of entity this DAO manages, must extend Entity class
  *
@@ -21,6 +64,69 @@ class Dao<T extends Entity> {
      */
     DataStreamHandler<T> dataStreamHandler;
 
+    /**
+     * Cached entities keyed by id, in file order. {@code null} when the cache has to be (re)loaded.
+     */
+    private Map<UUID, T> cache;
+
+    /**
+     * Modification time of the file when the cache was last synchronized with it.
+     */
+    private long cachedLastModified;
+
+    /**
+     * Length of the file when the cache was last synchronized with it.
+     */
+    private long cachedFileLength;
+
+    /**
+     * Change counter of the file when the cache was last synchronized with it.
+     */
+    private long cachedChangeCount;
+
+    /**
+     * Secondary indexes maintained over the cached entities, by name.
+     */
+    private final Map<String, DaoIndex<T, ?>> indexes = new LinkedHashMap<>();
+
+    /**
+     * Indexes whose keys must be unique, with the message key of the error reported when a write
+     * would give two entities the same key.
+     */
+    private final Map<DaoIndex<T, ?>, String> uniqueIndexes = new LinkedHashMap<>();
+
+    /**
+     * Listeners notified about changes of the entities.
+     */
+    private final List<DaoListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Events of persisted changes not yet delivered to the listeners, in commit order.
+     * Appended while the write lock is held.
+     */
+    private final Queue<Consumer<DaoListener<T>>> events = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Held while events are delivered, so that listeners receive them one at a time and in commit order.
+     */
+    private final Lock deliveryLock = new ReentrantLock();
+
+    /**
+     * Source of {@link #lockOrder}, incremented by every constructed DAO.
+     */
+    private static final AtomicLong LOCK_ORDER_SEQUENCE = new AtomicLong();
+
+    /**
+     * Position of this DAO in the order in which {@link Transaction} takes the write locks,
+     * unique among all DAOs and fixed for the lifetime of the DAO.
+     */
+    private final long lockOrder = LOCK_ORDER_SEQUENCE.incrementAndGet();
+
+    /**
+     * Lock letting reads of the cache run in parallel while mutations run exclusively.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
     /**
      * Constructs a new DAO with the specified data stream handler.
      *
@@ -32,15 +138,29 @@ class Dao<T extends Entity> {
 
     /**
      * Retrieves an entity by its unique identifier.
+     * <p>
+     * If the cache is not up to date, the entity is read on its own through the handler's
+     * primary-key index instead of reloading all entities. Only if it is not found that way
+     * are all entities loaded, which also brings the cache up to date.
      *
      * @param id UUID of the entity
      * @return Optional containing the entity if found, or empty if not found
      */
     Optional<T> get(UUID id) {
         try {
-            return dataStreamHandler.readAll().stream()
-                    .filter(e -> e.getId().equals(id))
-                    .findFirst();
+            lock.readLock().lock();
+            try {
+                if (isCacheFresh()) {
+                    return Optional.ofNullable(cache.get(id));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Optional<T> entity = dataStreamHandler.readById(id);
+            if (entity != null && entity.isPresent()) {
+                return entity;
+            }
+            return read(entities -> Optional.ofNullable(entities.get(id)));
         } catch (Exception e) {
             return Optional.empty();
         }
@@ -53,12 +173,150 @@ class Dao<T extends Entity> {
      */
     List<T> getAll() {
         try {
-            return dataStreamHandler.readAll();
+            return read(entities -> new ArrayList<>(entities.values()));
         } catch (Exception e) {
             return List.of();
         }
     }
 
+    /**
+     * Declares a secondary index over the entities of this DAO, or returns the index already declared
+     * under the same name, so that services looking entities up by the same key share one index.
+     * <p>
+     * The returned handle is used to query the index and stays valid for the lifetime of the DAO.
+     * Callers sharing a name must derive the same key; the key extractor of a later call is ignored.
+     *
+     * @param name         name of the index, typically the indexed property, e.g. {@code "studentId"}
+     * @param keyExtractor function deriving the index key from an entity
+     * @param <K>          the type of the index key
+     * @return the created or existing index
+     */
+    @SuppressWarnings("unchecked")
+    <K> DaoIndex<T, K> createIndex(String name, Function<T, K> keyExtractor) {
+        lock.writeLock().lock();
+        try {
+            DaoIndex<T, K> index = (DaoIndex<T, K>) indexes.get(name);
+            if (index != null) {
+                return index;
+            }
+            index = new DaoIndex<>(keyExtractor);
+            if (cache != null) {
+                cache.values().forEach(index::put);
+            }
+            indexes.put(name, index);
+            return index;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Declares a secondary index whose keys must be unique, or returns the index already declared under
+     * the same name, see {@link #createIndex(String, Function)}.
+     * <p>
+     * Saves, updates and batches giving an entity a key already held by another entity are rejected.
+     * The check is made under the write lock of the DAO, together with the write, so that two concurrent
+     * writes cannot both take the same key. Entities with a {@code null} key are not checked.
+     *
+     * @param name         name of the index
+     * @param keyExtractor function deriving the index key from an entity
+     * @param messageKey   message key of the {@link ValidationException} thrown when a key is taken
+     * @param <K>          the type of the index key
+     * @return the created or existing index
+     */
+    <K> DaoIndex<T, K> createUniqueIndex(String name, Function<T, K> keyExtractor, String messageKey) {
+        lock.writeLock().lock();
+        try {
+            DaoIndex<T, K> index = createIndex(name, keyExtractor);
+            uniqueIndexes.put(index, messageKey);
+            return index;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves all entities indexed under the given key.
+     *
+     * @param index index created by {@link #createIndex(String, Function)}
+     * @param key   the key to look up
+     * @param <K>   the type of the index key
+     * @return list of matching entities, in the order they were indexed
+     */
+    <K> List<T> findByIndex(DaoIndex<T, K> index, K key) {
+        try {
+            return read(entities -> {
+                List<T> result = new ArrayList<>();
+                for (UUID id : index.get(key)) {
+                    result.add(entities.get(id));
+                }
+                return result;
+            });
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Retrieves all entities indexed under any of the given keys, locking the DAO only once.
+     *
+     * @param index index created by {@link #createIndex(String, Function)}
+     * @param keys  the keys to look up
+     * @param <K>   the type of the index key
+     * @return list of matching entities, grouped by key in the order of the keys
+     */
+    <K> List<T> findByIndexKeys(DaoIndex<T, K> index, Collection<K> keys) {
+        try {
+            return read(entities -> {
+                List<T> result = new ArrayList<>();
+                for (K key : keys) {
+                    for (UUID id : index.get(key)) {
+                        result.add(entities.get(id));
+                    }
+                }
+                return result;
+            });
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Retrieves any entity indexed under the given key, intended for keys that identify a single entity.
+     *
+     * @param index index created by {@link #createIndex(String, Function)}
+     * @param key   the key to look up
+     * @param <K>   the type of the index key
+     * @return Optional containing the first matching entity, or empty if there is none
+     */
+    <K> Optional<T> findFirstByIndex(DaoIndex<T, K> index, K key) {
+        try {
+            return read(entities -> {
+                var ids = index.get(key);
+                return ids.isEmpty() ? Optional.empty() : Optional.ofNullable(entities.get(ids.iterator().next()));
+            });
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Counts the entities indexed under the given key without materializing them.
+     * Typically used with an index on a foreign key to count the children of a parent entity.
+     *
+     * @param index index created by {@link #createIndex(String, Function)}
+     * @param key   the key to look up
+     * @param <K>   the type of the index key
+     * @return number of matching entities
+     */
+    <K> int countByIndex(DaoIndex<T, K> index, K key) {
+        try {
+            return read(entities -> index.count(key));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
     /**
      * Saves a new entity.
      *
@@ -67,11 +325,24 @@ class Dao<T extends Entity> {
      */
     void save(T t) throws ValidationException {
         t.validate();
+        lock.writeLock().lock();
         try {
+            var entities = entities();
+            checkUnique(List.of(t), List.of());
             dataStreamHandler.write(t);
+            entities.put(t.getId(), t);
+            indexes.values().forEach(index -> index.put(t));
+            markSynchronized();
+            events.add(listener -> listener.saved(t));
+        } catch (ValidationException e) {
+            throw e;
         } catch (Exception e) {
-            throw new ValidationException(String.format("%s.save.failed", t.getClass().getName()));
+            invalidate();
+            throw new ValidationException(failureKey(e, String.format("%s.save.failed", t.getClass().getName())));
+        } finally {
+            lock.writeLock().unlock();
         }
+        deliverEvents();
     }
 
     /**
@@ -81,12 +352,34 @@ class Dao<T extends Entity> {
      * @throws ValidationException if the entity fails validation
      */
     void update(T t) throws ValidationException {
-        t.validate();
+        lock.writeLock().lock();
         try {
-            dataStreamHandler.update(t);
-        } catch (Exception e) {
-            throw new ValidationException(String.format("%s.update.failed", t.getClass().getName()));
+            try {
+                t.validate();
+            } catch (ValidationException e) {
+                invalidate();
+                throw e;
+            }
+            try {
+                var entities = entities();
+                checkUnique(List.of(t), List.of());
+                dataStreamHandler.update(t);
+                entities.put(t.getId(), t);
+                indexes.values().forEach(index -> index.put(t));
+                markSynchronized();
+                events.add(listener -> listener.updated(t));
+            } catch (ValidationException e) {
+                invalidate();
+                throw e;
+            } catch (Exception e) {
+                invalidate();
+                throw new ValidationException(
+                        failureKey(e, String.format("%s.update.failed", t.getClass().getName())));
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
+        deliverEvents();
     }
 
     /**
@@ -96,11 +389,437 @@ class Dao<T extends Entity> {
      * @return true if the entity was deleted, false if no entity was found with the given id
      */
     boolean delete(UUID id) {
+        T removed;
+        lock.writeLock().lock();
         try {
+            var entities = entities();
             dataStreamHandler.deleteById(id);
-            return true;
+            removed = entities.remove(id);
+            indexes.values().forEach(index -> index.remove(id));
+            markSynchronized();
+            if (removed != null) {
+                events.add(listener -> listener.deleted(removed));
+            }
         } catch (Exception e) {
+            invalidate();
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deliverEvents();
+        return true;
+    }
+
+    /**
+     * Saves several new entities with a single write.
+     *
+     * @param ts the entities to save
+     * @throws ValidationException if any entity fails validation or saving fails, in which case none is saved
+     */
+    void saveAll(Collection<T> ts) throws ValidationException {
+        List<T> saved = new ArrayList<>(ts);
+        if (saved.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            checkBatch(saved, List.of(), List.of());
+            writeBatch(saved, List.of());
+            publishBatch(saved, List.of(), List.of());
+        } catch (IOException e) {
+            throw new ValidationException(
+                    failureKey(e, String.format("%s.save.failed", saved.get(0).getClass().getName())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deliverEvents();
+    }
+
+    /**
+     * Updates several existing entities with a single write.
+     *
+     * @param ts the entities with updated data
+     * @throws ValidationException if any entity fails validation, does not exist or updating fails,
+     *                             in which case none is updated
+     */
+    void updateAll(Collection<T> ts) throws ValidationException {
+        List<T> updated = new ArrayList<>(ts);
+        if (updated.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            checkBatch(List.of(), updated, List.of());
+            writeBatch(updated, List.of());
+            publishBatch(List.of(), updated, List.of());
+        } catch (IOException e) {
+            throw new ValidationException(
+                    failureKey(e, String.format("%s.update.failed", updated.get(0).getClass().getName())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deliverEvents();
+    }
+
+    /**
+     * Deletes several entities with a single write.
+     *
+     * @param ids UUIDs of the entities to delete
+     * @return true if the entities were deleted, false if any of them was not found or deleting failed,
+     *         in which case none is deleted
+     */
+    boolean deleteAll(Collection<UUID> ids) {
+        List<T> removed;
+        lock.writeLock().lock();
+        try {
+            checkBatch(List.of(), List.of(), ids);
+            removed = writeBatch(List.of(), ids);
+            publishBatch(List.of(), List.of(), removed);
+        } catch (ValidationException | IOException e) {
             return false;
+        } finally {
+            lock.writeLock().unlock();
         }
+        deliverEvents();
+        return true;
+    }
+
+    /**
+     * Checks that a batch of changes can be applied: saved and updated entities must be valid,
+     * updated and deleted entities must exist and unique keys must stay unique. Used by {@link Transaction} before anything is written.
+     * On failure the cache is dropped, as the caller may already have modified cached instances.
+     *
+     * @param saved   entities to insert
+     * @param updated entities to update
+     * @param deleted ids of the entities to delete
+     * @throws ValidationException if any of the changes cannot be applied
+     */
+    void checkBatch(Collection<T> saved, Collection<T> updated, Collection<UUID> deleted)
+            throws ValidationException {
+        lock.writeLock().lock();
+        try {
+            for (T t : saved) {
+                t.validate();
+            }
+            for (T t : updated) {
+                t.validate();
+            }
+            var entities = entities();
+            for (T t : updated) {
+                if (!entities.containsKey(t.getId())) {
+                    throw new ValidationException(String.format("%s.update.failed", t.getClass().getName()));
+                }
+            }
+            for (UUID id : deleted) {
+                if (!entities.containsKey(id)) {
+                    throw new ValidationException("transaction.failed");
+                }
+            }
+            List<T> written = new ArrayList<>(saved);
+            written.addAll(updated);
+            checkUnique(written, deleted);
+        } catch (ValidationException e) {
+            invalidate();
+            throw e;
+        } catch (Exception e) {
+            invalidate();
+            throw new ValidationException(failureKey(e, "transaction.failed"));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks that writing the given entities keeps the keys of the unique indexes unique.
+     * Must be called with the write lock held and the cache loaded.
+     *
+     * @param written entities to insert or update
+     * @param deleted ids of the entities deleted by the same write, whose keys are released
+     * @throws ValidationException if a key would be held by two entities
+     */
+    private void checkUnique(Collection<T> written, Collection<UUID> deleted) throws ValidationException {
+        if (uniqueIndexes.isEmpty()) {
+            return;
+        }
+        Set<UUID> changed = new HashSet<>(deleted);
+        written.forEach(t -> changed.add(t.getId()));
+        for (var unique : uniqueIndexes.entrySet()) {
+            checkUnique(unique.getKey(), written, changed, unique.getValue());
+        }
+    }
+
+    /**
+     * Checks a single unique index, see {@link #checkUnique(Collection, Collection)}. Entities that are
+     * written or deleted themselves do not hold their indexed key any more, their new keys are checked
+     * against each other.
+     *
+     * @param index      the unique index
+     * @param written    entities to insert or update
+     * @param changed    ids of the written and deleted entities
+     * @param messageKey message key of the error
+     * @param <K>        the type of the index key
+     * @throws ValidationException if a key would be held by two entities
+     */
+    private <K> void checkUnique(DaoIndex<T, K> index, Collection<T> written, Set<UUID> changed, String messageKey)
+            throws ValidationException {
+        Map<K, UUID> claimed = new HashMap<>();
+        for (T t : written) {
+            K key = index.keyOf(t);
+            if (key == null) {
+                continue;
+            }
+            UUID other = claimed.putIfAbsent(key, t.getId());
+            if (other != null && !other.equals(t.getId())) {
+                throw new ValidationException(messageKey);
+            }
+            for (UUID id : index.get(key)) {
+                if (!changed.contains(id)) {
+                    throw new ValidationException(messageKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the persisted state of the given entities, ignoring the cache, whose instances may
+     * already have been modified by the caller. Used by {@link Transaction} to roll back a batch.
+     *
+     * @param ids ids of the entities to read
+     * @return persisted entities keyed by id, entities that are not persisted are missing
+     * @throws IOException if an I/O error occurs during reading
+     */
+    Map<UUID, T> readPersisted(Collection<UUID> ids) throws IOException {
+        Map<UUID, T> persisted = new LinkedHashMap<>();
+        for (UUID id : ids) {
+            dataStreamHandler.readById(id).ifPresent(t -> persisted.put(id, t));
+        }
+        return persisted;
+    }
+
+    /**
+     * Writes the given entities and deletes the given ids in a single batch, see
+     * {@link DataStreamHandler#writeBatch(List, Collection)}, and applies the changes to the cache.
+     * Listeners are not notified, see {@link #publishBatch(Collection, Collection, Collection)}.
+     *
+     * @param written entities to insert or update
+     * @param deleted ids of the entities to delete
+     * @return the deleted entities
+     * @throws IOException if the batch cannot be written; the cache is dropped
+     */
+    List<T> writeBatch(List<T> written, Collection<UUID> deleted) throws IOException {
+        lock.writeLock().lock();
+        try {
+            var entities = entities();
+            dataStreamHandler.writeBatch(written, deleted);
+            for (T t : written) {
+                entities.put(t.getId(), t);
+                indexes.values().forEach(index -> index.put(t));
+            }
+            List<T> removed = new ArrayList<>();
+            for (UUID id : deleted) {
+                T t = entities.remove(id);
+                if (t != null) {
+                    removed.add(t);
+                    indexes.values().forEach(index -> index.remove(id));
+                }
+            }
+            markSynchronized();
+            return removed;
+        } catch (Exception e) {
+            invalidate();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Queues the events of a committed batch for the listeners. Must be called with the write lock held,
+     * so that the events are queued in commit order; they are delivered by {@link #deliverEvents()}.
+     *
+     * @param saved   inserted entities
+     * @param updated updated entities
+     * @param deleted deleted entities
+     */
+    void publishBatch(Collection<T> saved, Collection<T> updated, Collection<T> deleted) {
+        for (T t : saved) {
+            events.add(listener -> listener.saved(t));
+        }
+        for (T t : updated) {
+            events.add(listener -> listener.updated(t));
+        }
+        for (T t : deleted) {
+            events.add(listener -> listener.deleted(t));
+        }
+    }
+
+    /**
+     * Delivers the queued events to the listeners, in the order they were queued. Must be called without
+     * the write lock held. A thread finding another one delivering waits for it, so when this method returns
+     * the events queued by the calling thread have been delivered.
+     */
+    void deliverEvents() {
+        deliveryLock.lock();
+        try {
+            Consumer<DaoListener<T>> event;
+            while ((event = events.poll()) != null) {
+                for (DaoListener<T> listener : listeners) {
+                    event.accept(listener);
+                }
+            }
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    /**
+     * Registers a listener notified about every persisted change of the entities.
+     *
+     * @param listener the listener to register
+     */
+    void addListener(DaoListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Synchronizes the cache with the file, reloading it (and notifying listeners) if the file
+     * has been changed since the cache was last synchronized with it. A fresh cache is only checked
+     * under the read lock, so that refreshing does not serialize concurrent readers.
+     */
+    void refresh() {
+        lock.readLock().lock();
+        try {
+            if (isCacheFresh()) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            entities();
+        } catch (Exception e) {
+            invalidate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the cached entities, forcing them to be read from the file on next access.
+     */
+    void invalidate() {
+        lock.writeLock().lock();
+        try {
+            cache = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the message key describing a failed access to the file.
+     *
+     * @param e   the cause of the failure
+     * @param key the message key used unless the file is locked by another process
+     * @return {@code data.locked} if the file could not be locked in time, the given key otherwise
+     */
+    static String failureKey(Exception e, String key) {
+        return e instanceof LockTimeoutException ? "data.locked" : key;
+    }
+
+    /**
+     * Returns the write lock of the DAO. {@link Transaction} holds the write locks of all its DAOs
+     * while the batches are written, so that no DAO is changed or read half way through the commit.
+     *
+     * @return the write lock
+     */
+    Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Returns the position of this DAO in the order in which {@link Transaction} takes the write locks.
+     * Unlike identity hash codes, positions never collide, so any two DAOs are always locked in the same order.
+     *
+     * @return the lock order of the DAO
+     */
+    long lockOrder() {
+        return lockOrder;
+    }
+
+    /**
+     * Runs a read against the cached entities. If the cache is up to date, only the read lock is held;
+     * otherwise the cache is reloaded under the write lock, which the read then keeps.
+     *
+     * @param reader function computing the result from the cached entities
+     * @param <R>    the type of the result
+     * @return the result of the reader
+     * @throws Exception if the entities cannot be read
+     */
+    private <R> R read(Function<Map<UUID, T>, R> reader) throws Exception {
+        lock.readLock().lock();
+        try {
+            if (isCacheFresh()) {
+                return reader.apply(cache);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return reader.apply(entities());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the cached entities, (re)loading them if the cache is empty or the file
+     * has been changed since the cache was last synchronized with it. Indexes are rebuilt
+     * and listeners notified on reload. Must be called with the write lock held.
+     *
+     * @return cached entities keyed by id
+     * @throws Exception if the entities cannot be read
+     */
+    private Map<UUID, T> entities() throws Exception {
+        if (isCacheFresh()) {
+            return cache;
+        }
+
+        cache = null;
+        Map<UUID, T> entities = new LinkedHashMap<>();
+        for (T entity : dataStreamHandler.readAll()) {
+            entities.put(entity.getId(), entity);
+        }
+        for (DaoIndex<T, ?> index : indexes.values()) {
+            index.clear();
+            entities.values().forEach(index::put);
+        }
+        cache = entities;
+        markSynchronized();
+        listeners.forEach(DaoListener::reloaded);
+        return cache;
+    }
+
+    /**
+     * Checks whether the cache reflects the current state of the file.
+     *
+     * @return true if the cache is loaded and the file has not changed since
+     */
+    private boolean isCacheFresh() {
+        return cache != null
+                && cachedLastModified == dataStreamHandler.lastModified()
+                && cachedFileLength == dataStreamHandler.fileLength()
+                && cachedChangeCount == dataStreamHandler.changeCount();
+    }
+
+    /**
+     * Records the current modification time, length and change counter of the file as the state the cache reflects.
+     */
+    private void markSynchronized() {
+        cachedLastModified = dataStreamHandler.lastModified();
+        cachedFileLength = dataStreamHandler.fileLength();
+        cachedChangeCount = dataStreamHandler.changeCount();
     }
 }
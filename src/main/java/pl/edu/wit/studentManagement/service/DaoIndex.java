@@ -0,0 +1,110 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Secondary index over the entities cached by a {@link Dao}.
+ * <p>
+ * The index maps a key derived from an entity (see {@link IndexKey} for composite keys) to the ids
+ * of all entities having that key. It is created with {@link Dao#createIndex(String, Function)} and kept
+ * consistent by the DAO on every save, update and delete, as well as whenever the cache is reloaded.
+ * <p>
+ * The key last indexed for every entity is remembered, so an entity that was modified in place
+ * before being updated is still removed from its previous bucket.
+ *
+ * @param <T> the type of indexed entity
+ * @param <K> the type of the index key
+ */
+class DaoIndex<T extends Entity, K> {
+    /**
+     * Function deriving the index key from an entity.
+     */
+    private final Function<T, K> keyExtractor;
+    /**
+     * Ids of indexed entities grouped by key, in insertion order.
+     */
+    private final Map<K, Set<UUID>> idsByKey = new HashMap<>();
+    /**
+     * Key under which each entity is currently indexed.
+     */
+    private final Map<UUID, K> keysById = new HashMap<>();
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param keyExtractor function deriving the index key from an entity
+     */
+    DaoIndex(Function<T, K> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Derives the key an entity would be indexed under.
+     *
+     * @param entity the entity
+     * @return the key of the entity
+     */
+    K keyOf(T entity) {
+        return keyExtractor.apply(entity);
+    }
+
+    /**
+     * Adds an entity to the index, or moves it to its current key if already indexed.
+     *
+     * @param entity the entity to index
+     */
+    void put(T entity) {
+        remove(entity.getId());
+        K key = keyExtractor.apply(entity);
+        keysById.put(entity.getId(), key);
+        idsByKey.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(entity.getId());
+    }
+
+    /**
+     * Removes an entity from the index.
+     *
+     * @param id the id of the entity to remove
+     */
+    void remove(UUID id) {
+        if (!keysById.containsKey(id)) {
+            return;
+        }
+        K key = keysById.remove(id);
+        Set<UUID> ids = idsByKey.get(key);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            idsByKey.remove(key);
+        }
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    void clear() {
+        idsByKey.clear();
+        keysById.clear();
+    }
+
+    /**
+     * Returns the number of entities indexed under the given key.
+     *
+     * @param key the key to look up
+     * @return number of entities with the key
+     */
+    int count(K key) {
+        Set<UUID> ids = idsByKey.get(key);
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Returns the ids of all entities indexed under the given key.
+     *
+     * @param key the key to look up
+     * @return unmodifiable set of ids, empty if there are none
+     */
+    Set<UUID> get(K key) {
+        Set<UUID> ids = idsByKey.get(key);
+        return ids == null ? Set.of() : Collections.unmodifiableSet(ids);
+    }
+}
@@ -0,0 +1,46 @@
+package pl.edu.wit.studentManagement.service;
+
+/**
+ * Listener notified by a {@link Dao} about changes of its entities, used to keep derived
+ * structures (such as cached query results) up to date incrementally.
+ * <p>
+ * The mutation callbacks are invoked after the change has been persisted and after the DAO
+ * has released its lock, so they may query DAOs. They are invoked one at a time and in the order
+ * the changes were committed, also when several threads write concurrently, so a listener never
+ * sees e.g. the deletion of an entity before its insertion. {@link #reloaded()} is invoked while
+ * the DAO is locked and therefore must not block or call back into any DAO.
+ *
+ * @param <T> the type of entity the listener observes
+ */
+interface DaoListener<T extends Entity> {
+    /**
+     * Called after a new entity has been saved.
+     *
+     * @param entity the saved entity
+     */
+    default void saved(T entity) {
+    }
+
+    /**
+     * Called after an entity has been updated.
+     *
+     * @param entity the entity in its updated state
+     */
+    default void updated(T entity) {
+    }
+
+    /**
+     * Called after an entity has been deleted.
+     *
+     * @param entity the entity as it was before deletion
+     */
+    default void deleted(T entity) {
+    }
+
+    /**
+     * Called when the DAO (re)loaded its entities from the file, e.g. after the file was changed
+     * by another writer. Anything derived from previous notifications may be out of date.
+     */
+    default void reloaded() {
+    }
+}
@@ -1,9 +1,18 @@
 package pl.edu.wit.studentManagement.service;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
 
 /**
  * Abstract base class for handling persistent storage of entities using data streams.
@@ -13,107 +22,2088 @@ import java.util.UUID;
  * <p>
  * Implementing classes must provide specific logic for reading and writing their
  * respective entity types by implementing the abstract methods.
+ * <p>
+ * Two on-disk layouts are supported, see {@link StorageMode}. In {@link StorageMode#SNAPSHOT} mode
+ * every mutation rewrites the whole file. In {@link StorageMode#APPEND_LOG} mode the file starts with
+ * a magic header followed by frames of the form {@code [op][payload length][CRC32][payload]}, where
+ * the payload of a put frame is the record written by {@link #writeObject} and the payload of a delete
+ * frame (tombstone) is the UUID of the removed record. Mutations only append frames and reading
+ * replays the log, the last frame for a given id wins. A frame that is cut short or fails its checksum
+ * (e.g. after a crash in the middle of an append) ends the log and is overwritten by the next append.
+ * Changes written together by {@link #writeBatch(List, Collection)} are appended as a single batch frame
+ * whose payload is a sequence of put and delete frames, so they are replayed all or not at all.
+ * <p>
+ * In {@link StorageMode#FIXED_SLOTS} mode, available to handlers whose records have a fixed maximum size
+ * (see {@link #recordSize()}), the file starts with a magic header and the record size, followed by slots
+ * of the form {@code [status][record padded to the record size]}. Every record has its own slot, so an
+ * update overwrites a single slot and a delete only clears the status byte of one slot, both in place
+ * using positional channel writes. Freed slots are reused by subsequent inserts, so records are read in
+ * slot order rather than insertion order. As an in-place write cut short by a crash would leave a slot
+ * half old and half new, every slot write is first committed to a {@link WriteAheadLog}.
+ * <p>
+ * Whenever the file is rewritten as a whole (a snapshot mutation, a compaction or a layout conversion),
+ * the new content is written to a temporary file, forced to disk and atomically moved over the original,
+ * so a crash leaves either the old or the new file. Before the first access, the handler recovers from
+ * a previous crash: leftover temporary files are discarded and committed transactions of the write-ahead
+ * log are replayed, see {@link #recover()}.
+ * <p>
+ * Superseded puts and tombstones are garbage. Once their share of the log reaches the compaction
+ * threshold, the file is rewritten on a background thread (see {@link LogCompactor}) into a dense log
+ * holding only live records.
+ * <p>
+ * The handler is guarded by a read-write lock. Reads only take the read lock and run in parallel,
+ * mutations, compaction and changes of the settings take the write lock, which keeps them from
+ * interleaving with each other and with reads. Other processes working on the same file (e.g. instances
+ * of the application sharing a network drive) are excluded by an {@link InterProcessLock} on a
+ * {@code .lock} file next to it, taken shared for reads and exclusively for mutations with a bounded wait,
+ * see {@link #setLockTimeout(long)}.
+ * <p>
+ * All file access goes through buffered streams, so decoding a record does not turn into one system
+ * call per field. The buffer size can be tuned with {@link #setBufferSize(int)}. The snapshot layout
+ * has no record count or terminator, its end is detected by reaching the end of the stream.
+ * <p>
+ * Log and slot files are accompanied by a primary-key index file (see {@link PrimaryKeyIndex}) mapping
+ * record ids to offsets, maintained on every mutation. {@link #readById(UUID)} uses it to read a single
+ * record without decoding the whole file, and rebuilds it if it is missing or out of date.
+ * <p>
+ * When appended mutations are forced to disk is decided by the {@link Durability} policy, see
+ * {@link #setDurability(Durability)}. The latencies of mutations are collected per policy, see
+ * {@link #getCommitLatencies(Durability)}.
+ * <p>
+ * Optionally, see {@link #setMemoryMapped(boolean)}, reads decode records directly from a read-only
+ * memory mapping of the file. The mapping is kept between reads and only replaced when the file changes.
  *
  * @param <T> the type of entity this handler manages, must extend Entity
  * @author Michał Zawadzki
  */
 abstract class DataStreamHandler<T extends Entity> {
     /**
-     * The file path where the data will be persisted.
+     * Magic number opening every file written in {@link StorageMode#APPEND_LOG} mode ("SMLG").
+     * Records of the snapshot layout always start with a boolean flag (0 or 1), so the two layouts
+     * cannot be confused.
+     */
+    private static final int LOG_MAGIC = 0x534D4C47;
+    /** Size of the log header in bytes */
+    private static final int LOG_HEADER_SIZE = 4;
+    /** Size of a frame header (op, payload length, checksum) in bytes */
+    private static final int FRAME_HEADER_SIZE = 1 + 4 + 4;
+    /** Frame operation storing the full state of a record */
+    private static final byte OP_PUT = 1;
+    /** Frame operation marking a record as deleted */
+    private static final byte OP_DELETE = 2;
+    /** Frame operation: several put and delete frames applied as one, see {@link #writeBatch(List, Collection)} */
+    private static final byte OP_BATCH = 3;
+    /** Default garbage ratio at which the log is compacted */
+    static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    /** Logs with fewer frames than this are never compacted in the background */
+    static final int MIN_COMPACTION_FRAMES = 256;
+    /**
+     * Magic number opening every file written in {@link StorageMode#FIXED_SLOTS} mode ("SMFS").
+     */
+    private static final int SLOT_MAGIC = 0x534D4653;
+    /** Size of the slot file header (magic, record size) in bytes */
+    private static final int SLOT_HEADER_SIZE = 4 + 4;
+    /** Status of a slot holding no record */
+    private static final byte SLOT_FREE = 0;
+    /** Status of a slot holding a live record */
+    private static final byte SLOT_LIVE = 1;
+    /** Default size of the I/O buffers in bytes */
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /** Default number of pending mutations at which a group commit is forced */
+    static final int DEFAULT_GROUP_COMMIT_SIZE = 64;
+    /** Default time after its first mutation at which a group commit is forced, in milliseconds */
+    static final long DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS = 20;
+    /** Default maximum time to wait for another process to release the file, in milliseconds */
+    static final long DEFAULT_LOCK_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * The file path where the data will be persisted.
+     */
+    private final String filePath;
+
+    /**
+     * Sidecar index of record offsets, used by {@link #readById(UUID)}.
+     */
+    private final PrimaryKeyIndex primaryKeyIndex;
+
+    /**
+     * Redo log of in-place slot writes.
+     */
+    private final WriteAheadLog writeAheadLog;
+
+    /**
+     * Whether the file has been recovered after a possible crash, see {@link #recover()}.
+     */
+    private volatile boolean recovered;
+
+    /**
+     * Layout used when writing the file.
+     */
+    private StorageMode storageMode = StorageMode.SNAPSHOT;
+
+    /**
+     * Offsets of the latest put frame of every live record, {@code null} until the log has been replayed.
+     * Only used in {@link StorageMode#APPEND_LOG} mode.
+     */
+    private Map<UUID, Long> logOffsets;
+
+    /**
+     * Length of the valid part of the log, i.e. the position at which the next frame is appended.
+     */
+    private long logLength;
+
+    /**
+     * Number of frames in the log, including superseded puts and tombstones.
+     */
+    private long logFrames;
+
+    /**
+     * Length of the file as last seen by this handler, used to detect changes made by other writers.
+     */
+    private long logFileLength;
+
+    /**
+     * Slot of every live record, {@code null} until the slots have been scanned.
+     * Only used in {@link StorageMode#FIXED_SLOTS} mode.
+     */
+    private Map<UUID, Long> slotIndex;
+
+    /**
+     * Free slots available for reuse.
+     */
+    private final Deque<Long> freeSlots = new ArrayDeque<>();
+
+    /**
+     * Number of complete slots in the file, i.e. the slot at which the next record is appended.
+     */
+    private long slotCount;
+
+    /**
+     * Length of the slot file as last seen by this handler, used to detect changes made by other writers.
+     */
+    private long slotFileLength;
+
+    /**
+     * Garbage ratio (superseded frames and tombstones divided by all frames) at which the log
+     * is compacted in the background.
+     */
+    private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    /**
+     * Whether a background compaction has been scheduled and has not started yet.
+     */
+    private boolean compactionScheduled;
+
+    /**
+     * Metrics of the compactions of this handler's file.
+     */
+    private final CompactionStats compactionStats = new CompactionStats();
+
+    /**
+     * Policy deciding when mutations are forced to disk.
+     */
+    private Durability durability = Durability.SYNC_EACH;
+
+    /**
+     * Number of pending mutations at which a group is forced in {@link Durability#GROUP_COMMIT} mode.
+     */
+    private int groupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
+
+    /**
+     * Time after its first mutation at which a group is forced in {@link Durability#GROUP_COMMIT} mode.
+     */
+    private long groupCommitIntervalMillis = DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS;
+
+    /**
+     * Number of mutations written but not yet forced to disk.
+     */
+    private long pendingCommits;
+
+    /**
+     * Latencies of mutations, per durability policy they were written with.
+     */
+    private final Map<Durability, LatencyHistogram> commitLatencies = new EnumMap<>(Durability.class);
+
+    /**
+     * Size of the buffers used when reading and writing the file, in bytes.
+     */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /**
+     * Whether reads decode records from a memory mapping of the file instead of a stream.
+     */
+    private boolean memoryMapped;
+
+    /**
+     * Current read-only mapping of the file, {@code null} if the file is not mapped.
+     */
+    private MappedByteBuffer mapping;
+
+    /**
+     * Modification time of the file when it was mapped.
+     */
+    private long mappingLastModified;
+
+    /**
+     * Number of times the file has been mapped, exposed for monitoring.
+     */
+    private long mappingCount;
+
+    /**
+     * Guards the mapping, which concurrent reads holding only the read lock may replace.
+     */
+    private final Object mappingLock = new Object();
+
+    /**
+     * Lock letting reads run in parallel while mutations run exclusively.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Lock excluding other processes from the file while it is read or written.
+     */
+    private final InterProcessLock processLock;
+
+    /**
+     * Maximum time to wait for another process to release the file, in milliseconds.
+     */
+    private long lockTimeoutMillis = DEFAULT_LOCK_TIMEOUT_MILLIS;
+
+    /**
+     * Change counter of the lock file the in-memory state of the file reflects, see {@link InterProcessLock}.
+     */
+    private long knownChangeCount = -1;
+
+    /**
+     * Change counter of the lock file when the file was last mapped.
+     */
+    private long mappingChangeCount = -1;
+
+    /**
+     * Constructs a new DataStreamHandler with the specified file path.
+     *
+     * @param filePath the path to the file where data will be stored and retrieved from
+     */
+    protected DataStreamHandler(String filePath) {
+        this.filePath = filePath;
+        String basePath = filePath.endsWith(".dat") ? filePath.substring(0, filePath.length() - 4) : filePath;
+        this.primaryKeyIndex = new PrimaryKeyIndex(Path.of(basePath + ".idx"));
+        this.writeAheadLog = new WriteAheadLog(Path.of(basePath + ".wal"));
+        this.processLock = InterProcessLock.forFile(Path.of(basePath + ".lock"));
+        for (Durability value : Durability.values()) {
+            commitLatencies.put(value, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Returns the size of the buffers used when reading and writing the file.
+     *
+     * @return buffer size in bytes
+     */
+    int getBufferSize() {
+        lock.readLock().lock();
+        try {
+            return bufferSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the size of the buffers used when reading and writing the file.
+     *
+     * @param bufferSize buffer size in bytes
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    void setBufferSize(int bufferSize) {
+        lock.writeLock().lock();
+        try {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+            }
+            this.bufferSize = bufferSize;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether reads decode records from a memory mapping of the file.
+     *
+     * @return true if the memory-mapped read path is enabled
+     */
+    boolean isMemoryMapped() {
+        lock.readLock().lock();
+        try {
+            return memoryMapped;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Enables or disables the memory-mapped read path.
+     * <p>
+     * When enabled, the file is mapped read-only on the first read and records are decoded directly
+     * from the mapping. The mapping is reused by subsequent reads until the length or modification time
+     * of the file changes. It suits large, read-mostly files. The mapping is released before the file is
+     * rewritten, but some platforms (notably Windows) do not allow replacing a mapped file until the
+     * released mapping is garbage collected, in which case the rewrite fails with an {@link IOException}.
+     *
+     * @param memoryMapped true to read through a memory mapping
+     */
+    void setMemoryMapped(boolean memoryMapped) {
+        lock.writeLock().lock();
+        try {
+            this.memoryMapped = memoryMapped;
+            if (!memoryMapped) {
+                mapping = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns how many times the file has been mapped into memory.
+     *
+     * @return number of mappings created by the memory-mapped read path
+     */
+    long getMappingCount() {
+        synchronized (mappingLock) {
+            return mappingCount;
+        }
+    }
+
+    /**
+     * Returns the policy deciding when mutations are forced to disk.
+     *
+     * @return the durability policy
+     */
+    Durability getDurability() {
+        lock.readLock().lock();
+        try {
+            return durability;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the policy deciding when mutations are forced to disk. Mutations still pending
+     * under the previous policy are forced first.
+     *
+     * @param durability the durability policy to use
+     * @throws IOException if pending mutations cannot be forced
+     */
+    void setDurability(Durability durability) throws IOException {
+        lock.writeLock().lock();
+        try {
+            sync();
+            this.durability = durability;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Configures when a group is forced in {@link Durability#GROUP_COMMIT} mode.
+     *
+     * @param size           number of pending mutations at which the group is forced
+     * @param intervalMillis time after its first mutation at which the group is forced, in milliseconds
+     */
+    void setGroupCommit(int size, long intervalMillis) {
+        lock.writeLock().lock();
+        try {
+            if (size <= 0 || intervalMillis <= 0) {
+                throw new IllegalArgumentException("Group commit size and interval must be positive");
+            }
+            this.groupCommitSize = size;
+            this.groupCommitIntervalMillis = intervalMillis;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum time to wait for another process to release the file.
+     *
+     * @return lock timeout in milliseconds
+     */
+    long getLockTimeout() {
+        lock.readLock().lock();
+        try {
+            return lockTimeoutMillis;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the maximum time to wait for another process to release the file. Operations that cannot
+     * lock the file in time fail with a {@link LockTimeoutException}.
+     *
+     * @param lockTimeoutMillis lock timeout in milliseconds
+     */
+    void setLockTimeout(long lockTimeoutMillis) {
+        lock.writeLock().lock();
+        try {
+            if (lockTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Lock timeout must not be negative");
+            }
+            this.lockTimeoutMillis = lockTimeoutMillis;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the histogram of the latencies of mutations written with the given durability policy,
+     * measured from the call of a mutating method until it returns. The policy only applies to mutations
+     * appended to a {@link StorageMode#APPEND_LOG} file; slot writes and whole-file rewrites are always
+     * forced before returning and are recorded under {@link Durability#SYNC_EACH}.
+     *
+     * @param durability the durability policy
+     * @return latency histogram
+     */
+    LatencyHistogram getCommitLatencies(Durability durability) {
+        return commitLatencies.get(durability);
+    }
+
+    /**
+     * Forces mutations written but not yet forced to disk. Only the mutations of this handler are pending,
+     * so the file is not locked against other processes; forcing it does not change its contents.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void sync() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (pendingCommits == 0) {
+                return;
+            }
+            if (Files.exists(Path.of(filePath))) {
+                try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.WRITE)) {
+                    channel.force(false);
+                }
+            }
+            pendingCommits = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the layout used when writing the file.
+     *
+     * @return the storage mode
+     */
+    StorageMode getStorageMode() {
+        lock.readLock().lock();
+        try {
+            return storageMode;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the layout used when writing the file. An existing file in a different layout
+     * is converted on its next mutation.
+     *
+     * @param storageMode the storage mode to use
+     */
+    void setStorageMode(StorageMode storageMode) {
+        lock.writeLock().lock();
+        try {
+            if (storageMode == StorageMode.FIXED_SLOTS && recordSize() <= 0) {
+                throw new IllegalArgumentException("Records of " + getClass().getSimpleName() + " have no fixed size");
+            }
+            this.storageMode = storageMode;
+            this.logOffsets = null;
+            this.slotIndex = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum size of a single record written by {@link #writeObject}, in bytes.
+     * Handlers whose records are bounded override it to support {@link StorageMode#FIXED_SLOTS}.
+     *
+     * @return record size in bytes, or 0 if records have no fixed maximum size
+     */
+    int recordSize() {
+        return 0;
+    }
+
+    /**
+     * Returns the garbage ratio at which the log is compacted in the background.
+     *
+     * @return the compaction threshold
+     */
+    double getCompactionThreshold() {
+        lock.readLock().lock();
+        try {
+            return compactionThreshold;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the garbage ratio at which the log is compacted in the background.
+     * A value above 1 disables background compaction.
+     *
+     * @param compactionThreshold ratio between 0 and 1
+     */
+    void setCompactionThreshold(double compactionThreshold) {
+        lock.writeLock().lock();
+        try {
+            this.compactionThreshold = compactionThreshold;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the metrics of the compactions of this handler's file.
+     *
+     * @return compaction metrics
+     */
+    CompactionStats getCompactionStats() {
+        return compactionStats;
+    }
+
+    /**
+     * Returns the last modification time of the underlying file.
+     * Together with {@link #fileLength()} it allows callers to detect changes made by other writers.
+     *
+     * @return modification time in nanoseconds since the epoch, or 0 if the file does not exist
+     */
+    long lastModified() {
+        try {
+            return Files.getLastModifiedTime(Path.of(filePath)).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the length of the underlying file.
+     *
+     * @return length in bytes, or 0 if the file does not exist
+     */
+    long fileLength() {
+        return new File(filePath).length();
+    }
+
+    /**
+     * Returns the change counter of the file, incremented by every handler of any process changing it.
+     * Unlike the length and modification time, it also changes on in-place slot writes, even within the
+     * timestamp granularity of the file system.
+     *
+     * @return the change counter, read without locking
+     */
+    long changeCount() {
+        return processLock.readChangeCount();
+    }
+
+    /**
+     * Returns the share of frames in the log that no longer describe a live record.
+     *
+     * @return garbage ratio between 0 and 1, 0 if the log has not been loaded
+     */
+    double getGarbageRatio() {
+        lock.readLock().lock();
+        try {
+            if (logOffsets == null || logFrames == 0) {
+                return 0;
+            }
+            return (double) (logFrames - logOffsets.size()) / logFrames;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log into a dense log containing one put frame per live record.
+     * <p>
+     * The new log is written to a temporary file first and then atomically moved over the original.
+     *
+     * @return true if the file was compacted, false if it is not a log
+     * @throws IOException if an I/O error occurs; the original file is left intact
+     */
+    boolean compact() throws IOException {
+        lockExclusive();
+        try {
+            compactionScheduled = false;
+            recover();
+            File file = new File(filePath);
+            if (!isLogFile(file)) {
+                return false;
+            }
+
+            markChanged();
+            long start = System.nanoTime();
+            long lengthBefore = file.length();
+            writeLog(new ArrayList<>(replayLog().values()));
+            compactionStats.recordCompaction(lengthBefore - logLength, System.nanoTime() - start);
+            return true;
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Reads all objects of type T from the data stream.
+     * <p>
+     * Only the read lock is held, so reads run in parallel. The in-memory state of the handler is not
+     * refreshed by reading, it is brought up to date by the next mutation.
+     *
+     * @return a list of all objects read
+     * @throws IOException if an I/O error occurs during reading
+     */
+    List<T> readAll() throws IOException {
+        ensureRecovered();
+        lockShared();
+        try {
+            List<T> objects = new ArrayList<>();
+            File file = new File(filePath);
+
+            if (!file.exists()) {
+                return objects;
+            }
+
+            if (isLogFile(file)) {
+                objects.addAll(readLog().objects.values());
+                return objects;
+            }
+            if (isSlotFile(file)) {
+                objects.addAll(readSlots().objects.values());
+                return objects;
+            }
+
+            try (DataInputStream in = openInput(file)) {
+                while (!isEndOfStream(in)) {
+                    T object = readObject(in);
+                    if (object != null) {
+                        objects.add(object);
+                    }
+                }
+            }
+            return objects;
+        } finally {
+            unlockShared();
+        }
+    }
+
+    /**
+     * Reads a single object by its id.
+     * <p>
+     * For log and slot files the offset of the record is looked up in the primary-key index and only
+     * that record is read. The index is loaded from its file on first use and rebuilt from the data file
+     * if it is missing, damaged, out of date or points at a record with another id. Snapshot files have
+     * no index, as every mutation moves their records, and are scanned.
+     * <p>
+     * While the loaded index is up to date, only the read lock is held. Loading or rebuilding the index
+     * takes the write lock.
+     *
+     * @param id the UUID of the object to read
+     * @return Optional containing the object, or empty if there is no object with the given id
+     * @throws IOException if an I/O error occurs during reading
+     */
+    Optional<T> readById(UUID id) throws IOException {
+        ensureRecovered();
+        lockShared();
+        try {
+            File file = new File(filePath);
+            if (!file.exists()) {
+                return Optional.empty();
+            }
+            boolean log = isLogFile(file);
+            if (!log && !(isSlotFile(file) && recordSize() > 0)) {
+                return readAll().stream().filter(object -> id.equals(object.getId())).findFirst();
+            }
+            if (knownChangeCount == processLock.getChangeCount() && primaryKeyIndex.isValidFor(file.length())) {
+                Long offset = primaryKeyIndex.offsetOf(id);
+                if (offset == null) {
+                    return Optional.empty();
+                }
+                T object = readAt(offset, log);
+                if (object != null && id.equals(object.getId())) {
+                    return Optional.of(object);
+                }
+            }
+        } finally {
+            unlockShared();
+        }
+
+        lockExclusive();
+        try {
+            File file = new File(filePath);
+            if (!file.exists()) {
+                return Optional.empty();
+            }
+            boolean log = isLogFile(file);
+            if (!log && !(isSlotFile(file) && recordSize() > 0)) {
+                return readAll().stream().filter(object -> id.equals(object.getId())).findFirst();
+            }
+            if (!primaryKeyIndex.isValidFor(file.length())) {
+                primaryKeyIndex.load();
+                if (!primaryKeyIndex.isValidFor(file.length())) {
+                    rebuildIndex(log);
+                }
+            }
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Long offset = primaryKeyIndex.offsetOf(id);
+                if (offset == null) {
+                    return Optional.empty();
+                }
+                T object = readAt(offset, log);
+                if (object != null && id.equals(object.getId())) {
+                    return Optional.of(object);
+                }
+                // The index points at another record, the data file has been changed behind its back
+                rebuildIndex(log);
+            }
+            return Optional.empty();
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Writes a new object to the data stream.
+     *
+     * @param object the object to write
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void write(T object) throws IOException {
+        lockExclusive();
+        long start = System.nanoTime();
+        try {
+            recover();
+            if (storageMode == StorageMode.APPEND_LOG) {
+                loadLog();
+                byte[] payload = encodeObject(object);
+                markChanged();
+                appendFrame(OP_PUT, object.getId(), payload);
+                return;
+            }
+            if (storageMode == StorageMode.FIXED_SLOTS) {
+                loadSlots();
+                // the free slot is taken only once written, so that a failed write does not leak it
+                Long free = freeSlots.peek();
+                long slot = free != null ? free : slotCount;
+                long lengthBefore = slotPosition(slotCount);
+                byte[] record = encodeRecord(object);
+                markChanged();
+                writeSlot(slot, record);
+                if (free != null) {
+                    freeSlots.poll();
+                }
+                slotIndex.put(object.getId(), slot);
+                updateIndex(object.getId(), slotPosition(slot), lengthBefore, slotFileLength, null);
+                return;
+            }
+            List<T> existingObjects = readAll();
+            existingObjects.add(object);
+            markChanged();
+            writeSnapshot(existingObjects);
+        } finally {
+            recordLatency(start);
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Updates an existing object in the data stream.
+     *
+     * @param object the object with updated data
+     * @throws IOException if an I/O error occurs during updating
+     */
+    void update(T object) throws IOException {
+        lockExclusive();
+        long start = System.nanoTime();
+        try {
+            recover();
+            if (storageMode == StorageMode.APPEND_LOG) {
+                loadLog();
+                if (!logOffsets.containsKey(object.getId())) {
+                    throw new IOException("Object not found with ID: " + object.getId());
+                }
+                byte[] payload = encodeObject(object);
+                markChanged();
+                appendFrame(OP_PUT, object.getId(), payload);
+                return;
+            }
+            if (storageMode == StorageMode.FIXED_SLOTS) {
+                loadSlots();
+                Long slot = slotIndex.get(object.getId());
+                if (slot == null) {
+                    throw new IOException("Object not found with ID: " + object.getId());
+                }
+                byte[] record = encodeRecord(object);
+                markChanged();
+                writeSlot(slot, record);
+                return;
+            }
+            List<T> objects = readAll();
+            for (int i = 0; i < objects.size(); i++) {
+                if (objects.get(i).getId().equals(object.getId())) {
+                    objects.set(i, object);
+                    markChanged();
+                    writeSnapshot(objects);
+                    return;
+                }
+            }
+            throw new IOException("Object not found with ID: " + object.getId());
+        } finally {
+            recordLatency(start);
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Deletes an object identified by its UUID from the data stream.
+     *
+     * @param id the UUID of the object to delete
+     * @throws IOException if an I/O error occurs during deletion
+     */
+    void deleteById(UUID id) throws IOException {
+        lockExclusive();
+        long start = System.nanoTime();
+        try {
+            recover();
+            if (storageMode == StorageMode.APPEND_LOG) {
+                loadLog();
+                if (!logOffsets.containsKey(id)) {
+                    throw new IOException("Object not found with ID: " + id);
+                }
+                markChanged();
+                appendFrame(OP_DELETE, id, encodeUuid(id));
+                return;
+            }
+            if (storageMode == StorageMode.FIXED_SLOTS) {
+                loadSlots();
+                Long slot = slotIndex.get(id);
+                if (slot == null) {
+                    throw new IOException("Object not found with ID: " + id);
+                }
+                markChanged();
+                writeSlot(slot, null);
+                slotIndex.remove(id);
+                freeSlots.add(slot);
+                updateIndex(id, -1, slotFileLength, slotFileLength, null);
+                return;
+            }
+            List<T> objects = readAll();
+            if (objects.removeIf(obj -> obj.getId().equals(id))) {
+                markChanged();
+                writeSnapshot(objects);
+            } else {
+                throw new IOException("Object not found with ID: " + id);
+            }
+        } finally {
+            recordLatency(start);
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Writes several new objects as a single write, see {@link #writeBatch(List, Collection)}.
+     *
+     * @param objects the objects to write
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void saveAll(List<T> objects) throws IOException {
+        lockExclusive();
+        try {
+            writeBatch(objects, List.of());
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Updates several existing objects as a single write, see {@link #writeBatch(List, Collection)}.
+     *
+     * @param objects the objects with updated data
+     * @throws IOException if any of the objects is not stored, in which case nothing is written,
+     *                     or if an I/O error occurs during writing
+     */
+    void updateAll(List<T> objects) throws IOException {
+        lockExclusive();
+        try {
+            List<UUID> ids = new ArrayList<>();
+            for (T object : objects) {
+                ids.add(object.getId());
+            }
+            requireStored(ids);
+            writeBatch(objects, List.of());
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Deletes several objects as a single write, see {@link #writeBatch(List, Collection)}.
+     *
+     * @param ids the UUIDs of the objects to delete
+     * @throws IOException if any of the objects is not stored, in which case nothing is deleted,
+     *                     or if an I/O error occurs during deletion
+     */
+    void deleteAll(Collection<UUID> ids) throws IOException {
+        lockExclusive();
+        try {
+            requireStored(ids);
+            writeBatch(List.of(), ids);
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Inserts or updates the given objects and deletes the records with the given ids as a single write.
+     * <p>
+     * In snapshot mode the file is rewritten once, in log mode all changes are appended as one batch
+     * frame and in slot mode all slot writes form one write-ahead log transaction. In each case a crash
+     * leaves either all or none of the changes in the file. Objects whose id is not stored yet are inserted,
+     * ids that are not stored are ignored.
+     *
+     * @param objects objects to insert or update
+     * @param ids     ids of the records to remove
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void writeBatch(List<T> objects, Collection<UUID> ids) throws IOException {
+        lockExclusive();
+        long start = System.nanoTime();
+        try {
+            recover();
+            if (storageMode == StorageMode.APPEND_LOG) {
+                loadLog();
+                List<UUID> stored = new ArrayList<>();
+                for (UUID id : ids) {
+                    if (logOffsets.containsKey(id)) {
+                        stored.add(id);
+                    }
+                }
+                if (!objects.isEmpty() || !stored.isEmpty()) {
+                    markChanged();
+                    appendBatch(objects, stored);
+                }
+                return;
+            }
+            if (storageMode == StorageMode.FIXED_SLOTS) {
+                loadSlots();
+                Map<Long, byte[]> records = new LinkedHashMap<>();
+                Map<UUID, Long> inserted = new LinkedHashMap<>();
+                long nextSlot = slotCount;
+                // free slots are taken from the head of the queue only once written, see write
+                Iterator<Long> free = freeSlots.iterator();
+                int taken = 0;
+                for (T object : objects) {
+                    Long slot = slotIndex.get(object.getId());
+                    if (slot == null) {
+                        slot = inserted.get(object.getId());
+                    }
+                    if (slot == null) {
+                        if (free.hasNext()) {
+                            slot = free.next();
+                            taken++;
+                        } else {
+                            slot = nextSlot++;
+                        }
+                        inserted.put(object.getId(), slot);
+                    }
+                    records.put(slot, encodeRecord(object));
+                }
+                List<Long> freed = new ArrayList<>();
+                Map<UUID, Long> removed = new LinkedHashMap<>();
+                for (UUID id : ids) {
+                    Long slot = inserted.remove(id);
+                    if (slot != null) {
+                        records.put(slot, null);
+                        freed.add(slot);
+                    } else if ((slot = slotIndex.get(id)) != null && !removed.containsKey(id)) {
+                        records.put(slot, null);
+                        freed.add(slot);
+                        removed.put(id, slot);
+                    }
+                }
+                if (records.isEmpty()) {
+                    return;
+                }
+                long lengthBefore = slotPosition(slotCount);
+                markChanged();
+                writeSlots(records);
+                for (int i = 0; i < taken; i++) {
+                    freeSlots.poll();
+                }
+                slotIndex.putAll(inserted);
+                removed.keySet().forEach(slotIndex::remove);
+                freeSlots.addAll(freed);
+                for (Map.Entry<UUID, Long> entry : inserted.entrySet()) {
+                    updateIndex(entry.getKey(), slotPosition(entry.getValue()), lengthBefore, slotFileLength, null);
+                    lengthBefore = slotFileLength;
+                }
+                for (UUID id : removed.keySet()) {
+                    updateIndex(id, -1, lengthBefore, slotFileLength, null);
+                    lengthBefore = slotFileLength;
+                }
+                return;
+            }
+            Map<UUID, T> stored = new LinkedHashMap<>();
+            for (T object : readAll()) {
+                stored.put(object.getId(), object);
+            }
+            for (T object : objects) {
+                stored.put(object.getId(), object);
+            }
+            ids.forEach(stored::remove);
+            markChanged();
+            writeSnapshot(new ArrayList<>(stored.values()));
+        } finally {
+            recordLatency(start);
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Checks that records with all the given ids are stored, using the in-memory offsets or slot index
+     * in log and slot mode and reading the file in snapshot mode.
+     *
+     * @param ids the ids to check
+     * @throws IOException if any of the ids is not stored or an I/O error occurs during reading
+     */
+    private void requireStored(Collection<UUID> ids) throws IOException {
+        recover();
+        Set<UUID> stored;
+        if (storageMode == StorageMode.APPEND_LOG) {
+            loadLog();
+            stored = logOffsets.keySet();
+        } else if (storageMode == StorageMode.FIXED_SLOTS) {
+            loadSlots();
+            stored = slotIndex.keySet();
+        } else {
+            stored = new HashSet<>();
+            for (T object : readAll()) {
+                stored.add(object.getId());
+            }
+        }
+        for (UUID id : ids) {
+            if (!stored.contains(id)) {
+                throw new IOException("Object not found with ID: " + id);
+            }
+        }
+    }
+
+    /**
+     * Writes all objects to the file.
+     * <p>
+     * The objects are written to a temporary file which then atomically replaces the target file.
+     *
+     * @param objects list of objects to write
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void writeAll(List<T> objects) throws IOException {
+        lockExclusive();
+        long start = System.nanoTime();
+        try {
+            recover();
+            markChanged();
+            if (storageMode == StorageMode.APPEND_LOG) {
+                writeLog(objects);
+                return;
+            }
+            if (storageMode == StorageMode.FIXED_SLOTS) {
+                writeSlots(objects);
+                return;
+            }
+            writeSnapshot(objects);
+        } finally {
+            commitLatencies.get(Durability.SYNC_EACH).record(System.nanoTime() - start);
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Writes the given objects as a plain sequence of records.
+     * The records are written to a temporary file which then atomically replaces the target file.
+     *
+     * @param objects list of objects to write
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void writeSnapshot(List<T> objects) throws IOException {
+        Path temp = Path.of(filePath + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, bufferSize))) {
+            for (T object : objects) {
+                writeObject(out, object);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        replaceFile(temp);
+        logOffsets = null;
+        slotIndex = null;
+        primaryKeyIndex.delete();
+    }
+
+    /**
+     * Writes the given objects as a fresh log containing one put frame per object.
+     * The log is written to a temporary file which then atomically replaces the target file.
+     *
+     * @param objects list of objects to write
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void writeLog(List<T> objects) throws IOException {
+        Map<UUID, Long> offsets = new HashMap<>();
+        long position = LOG_HEADER_SIZE;
+        Path temp = Path.of(filePath + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, bufferSize))) {
+            out.writeInt(LOG_MAGIC);
+            for (T object : objects) {
+                byte[] frame = encodeFrame(OP_PUT, encodeObject(object));
+                out.write(frame);
+                offsets.put(object.getId(), position);
+                position += frame.length;
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        replaceFile(temp);
+        slotIndex = null;
+        logOffsets = offsets;
+        logLength = position;
+        logFrames = objects.size();
+        logFileLength = position;
+        rewriteIndex(offsets, position);
+    }
+
+    /**
+     * Makes sure the in-memory state of the log matches the file, replaying the log if needed.
+     * A missing file is created with an empty log and a file in the snapshot layout is converted.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void loadLog() throws IOException {
+        File file = new File(filePath);
+        if (logOffsets != null && file.length() == logFileLength) {
+            return;
+        }
+        if (!file.exists() || file.length() == 0) {
+            writeLog(List.of());
+        } else if (isLogFile(file)) {
+            replayLog();
+        } else {
+            writeLog(readAll());
+        }
+    }
+
+    /**
+     * Replays the log from the beginning and refreshes the in-memory offsets.
+     *
+     * @return live objects keyed by id, in the order they were first inserted
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private Map<UUID, T> replayLog() throws IOException {
+        LogScan<T> scan = readLog();
+        logOffsets = scan.offsets;
+        logLength = scan.length;
+        logFrames = scan.frames;
+        logFileLength = scan.fileLength;
+        return scan.objects;
+    }
+
+    /**
+     * Replays the log from the beginning without touching the in-memory state, so that it can be
+     * called under the read lock. Replaying stops at the first incomplete or corrupted frame.
+     *
+     * @return the live objects and their offsets
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private LogScan<T> readLog() throws IOException {
+        Map<UUID, T> objects = new LinkedHashMap<>();
+        Map<UUID, Long> offsets = new HashMap<>();
+        long position = LOG_HEADER_SIZE;
+        long frames = 0;
+        long fileLength = new File(filePath).length();
+
+        try (DataInputStream in = openInput(new File(filePath))) {
+            in.readInt();
+            while (true) {
+                int op = in.read();
+                if (op == -1) {
+                    break;
+                }
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    // a length running past the end of the file is a torn or corrupted header,
+                    // so it must not be used to size the payload buffer
+                    if (length < 0 || length > fileLength - position - FRAME_HEADER_SIZE) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum != checksum(payload)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (op == OP_BATCH) {
+                    ByteBuffer batch = ByteBuffer.wrap(payload);
+                    while (batch.remaining() >= FRAME_HEADER_SIZE) {
+                        long innerPosition = position + FRAME_HEADER_SIZE + batch.position();
+                        byte innerOp = batch.get();
+                        byte[] innerPayload = new byte[batch.getInt()];
+                        batch.getInt();
+                        batch.get(innerPayload);
+                        replayFrame(innerOp, innerPayload, innerPosition, objects, offsets);
+                        frames++;
+                    }
+                } else if (!replayFrame((byte) op, payload, position, objects, offsets)) {
+                    break;
+                } else {
+                    frames++;
+                }
+                position += FRAME_HEADER_SIZE + payload.length;
+            }
+        }
+
+        return new LogScan<>(objects, offsets, position, frames, fileLength);
+    }
+
+    /**
+     * Applies a single put or delete frame read from the log.
+     *
+     * @param op       frame operation
+     * @param payload  frame payload
+     * @param position offset of the frame in the file
+     * @param objects  live objects, updated by the frame
+     * @param offsets  offsets of the live objects, updated by the frame
+     * @return false if the operation is unknown
+     * @throws IOException if the payload cannot be decoded
+     */
+    private boolean replayFrame(byte op, byte[] payload, long position, Map<UUID, T> objects, Map<UUID, Long> offsets)
+            throws IOException {
+        DataInputStream payloadIn = new DataInputStream(new ByteArrayInputStream(payload));
+        if (op == OP_PUT) {
+            T object = readObject(payloadIn);
+            if (object != null) {
+                objects.put(object.getId(), object);
+                offsets.put(object.getId(), position);
+            }
+        } else if (op == OP_DELETE) {
+            UUID id = readUuid(payloadIn);
+            objects.remove(id);
+            offsets.remove(id);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends a single frame at the end of the valid part of the log.
+     * Any trailing bytes of an incomplete frame are discarded first.
+     *
+     * @param op      frame operation
+     * @param id      id of the affected record
+     * @param payload frame payload
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void appendFrame(byte op, UUID id, byte[] payload) throws IOException {
+        appendBytes(encodeFrame(op, payload));
+
+        long offset = logLength;
+        if (op == OP_PUT) {
+            logOffsets.put(id, offset);
+        } else {
+            logOffsets.remove(id);
+        }
+        logLength += FRAME_HEADER_SIZE + payload.length;
+        logFrames++;
+        logFileLength = logLength;
+        updateIndex(id, op == OP_PUT ? offset : -1, offset, logLength, logOffsets);
+        scheduleCompaction();
+    }
+
+    /**
+     * Appends a batch frame holding one put frame per object to store and one delete frame
+     * per id to remove. The batch shares a single checksum, so after a crash in the middle of
+     * the append either all or none of its changes are replayed.
+     *
+     * @param objects objects to insert or update
+     * @param ids     ids of the records to remove
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void appendBatch(List<T> objects, Collection<UUID> ids) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        Map<UUID, Long> offsets = new LinkedHashMap<>();
+        long frames = 0;
+        long innerPosition = logLength + FRAME_HEADER_SIZE;
+        for (T object : objects) {
+            byte[] frame = encodeFrame(OP_PUT, encodeObject(object));
+            payload.write(frame);
+            offsets.put(object.getId(), innerPosition);
+            innerPosition += frame.length;
+            frames++;
+        }
+        for (UUID id : ids) {
+            byte[] frame = encodeFrame(OP_DELETE, encodeUuid(id));
+            payload.write(frame);
+            offsets.put(id, -1L);
+            innerPosition += frame.length;
+            frames++;
+        }
+        byte[] batch = encodeFrame(OP_BATCH, payload.toByteArray());
+        appendBytes(batch);
+
+        long lengthBefore = logLength;
+        logLength += batch.length;
+        logFrames += frames;
+        logFileLength = logLength;
+        for (Map.Entry<UUID, Long> entry : offsets.entrySet()) {
+            if (entry.getValue() >= 0) {
+                logOffsets.put(entry.getKey(), entry.getValue());
+            } else {
+                logOffsets.remove(entry.getKey());
+            }
+        }
+        for (Map.Entry<UUID, Long> entry : offsets.entrySet()) {
+            updateIndex(entry.getKey(), entry.getValue(), lengthBefore, logLength, logOffsets);
+            lengthBefore = logLength;
+        }
+        scheduleCompaction();
+    }
+
+    /**
+     * Writes bytes at the end of the valid part of the log and commits them according to the
+     * durability policy. Any trailing bytes of an incomplete frame are discarded first.
+     *
+     * @param frame encoded frame
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void appendBytes(byte[] frame) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.WRITE)) {
+            if (channel.size() > logLength) {
+                mapping = null;
+                channel.truncate(logLength);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            long position = logLength;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            commit(channel);
+        }
+    }
+
+    /**
+     * Schedules a background compaction once the garbage ratio of the log reaches the threshold.
+     */
+    private void scheduleCompaction() {
+        if (!compactionScheduled && logFrames >= MIN_COMPACTION_FRAMES && getGarbageRatio() >= compactionThreshold) {
+            compactionScheduled = true;
+            LogCompactor.schedule(this);
+        }
+    }
+
+    /**
+     * Records the latency of a mutation under the durability policy it was actually written with.
+     *
+     * @param start {@link System#nanoTime()} when the mutation started
+     */
+    private void recordLatency(long start) {
+        Durability applied = storageMode == StorageMode.APPEND_LOG ? durability : Durability.SYNC_EACH;
+        commitLatencies.get(applied).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Forces an appended mutation to disk according to the durability policy. In
+     * {@link Durability#GROUP_COMMIT} mode the first mutation of a group schedules forcing the group
+     * in the background, unless the group fills up and is forced right away.
+     *
+     * @param channel channel the mutation was written to
+     * @throws IOException if an I/O error occurs
      */
-    private final String filePath;
+    private void commit(FileChannel channel) throws IOException {
+        switch (durability) {
+            case SYNC_EACH:
+                channel.force(false);
+                break;
+            case GROUP_COMMIT:
+                if (++pendingCommits >= groupCommitSize) {
+                    channel.force(false);
+                    pendingCommits = 0;
+                } else if (pendingCommits == 1) {
+                    GroupCommitter.schedule(this, groupCommitIntervalMillis);
+                }
+                break;
+            case OS_BUFFERED:
+                break;
+        }
+    }
 
     /**
-     * Constructs a new DataStreamHandler with the specified file path.
+     * Takes the read lock and the shared lock of the file.
      *
-     * @param filePath the path to the file where data will be stored and retrieved from
+     * @throws IOException if the file cannot be locked in time
      */
-    protected DataStreamHandler(String filePath) {
-        this.filePath = filePath;
+    private void lockShared() throws IOException {
+        lock.readLock().lock();
+        try {
+            processLock.lockShared(lockTimeoutMillis);
+        } catch (IOException | RuntimeException e) {
+            lock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the locks taken by {@link #lockShared()}.
+     */
+    private void unlockShared() {
+        try {
+            processLock.unlockShared();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
-    
+
     /**
-     * Reads all objects of type T from the data stream.
+     * Takes the write lock and the exclusive lock of the file. If another process or handler has changed
+     * the file since this handler last held the lock, the in-memory state of the file is discarded, as
+     * e.g. a slot may have been reused without changing the length of the file.
      *
-     * @return a list of all objects read
-     * @throws IOException if an I/O error occurs during reading
+     * @throws IOException if the file cannot be locked in time
      */
-    List<T> readAll() throws IOException {
-        List<T> objects = new ArrayList<>();
-        File file = new File(filePath);
-        
-        if (!file.exists()) {
-            return objects;
+    private void lockExclusive() throws IOException {
+        lock.writeLock().lock();
+        try {
+            processLock.lockExclusive(lockTimeoutMillis);
+        } catch (IOException | RuntimeException e) {
+            lock.writeLock().unlock();
+            throw e;
         }
-        
-        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
-            while (in.available() > 0) {
-                T object = readObject(in);
-                if (object != null) {
-                    objects.add(object);
+        long changeCount = processLock.getChangeCount();
+        if (changeCount != knownChangeCount) {
+            logOffsets = null;
+            slotIndex = null;
+            freeSlots.clear();
+            primaryKeyIndex.unload();
+            knownChangeCount = changeCount;
+        }
+    }
+
+    /**
+     * Releases the locks taken by {@link #lockExclusive()}.
+     *
+     * @throws IOException if the change counter cannot be written to the lock file
+     */
+    private void unlockExclusive() throws IOException {
+        try {
+            processLock.unlockExclusive();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the file is being changed, so that other processes and handlers discard their
+     * in-memory state of it. Must be called while holding the exclusive lock, right before the first
+     * write, so that an operation failing its checks does not make them reload an unchanged file.
+     */
+    private void markChanged() {
+        knownChangeCount = processLock.markChanged();
+    }
+
+    /**
+     * Recovers the file under the write lock unless it has already been recovered, see {@link #recover()}.
+     * Must not be called while holding the read lock, which cannot be upgraded.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void ensureRecovered() throws IOException {
+        if (recovered) {
+            return;
+        }
+        lockExclusive();
+        try {
+            recover();
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    /**
+     * Recovers the file after a possible crash, once per handler before the file is first accessed.
+     * <p>
+     * Temporary files left by an interrupted rewrite are deleted, as the original file was never replaced.
+     * Complete transactions of the write-ahead log are replayed onto the file and an incomplete one is
+     * discarded. If anything was replayed, the primary-key index is dropped, as it may not cover the
+     * replayed writes, and rebuilt on next use.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void recover() throws IOException {
+        if (recovered) {
+            return;
+        }
+        Files.deleteIfExists(Path.of(filePath + ".tmp"));
+        Files.deleteIfExists(Path.of(primaryKeyIndex.getPath() + ".tmp"));
+        if (Files.exists(writeAheadLog.getPath())) {
+            if (Files.exists(Path.of(filePath))) {
+                try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.WRITE)) {
+                    if (writeAheadLog.recover(channel) > 0) {
+                        markChanged();
+                        dropIndex();
+                    }
                 }
+            } else {
+                writeAheadLog.checkpoint(null);
             }
         }
-        return objects;
+        recovered = true;
     }
 
     /**
-     * Writes a new object to the data stream.
+     * Atomically replaces the file with a fully written and synced temporary file.
+     * The write-ahead log is checkpointed first, as its writes refer to the replaced file.
      *
-     * @param object the object to write
-     * @throws IOException if an I/O error occurs during writing
+     * @param temp the temporary file
+     * @throws IOException if an I/O error occurs; the original file is left intact
      */
-    void write(T object) throws IOException {
-        List<T> existingObjects = readAll();
-        existingObjects.add(object);
-        writeAll(existingObjects);
+    private void replaceFile(Path temp) throws IOException {
+        Path target = Path.of(filePath);
+        if (Files.exists(writeAheadLog.getPath())) {
+            try (FileChannel channel = Files.exists(target) ? FileChannel.open(target, StandardOpenOption.WRITE) : null) {
+                writeAheadLog.checkpoint(channel);
+            }
+        }
+        mapping = null;
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+        pendingCommits = 0;
     }
 
     /**
-     * Updates an existing object in the data stream.
+     * Forces the directory entry changes of a rename to disk. Not all platforms allow opening
+     * a directory, there the rename is left to the file system.
      *
-     * @param object the object with updated data
-     * @throws IOException if an I/O error occurs during updating
+     * @param directory the directory to sync
      */
-    void update(T object) throws IOException {
-        List<T> objects = readAll();
-        for (int i = 0; i < objects.size(); i++) {
-            if (objects.get(i).getId().equals(object.getId())) {
-                objects.set(i, object);
-                writeAll(objects);
-                return;
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // not supported on this platform
+        }
+    }
+
+    /**
+     * Records a single change in the primary-key index. If the index does not describe the file as it
+     * was before the change, it is rewritten from the in-memory offsets instead, which already include
+     * the change. Failures only drop the index, which is rebuilt on next use, as the data itself has been
+     * written successfully.
+     *
+     * @param id            the id of the changed record
+     * @param offset        new offset of the record, negative if it was removed
+     * @param lengthBefore  length of the data file before the change
+     * @param lengthAfter   length of the data file after the change
+     * @param logOffsets    current offsets of a log file, or {@code null} for a slot file
+     */
+    private void updateIndex(UUID id, long offset, long lengthBefore, long lengthAfter, Map<UUID, Long> logOffsets) {
+        try {
+            if (!primaryKeyIndex.isValidFor(lengthBefore)) {
+                primaryKeyIndex.load();
+                if (!primaryKeyIndex.isValidFor(lengthBefore)) {
+                    primaryKeyIndex.rewrite(logOffsets != null ? logOffsets : slotOffsets(), lengthAfter);
+                    return;
+                }
+            }
+            if (offset >= 0) {
+                primaryKeyIndex.put(id, offset, lengthAfter);
+            } else {
+                primaryKeyIndex.remove(id, lengthAfter);
             }
+        } catch (IOException e) {
+            dropIndex();
         }
-        throw new IOException("Object not found with ID: " + object.getId());
     }
 
     /**
-     * Deletes an object identified by its UUID from the data stream.
+     * Replaces the primary-key index after the data file has been rewritten.
      *
-     * @param id the UUID of the object to delete
-     * @throws IOException if an I/O error occurs during deletion
+     * @param offsets    offsets of all live records
+     * @param dataLength length of the rewritten data file
      */
-    void deleteById(UUID id) throws IOException {
-        List<T> objects = readAll();
-        if (objects.removeIf(obj -> obj.getId().equals(id))) {
-            writeAll(objects);
+    private void rewriteIndex(Map<UUID, Long> offsets, long dataLength) {
+        try {
+            primaryKeyIndex.rewrite(offsets, dataLength);
+        } catch (IOException e) {
+            dropIndex();
+        }
+    }
+
+    /**
+     * Rebuilds the primary-key index by reading the whole data file.
+     *
+     * @param log true for a log file, false for a slot file
+     * @throws IOException if an I/O error occurs
+     */
+    private void rebuildIndex(boolean log) throws IOException {
+        if (log) {
+            replayLog();
+            primaryKeyIndex.rewrite(logOffsets, logFileLength);
         } else {
-            throw new IOException("Object not found with ID: " + id);
+            scanSlots();
+            primaryKeyIndex.rewrite(slotOffsets(), slotFileLength);
         }
     }
 
     /**
-     * Writes all objects to the file.
+     * Deletes the primary-key index, so that it is rebuilt on next use.
+     */
+    private void dropIndex() {
+        try {
+            primaryKeyIndex.delete();
+        } catch (IOException ignored) {
+            // an index that cannot be deleted is detected as out of date on next use
+        }
+    }
+
+    /**
+     * Returns the offsets of the live records of a slot file.
+     *
+     * @return offsets keyed by record id
+     */
+    private Map<UUID, Long> slotOffsets() {
+        Map<UUID, Long> offsets = new HashMap<>();
+        slotIndex.forEach((id, slot) -> offsets.put(id, slotPosition(slot)));
+        return offsets;
+    }
+
+    /**
+     * Reads the record stored at the given offset.
+     *
+     * @param offset offset of a log frame or a slot
+     * @param log    true for a log file, false for a slot file
+     * @return the object, or {@code null} if there is no intact live record at the offset
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private T readAt(long offset, boolean log) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            if (log) {
+                ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+                if (!readFully(channel, header, offset)) {
+                    return null;
+                }
+                byte op = header.get(0);
+                int length = header.getInt(1);
+                int checksum = header.getInt(5);
+                if (op != OP_PUT || length < 0 || offset + FRAME_HEADER_SIZE + length > channel.size()) {
+                    return null;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                if (!readFully(channel, payload, offset + FRAME_HEADER_SIZE) || checksum != checksum(payload.array())) {
+                    return null;
+                }
+                return readObject(new DataInputStream(new ByteArrayInputStream(payload.array())));
+            }
+            ByteBuffer slot = ByteBuffer.allocate(1 + recordSize());
+            if (!readFully(channel, slot, offset) || slot.get(0) != SLOT_LIVE) {
+                return null;
+            }
+            return readObject(new DataInputStream(new ByteArrayInputStream(slot.array(), 1, recordSize())));
+        }
+    }
+
+    /**
+     * Fills the buffer with bytes read from the given position.
+     *
+     * @param channel  channel to read from
+     * @param buffer   buffer to fill
+     * @param position position in the file
+     * @return false if the end of the file was reached first
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * Opens a data stream reading the file, either from its memory mapping or through a buffer.
+     *
+     * @param file the file to read
+     * @return stream supporting {@link #isEndOfStream(DataInputStream)}
+     * @throws IOException if the file cannot be opened
+     */
+    private DataInputStream openInput(File file) throws IOException {
+        if (memoryMapped) {
+            ByteBuffer mapped = map(file);
+            if (mapped != null) {
+                return new DataInputStream(new ByteBufferInputStream(mapped));
+            }
+        }
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file), bufferSize));
+    }
+
+    /**
+     * Returns a view of the read-only mapping of the file, mapping it again if the file has changed
+     * since it was last mapped.
+     *
+     * @param file the file to map
+     * @return buffer positioned at the start of the file, or {@code null} if the file is too large to be mapped
+     * @throws IOException if the file cannot be mapped
+     */
+    private ByteBuffer map(File file) throws IOException {
+        synchronized (mappingLock) {
+            long length = file.length();
+            if (length > Integer.MAX_VALUE) {
+                mapping = null;
+                return null;
+            }
+            long modified = lastModified();
+            long changeCount = processLock.getChangeCount();
+            if (mapping == null || mapping.capacity() != length || mappingLastModified != modified
+                    || mappingChangeCount != changeCount) {
+                mapping = null;
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                }
+                mappingLastModified = modified;
+                mappingChangeCount = changeCount;
+                mappingCount++;
+            }
+            return mapping.duplicate();
+        }
+    }
+
+    /**
+     * Checks whether a stream opened by {@link #openInput(File)} has been read to the end,
+     * without consuming any data.
+     *
+     * @param in the stream to check
+     * @return true if no more bytes can be read
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private static boolean isEndOfStream(DataInputStream in) throws IOException {
+        in.mark(1);
+        if (in.read() == -1) {
+            return true;
+        }
+        in.reset();
+        return false;
+    }
+
+    /**
+     * Writes the given objects as a fresh slot file with one live slot per object.
+     * The file is written to a temporary file which then atomically replaces the target file.
      *
      * @param objects list of objects to write
      * @throws IOException if an I/O error occurs during writing
      */
-    void writeAll(List<T> objects) throws IOException {
-        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(filePath))) {
+    private void writeSlots(List<T> objects) throws IOException {
+        Map<UUID, Long> index = new HashMap<>();
+        Path temp = Path.of(filePath + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, bufferSize))) {
+            out.writeInt(SLOT_MAGIC);
+            out.writeInt(recordSize());
             for (T object : objects) {
-                writeObject(out, object);
+                out.writeByte(SLOT_LIVE);
+                out.write(encodeRecord(object));
+                index.put(object.getId(), (long) index.size());
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        replaceFile(temp);
+        logOffsets = null;
+        slotIndex = index;
+        freeSlots.clear();
+        slotCount = objects.size();
+        slotFileLength = slotPosition(slotCount);
+        rewriteIndex(slotOffsets(), slotFileLength);
+    }
+
+    /**
+     * Makes sure the in-memory slot index matches the file, scanning the slots if needed.
+     * A missing file is created without slots and a file in another layout is converted.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void loadSlots() throws IOException {
+        File file = new File(filePath);
+        if (slotIndex != null && file.length() == slotFileLength) {
+            return;
+        }
+        if (!file.exists() || file.length() == 0) {
+            writeSlots(List.of());
+        } else if (isSlotFile(file)) {
+            scanSlots();
+        } else {
+            writeSlots(readAll());
+        }
+    }
+
+    /**
+     * Reads all slots and refreshes the slot index and the free slots.
+     *
+     * @return live objects keyed by id, in slot order
+     * @throws IOException if an I/O error occurs during reading or the file was written with another record size
+     */
+    private Map<UUID, T> scanSlots() throws IOException {
+        SlotScan<T> scan = readSlots();
+        slotIndex = scan.index;
+        freeSlots.clear();
+        freeSlots.addAll(scan.freeSlots);
+        slotCount = scan.count;
+        slotFileLength = scan.fileLength;
+        return scan.objects;
+    }
+
+    /**
+     * Reads all slots without touching the in-memory state, so that it can be called under the read lock.
+     * An incomplete trailing slot (e.g. after a crash in the middle of an append) is ignored.
+     *
+     * @return the live objects, their slots and the free slots
+     * @throws IOException if an I/O error occurs during reading or the file was written with another record size
+     */
+    private SlotScan<T> readSlots() throws IOException {
+        Map<UUID, T> objects = new LinkedHashMap<>();
+        Map<UUID, Long> index = new HashMap<>();
+        List<Long> free = new ArrayList<>();
+        long slot = 0;
+        int size = recordSize();
+
+        try (DataInputStream in = openInput(new File(filePath))) {
+            in.readInt();
+            int fileRecordSize = in.readInt();
+            if (size <= 0 || fileRecordSize != size) {
+                throw new IOException("Unexpected record size " + fileRecordSize + " in " + filePath);
+            }
+            byte[] record = new byte[size];
+            while (true) {
+                int status = in.read();
+                if (status == -1) {
+                    break;
+                }
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (status == SLOT_LIVE) {
+                    T object = readObject(new DataInputStream(new ByteArrayInputStream(record)));
+                    if (object != null) {
+                        objects.put(object.getId(), object);
+                        index.put(object.getId(), slot);
+                    }
+                } else {
+                    free.add(slot);
+                }
+                slot++;
+            }
+        }
+
+        return new SlotScan<>(objects, index, free, slot, new File(filePath).length());
+    }
+
+    /**
+     * Writes a single slot in place. Writing past the last slot appends a new one, after discarding
+     * the bytes of an incomplete trailing slot. The write is committed to the write-ahead log first.
+     *
+     * @param slot   number of the slot
+     * @param record padded record to store, or {@code null} to mark the slot as free
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void writeSlot(long slot, byte[] record) throws IOException {
+        Map<Long, byte[]> records = new HashMap<>();
+        records.put(slot, record);
+        writeSlots(records);
+    }
+
+    /**
+     * Writes several slots in place as a single write-ahead log transaction, so after a crash
+     * either all or none of them are written. Slots past the last one are appended.
+     *
+     * @param records padded records keyed by slot number, {@code null} to mark a slot as free
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void writeSlots(Map<Long, byte[]> records) throws IOException {
+        List<WriteAheadLog.Write> writes = new ArrayList<>();
+        long newSlotCount = slotCount;
+        for (Map.Entry<Long, byte[]> entry : records.entrySet()) {
+            byte[] record = entry.getValue();
+            byte[] bytes;
+            if (record == null) {
+                // A new slot freed within the same batch is written in full, so the file has no torn slot
+                bytes = entry.getKey() < slotCount ? new byte[]{SLOT_FREE} : new byte[1 + recordSize()];
+            } else {
+                bytes = new byte[1 + record.length];
+                bytes[0] = SLOT_LIVE;
+                System.arraycopy(record, 0, bytes, 1, record.length);
+            }
+            writes.add(new WriteAheadLog.Write(slotPosition(entry.getKey()), bytes));
+            newSlotCount = Math.max(newSlotCount, entry.getKey() + 1);
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.WRITE)) {
+            if (writeAheadLog.needsCheckpoint()) {
+                writeAheadLog.checkpoint(channel);
             }
+            writeAheadLog.commit(writes);
+            if (channel.size() > slotPosition(slotCount)) {
+                mapping = null;
+                channel.truncate(slotPosition(slotCount));
+            }
+            for (WriteAheadLog.Write write : writes) {
+                ByteBuffer buffer = ByteBuffer.wrap(write.bytes);
+                long position = write.position;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        }
+        slotCount = newSlotCount;
+        slotFileLength = slotPosition(slotCount);
+    }
+
+    /**
+     * Returns the position of a slot in the file.
+     *
+     * @param slot number of the slot
+     * @return offset of the slot's status byte
+     */
+    private long slotPosition(long slot) {
+        return SLOT_HEADER_SIZE + slot * (1 + recordSize());
+    }
+
+    /**
+     * Serializes a single object using {@link #writeObject} and pads it to the record size.
+     *
+     * @param object the object to serialize
+     * @return serialized bytes, exactly {@link #recordSize()} long
+     * @throws IOException if an I/O error occurs during writing or the record exceeds the record size
+     */
+    private byte[] encodeRecord(T object) throws IOException {
+        byte[] bytes = encodeObject(object);
+        if (bytes.length > recordSize()) {
+            throw new IOException("Record of " + bytes.length + " bytes does not fit a slot of " + recordSize());
+        }
+        return Arrays.copyOf(bytes, recordSize());
+    }
+
+    /**
+     * Checks whether the file is written in the {@link StorageMode#FIXED_SLOTS} layout.
+     *
+     * @param file the file to check
+     * @return true if the file starts with the slot file header
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private boolean isSlotFile(File file) throws IOException {
+        return file.length() >= SLOT_HEADER_SIZE && readMagic(file) == SLOT_MAGIC;
+    }
+
+    /**
+     * Checks whether the file is written in the {@link StorageMode#APPEND_LOG} layout.
+     *
+     * @param file the file to check
+     * @return true if the file starts with the log header
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private boolean isLogFile(File file) throws IOException {
+        return file.length() >= LOG_HEADER_SIZE && readMagic(file) == LOG_MAGIC;
+    }
+
+    /**
+     * Reads the first four bytes of the file, which identify the layout of log and slot files.
+     *
+     * @param file the file to read, at least four bytes long
+     * @return the first four bytes as an int
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private static int readMagic(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt();
+        }
+    }
+
+    /**
+     * Serializes a single object using {@link #writeObject}.
+     *
+     * @param object the object to serialize
+     * @return serialized bytes
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private byte[] encodeObject(T object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeObject(out, object);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serializes a single UUID using {@link #writeUuid}.
+     *
+     * @param id the UUID to serialize
+     * @return serialized bytes
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private byte[] encodeUuid(UUID id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeUuid(id, out);
         }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Builds a complete log frame.
+     *
+     * @param op      frame operation
+     * @param payload frame payload
+     * @return frame bytes
+     */
+    private static byte[] encodeFrame(byte op, byte[] payload) {
+        return ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length)
+                .put(op)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .array();
+    }
+
+    /**
+     * Computes the CRC32 checksum of a frame payload.
+     *
+     * @param payload frame payload
+     * @return checksum value
+     */
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
     }
 
     /**
@@ -170,4 +2160,57 @@ abstract class DataStreamHandler<T extends Entity> {
      * @throws IOException if an I/O error occurs during writing
      */
     abstract void writeObject(DataOutputStream out, T object) throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * Result of replaying a log file, see {@link #readLog()}.
+     *
+     * @param <T> the type of the replayed objects
+     */
+    private static final class LogScan<T> {
+        /** Live objects keyed by id, in the order they were first inserted */
+        private final Map<UUID, T> objects;
+        /** Offsets of the live put frames, keyed by id */
+        private final Map<UUID, Long> offsets;
+        /** Length of the intact part of the log */
+        private final long length;
+        /** Number of intact frames, batched frames counted one by one */
+        private final long frames;
+        /** Length of the file when it was replayed */
+        private final long fileLength;
+
+        private LogScan(Map<UUID, T> objects, Map<UUID, Long> offsets, long length, long frames, long fileLength) {
+            this.objects = objects;
+            this.offsets = offsets;
+            this.length = length;
+            this.frames = frames;
+            this.fileLength = fileLength;
+        }
+    }
+
+    /**
+     * Result of reading a slot file, see {@link #readSlots()}.
+     *
+     * @param <T> the type of the stored objects
+     */
+    private static final class SlotScan<T> {
+        /** Live objects keyed by id, in slot order */
+        private final Map<UUID, T> objects;
+        /** Slots of the live objects, keyed by id */
+        private final Map<UUID, Long> index;
+        /** Free slots, in ascending order */
+        private final List<Long> freeSlots;
+        /** Number of complete slots */
+        private final long count;
+        /** Length of the file when it was read */
+        private final long fileLength;
+
+        private SlotScan(Map<UUID, T> objects, Map<UUID, Long> index, List<Long> freeSlots, long count,
+                         long fileLength) {
+            this.objects = objects;
+            this.index = index;
+            this.freeSlots = freeSlots;
+            this.count = count;
+            this.fileLength = fileLength;
+        }
+    }
+}
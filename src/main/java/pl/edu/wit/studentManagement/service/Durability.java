@@ -0,0 +1,26 @@
+package pl.edu.wit.studentManagement.service;
+
+/**
+ * Policies deciding when mutations written by a {@link DataStreamHandler} are forced to disk.
+ * <p>
+ * The policy only trades durability of the most recent mutations for throughput, never the integrity
+ * of the file: whole-file rewrites are always synced before they atomically replace the file, and the
+ * write-ahead log protecting in-place slot writes is always forced before a slot is overwritten.
+ */
+enum Durability {
+    /**
+     * Every mutation is forced to disk before it returns. A completed mutation survives a crash
+     * of the operating system or a power failure.
+     */
+    SYNC_EACH,
+    /**
+     * Mutations are forced to disk in groups, once a configured number of them is pending or the oldest
+     * pending one has waited for a configured time. A crash may lose the mutations of the last group.
+     */
+    GROUP_COMMIT,
+    /**
+     * Mutations are never forced and are written out whenever the operating system decides.
+     * They survive a crash of the application, but not of the operating system.
+     */
+    OS_BUFFERED
+}
@@ -0,0 +1,29 @@
+package pl.edu.wit.studentManagement.service;
+
+/**
+ * Text format of exported files.
+ */
+public enum ExportFormat {
+    /** Comma-separated values, as described by RFC 4180 */
+    CSV(Csv.COMMA, "csv"),
+    /** Tab-separated values */
+    TSV(Csv.TAB, "tsv");
+
+    /** Field separator */
+    private final char separator;
+    /** File name extension, without the dot */
+    private final String extension;
+
+    ExportFormat(char separator, String extension) {
+        this.separator = separator;
+        this.extension = extension;
+    }
+
+    char getSeparator() {
+        return separator;
+    }
+
+    String getExtension() {
+        return extension;
+    }
+}
@@ -24,6 +24,10 @@ import java.util.UUID;
  * @author Michał Zawadzki
  */
 class GradeDataStreamHandler extends DataStreamHandler<Grade> {
+    /**
+     * Size of a grade record: four nullable UUIDs (a presence flag and two longs each) and the grade value.
+     */
+    static final int RECORD_SIZE = 4 * (1 + 8 + 8) + 1;
 
     /**
      * Constructs a new GradeDataStreamHandler with the specified file path.
@@ -34,6 +38,17 @@ class GradeDataStreamHandler extends DataStreamHandler<Grade> {
         super(filePath);
     }
 
+    /**
+     * Grade records never exceed {@link #RECORD_SIZE}, which allows storing grades
+     * in {@link StorageMode#FIXED_SLOTS} mode.
+     *
+     * @return {@link #RECORD_SIZE}
+     */
+    @Override
+    int recordSize() {
+        return RECORD_SIZE;
+    }
+
     /**
      * Reads a Grade object from the input stream.
      *
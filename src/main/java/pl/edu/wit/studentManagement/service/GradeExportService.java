@@ -0,0 +1,172 @@
+package pl.edu.wit.studentManagement.service;
+
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+import pl.edu.wit.studentManagement.service.dto.dataExport.ExportResultDto;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service exporting the grade matrices of all subjects and the groups they are assigned to,
+ * e.g. for archiving at the end of a term.
+ * <p>
+ * Every {@link StudentGroupSubjectAssignment} yields one file named after the subject and the group code,
+ * holding the matrix as written by {@link GradeMatrix#write(java.io.Writer, char)}. Matrices are built
+ * through indexes by {@link GradeQueryService#buildGradeMatrix(UUID, UUID)} and written in parallel;
+ * each matrix is streamed to its file and dropped, so only as many matrices as there are threads are held
+ * in memory at a time, and the {@link GradeMatrixCache} of the UI is left untouched.
+ */
+public class GradeExportService {
+    /**
+     * Service building the exported matrices.
+     */
+    private final GradeQueryService gradeQueryService;
+    /**
+     * Data access object for managing StudentGroupSubjectAssignment entities.
+     */
+    private final Dao<StudentGroupSubjectAssignment> studentGroupSubjectAssignmentDao;
+    /**
+     * Data access object for managing Subject entities.
+     */
+    private final Dao<Subject> subjectDao;
+    /**
+     * Data access object for managing StudentGroup entities.
+     */
+    private final Dao<StudentGroup> studentGroupDao;
+
+    /**
+     * Constructs a GradeExportService.
+     *
+     * @param gradeQueryService                 service building the exported matrices
+     * @param studentGroupSubjectAssignmentDao  DAO for StudentGroupSubjectAssignment entities
+     * @param subjectDao                        DAO for Subject entities
+     * @param studentGroupDao                   DAO for StudentGroup entities
+     */
+    GradeExportService(GradeQueryService gradeQueryService,
+                       Dao<StudentGroupSubjectAssignment> studentGroupSubjectAssignmentDao,
+                       Dao<Subject> subjectDao, Dao<StudentGroup> studentGroupDao) {
+        this.gradeQueryService = gradeQueryService;
+        this.studentGroupSubjectAssignmentDao = studentGroupSubjectAssignmentDao;
+        this.subjectDao = subjectDao;
+        this.studentGroupDao = studentGroupDao;
+    }
+
+    /**
+     * Exports the grade matrix of every subject and group assigned to each other, using one thread
+     * per available processor. Existing files of the same name are overwritten.
+     *
+     * @param directory the directory to write the files to, created if it does not exist
+     * @param format    the format of the files
+     * @return summary of the export
+     * @throws ValidationException if a file cannot be written
+     */
+    public ExportResultDto exportGradeMatrices(Path directory, ExportFormat format) throws ValidationException {
+        return exportGradeMatrices(directory, format, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Exports the grade matrix of every subject and group assigned to each other.
+     *
+     * @param directory   the directory to write the files to, created if it does not exist
+     * @param format      the format of the files
+     * @param parallelism number of matrices built and written at the same time
+     * @return summary of the export
+     * @throws ValidationException if a file cannot be written
+     */
+    ExportResultDto exportGradeMatrices(Path directory, ExportFormat format, int parallelism)
+            throws ValidationException {
+        long start = System.nanoTime();
+        Map<Path, StudentGroupSubjectAssignment> files;
+        try {
+            Files.createDirectories(directory);
+            files = plan(directory, format);
+        } catch (IOException e) {
+            throw new ValidationException("export.failed");
+        }
+
+        AtomicLong rows = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "grade-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (var file : files.entrySet()) {
+                var assignment = file.getValue();
+                futures.add(executor.submit(() -> {
+                    var matrix = gradeQueryService.buildGradeMatrix(
+                            assignment.getSubjectId(), assignment.getStudentGroupId());
+                    try (BufferedWriter out = Files.newBufferedWriter(file.getKey(), StandardCharsets.UTF_8)) {
+                        matrix.write(out, format.getSeparator());
+                    }
+                    rows.addAndGet(matrix.getStudentCount());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new ValidationException("export.failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidationException("export.failed");
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ExportResultDto(files.size(), rows.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Names the file of every assignment whose subject and group still exist. Assignments of the same
+     * subject and group are exported once; names that would clash get a numeric suffix.
+     *
+     * @param directory the directory the files are written to
+     * @param format    the format of the files
+     * @return assignments keyed by the path of their file, in the order of the assignments
+     */
+    private Map<Path, StudentGroupSubjectAssignment> plan(Path directory, ExportFormat format) {
+        Map<UUID, Optional<Subject>> subjects = new HashMap<>();
+        Map<UUID, Optional<StudentGroup>> groups = new HashMap<>();
+        Set<IndexKey> exported = new HashSet<>();
+        Map<Path, StudentGroupSubjectAssignment> files = new LinkedHashMap<>();
+        for (var assignment : studentGroupSubjectAssignmentDao.getAll()) {
+            if (!exported.add(IndexKey.of(assignment.getSubjectId(), assignment.getStudentGroupId()))) {
+                continue;
+            }
+            var subject = subjects.computeIfAbsent(assignment.getSubjectId(), subjectDao::get);
+            var group = groups.computeIfAbsent(assignment.getStudentGroupId(), studentGroupDao::get);
+            if (subject.isEmpty() || group.isEmpty()) {
+                continue;
+            }
+            String name = fileName(subject.get().getName() + "_" + group.get().getCode());
+            Path path = directory.resolve(name + "." + format.getExtension());
+            for (int i = 2; files.containsKey(path); i++) {
+                path = directory.resolve(name + "_" + i + "." + format.getExtension());
+            }
+            files.put(path, assignment);
+        }
+        return files;
+    }
+
+    /**
+     * Replaces characters that are not letters, digits, dots, dashes or underscores, so that the name
+     * is valid on every file system.
+     *
+     * @param name the name to sanitize
+     * @return the sanitized name
+     */
+    private static String fileName(String name) {
+        return name.replaceAll("[^\\p{L}\\p{N}._-]", "_");
+    }
+}
@@ -0,0 +1,229 @@
+package pl.edu.wit.studentManagement.service;
+
+import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixRowDto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Mutable, materialized grade matrix of one subject and one student group.
+ * <p>
+ * Columns are the grade criteria of the subject, rows are the students of the group.
+ * The matrix can be changed cell by cell and row by row, which lets {@link GradeMatrixCache}
+ * apply individual changes instead of rebuilding it. {@link #toDto()} takes a snapshot
+ * for the presentation layer, {@link #write(Writer, char)} streams it as delimiter-separated values.
+ * <p>
+ * Cells are stored in primitive arrays per row (grade ids and values), so a matrix does not
+ * hold on to {@link Grade} instances; the remaining grade attributes are implied by the row
+ * and the column.
+ */
+class GradeMatrix {
+    /** The subject whose grades the matrix holds */
+    private final UUID subjectId;
+    /** The student group whose students form the rows */
+    private final UUID groupId;
+    /** Criterion names, in column order */
+    private final List<String> criterionNames = new ArrayList<>();
+    /** Criterion ids, in column order */
+    private final UUID[] criterionIds;
+    /** Column of every criterion, keyed by criterion id */
+    private final Map<UUID, Integer> criterionIndex = new HashMap<>();
+    /** Rows keyed by student id, in display order */
+    private final Map<UUID, Row> rows = new LinkedHashMap<>();
+
+    /**
+     * Constructs a matrix without rows.
+     *
+     * @param subjectId the subject whose grades the matrix holds
+     * @param groupId   the student group whose students form the rows
+     * @param criteria  grade criteria of the subject, in column order
+     */
+    GradeMatrix(UUID subjectId, UUID groupId, List<GradeCriterion> criteria) {
+        this.subjectId = subjectId;
+        this.groupId = groupId;
+        this.criterionIds = new UUID[criteria.size()];
+        for (GradeCriterion criterion : criteria) {
+            criterionIds[criterionNames.size()] = criterion.getId();
+            criterionIndex.put(criterion.getId(), criterionNames.size());
+            criterionNames.add(criterion.getName());
+        }
+    }
+
+    UUID getSubjectId() {
+        return subjectId;
+    }
+
+    UUID getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Appends an empty row for a student, or refreshes the name and album number if the row already exists.
+     *
+     * @param student the student to add
+     */
+    void putStudent(Student student) {
+        var row = rows.get(student.getId());
+        if (row != null) {
+            row.studentName = fullName(student);
+            row.album = student.getAlbum();
+            return;
+        }
+        rows.put(student.getId(), new Row(fullName(student), student.getAlbum(), criterionIds.length));
+    }
+
+    /**
+     * Removes the row of a student.
+     *
+     * @param studentId the id of the student to remove
+     */
+    void removeStudent(UUID studentId) {
+        rows.remove(studentId);
+    }
+
+    /**
+     * Checks whether the matrix has a row for the student.
+     *
+     * @param studentId the id of the student
+     * @return true if the student is in the matrix
+     */
+    boolean hasStudent(UUID studentId) {
+        return rows.containsKey(studentId);
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return number of students in the matrix
+     */
+    int getStudentCount() {
+        return rows.size();
+    }
+
+    /**
+     * Checks whether the matrix has a column for the criterion.
+     *
+     * @param gradeCriterionId the id of the criterion
+     * @return true if the criterion is in the matrix
+     */
+    boolean hasCriterion(UUID gradeCriterionId) {
+        return criterionIndex.containsKey(gradeCriterionId);
+    }
+
+    /**
+     * Stores a grade in its cell. Grades of other subjects, students or criteria are ignored.
+     *
+     * @param grade the grade to store
+     */
+    void putGrade(Grade grade) {
+        if (!Objects.equals(grade.getSubjectId(), subjectId)) {
+            return;
+        }
+        var row = rows.get(grade.getStudentId());
+        var column = criterionIndex.get(grade.getGradeCriterionId());
+        if (row != null && column != null) {
+            row.gradeIds[column] = grade.getId();
+            row.values[column] = grade.getGrade();
+        }
+    }
+
+    /**
+     * Clears the cell of a grade, provided it still holds that grade.
+     *
+     * @param grade the removed grade
+     */
+    void removeGrade(Grade grade) {
+        var row = rows.get(grade.getStudentId());
+        var column = criterionIndex.get(grade.getGradeCriterionId());
+        if (row != null && column != null && grade.getId().equals(row.gradeIds[column])) {
+            row.gradeIds[column] = null;
+            row.values[column] = 0;
+        }
+    }
+
+    /**
+     * Takes a snapshot of the matrix.
+     *
+     * @return DTO representing the current state of the matrix
+     */
+    GradeMatrixDto toDto() {
+        List<GradeMatrixRowDto> rowDtos = new ArrayList<>(rows.size());
+        for (var entry : rows.entrySet()) {
+            var row = entry.getValue();
+            List<GradeDto> grades = new ArrayList<>(criterionIds.length);
+            for (int column = 0; column < criterionIds.length; column++) {
+                var gradeId = row.gradeIds[column];
+                grades.add(gradeId != null
+                        ? new GradeDto(gradeId, subjectId, criterionIds[column], entry.getKey(), row.values[column])
+                        : null);
+            }
+            rowDtos.add(new GradeMatrixRowDto(entry.getKey(), row.studentName, grades));
+        }
+        return new GradeMatrixDto(new ArrayList<>(criterionNames), rowDtos);
+    }
+
+    /**
+     * Writes the matrix as delimiter-separated values: a header of the album number, the student name and
+     * the criterion names, followed by a line per row. Missing grades are written as empty fields.
+     *
+     * @param out       the writer to write to
+     * @param separator the field separator
+     * @throws IOException if writing fails
+     */
+    void write(Writer out, char separator) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append("album").append(separator).append("student");
+        for (String criterionName : criterionNames) {
+            line.append(separator);
+            Csv.appendField(line, criterionName, separator);
+        }
+        out.write(line.append('\n').toString());
+        for (Row row : rows.values()) {
+            line.setLength(0);
+            Csv.appendField(line, row.album, separator);
+            line.append(separator);
+            Csv.appendField(line, row.studentName, separator);
+            for (int column = 0; column < criterionIds.length; column++) {
+                line.append(separator);
+                if (row.gradeIds[column] != null) {
+                    line.append(row.values[column]);
+                }
+            }
+            out.write(line.append('\n').toString());
+        }
+    }
+
+    /**
+     * Returns the name displayed in a student's row.
+     *
+     * @param student the student
+     * @return first and last name separated by a space
+     */
+    private static String fullName(Student student) {
+        return student.getFirstName() + " " + student.getLastName();
+    }
+
+    /**
+     * A single row of the matrix.
+     */
+    private static class Row {
+        /** Full name of the student */
+        private String studentName;
+        /** Album number of the student */
+        private String album;
+        /** Ids of the grades aligned with the columns, {@code null} for missing grades */
+        private final UUID[] gradeIds;
+        /** Grade values aligned with the columns, meaningful only where a grade id is set */
+        private final byte[] values;
+
+        private Row(String studentName, String album, int columns) {
+            this.studentName = studentName;
+            this.album = album;
+            this.gradeIds = new UUID[columns];
+            this.values = new byte[columns];
+        }
+    }
+}
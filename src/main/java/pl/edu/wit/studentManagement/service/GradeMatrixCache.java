@@ -0,0 +1,256 @@
+package pl.edu.wit.studentManagement.service;
+
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Cache of materialized grade matrices keyed by {@code (subjectId, groupId)}.
+ * <p>
+ * A matrix is built once, on first request, and afterwards kept up to date by applying the changes
+ * reported by the grade, student and grade criterion DAOs:
+ * <ul>
+ *   <li>an assigned, changed or deleted grade updates a single cell</li>
+ *   <li>a student joining or leaving a group adds or removes a row; rows of joining students are appended</li>
+ *   <li>a renamed student updates the row label</li>
+ *   <li>a change of the grade criteria of a subject drops the matrices of that subject,
+ *       as their columns are no longer valid</li>
+ * </ul>
+ * When any of the DAOs reloads its file (e.g. after a change made by another application instance)
+ * the whole cache is dropped. Only the most recently used matrices are kept.
+ */
+class GradeMatrixCache {
+    /**
+     * Maximum number of matrices kept in the cache.
+     */
+    private static final int MAX_MATRICES = 64;
+
+    /**
+     * Data access object for managing Grade entities.
+     */
+    private final Dao<Grade> gradeDao;
+    /**
+     * Data access object for managing Student entities.
+     */
+    private final Dao<Student> studentDao;
+    /**
+     * Data access object for managing GradeCriterion entities.
+     */
+    private final Dao<GradeCriterion> gradeCriterionDao;
+    /**
+     * Index of grades by the student they belong to, used to fill rows of students joining a group.
+     */
+    private final DaoIndex<Grade, UUID> gradesByStudent;
+    /**
+     * Function building a matrix from scratch for a subject and a group.
+     */
+    private final BiFunction<UUID, UUID, GradeMatrix> builder;
+    /**
+     * Cached matrices in access order.
+     */
+    private final Map<IndexKey, GradeMatrix> matrices = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<IndexKey, GradeMatrix> eldest) {
+            return size() > MAX_MATRICES;
+        }
+    };
+    /**
+     * Incremented whenever one of the observed DAOs reloads its file.
+     * Updated without locking, as reload notifications are delivered while a DAO is locked.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    /**
+     * Generation the cached matrices were built in.
+     */
+    private long matricesGeneration;
+
+    /**
+     * Constructs the cache and subscribes it to changes of the given DAOs.
+     *
+     * @param gradeDao          DAO for accessing grade records
+     * @param studentDao        DAO for accessing student records
+     * @param gradeCriterionDao DAO for accessing grading criteria
+     * @param builder           function building a matrix from scratch for a subject and a group
+     */
+    GradeMatrixCache(Dao<Grade> gradeDao, Dao<Student> studentDao, Dao<GradeCriterion> gradeCriterionDao,
+                     BiFunction<UUID, UUID, GradeMatrix> builder) {
+        this.gradeDao = gradeDao;
+        this.studentDao = studentDao;
+        this.gradeCriterionDao = gradeCriterionDao;
+        this.builder = builder;
+        this.gradesByStudent = gradeDao.createIndex("studentId", Grade::getStudentId);
+
+        gradeDao.addListener(new DaoListener<>() {
+            @Override
+            public void saved(Grade grade) {
+                gradeChanged(grade);
+            }
+
+            @Override
+            public void updated(Grade grade) {
+                gradeChanged(grade);
+            }
+
+            @Override
+            public void deleted(Grade grade) {
+                gradeDeleted(grade);
+            }
+
+            @Override
+            public void reloaded() {
+                generation.incrementAndGet();
+            }
+        });
+        studentDao.addListener(new DaoListener<>() {
+            @Override
+            public void saved(Student student) {
+                studentChanged(student);
+            }
+
+            @Override
+            public void updated(Student student) {
+                studentChanged(student);
+            }
+
+            @Override
+            public void deleted(Student student) {
+                studentDeleted(student);
+            }
+
+            @Override
+            public void reloaded() {
+                generation.incrementAndGet();
+            }
+        });
+        gradeCriterionDao.addListener(new DaoListener<>() {
+            @Override
+            public void saved(GradeCriterion gradeCriterion) {
+                gradeCriteriaChanged(gradeCriterion);
+            }
+
+            @Override
+            public void updated(GradeCriterion gradeCriterion) {
+                gradeCriteriaChanged(gradeCriterion);
+            }
+
+            @Override
+            public void deleted(GradeCriterion gradeCriterion) {
+                gradeCriteriaChanged(gradeCriterion);
+            }
+
+            @Override
+            public void reloaded() {
+                generation.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Returns the grade matrix for a subject and a group, building it if it is not cached.
+     *
+     * @param subjectId the ID of the subject
+     * @param groupId   the ID of the student group
+     * @return a snapshot of the matrix
+     */
+    synchronized GradeMatrixDto get(UUID subjectId, UUID groupId) {
+        // Reload changed files first, so that the matrices built from them are dropped below
+        // and the build does not observe a reload of its own.
+        gradeDao.refresh();
+        studentDao.refresh();
+        gradeCriterionDao.refresh();
+
+        long currentGeneration = generation.get();
+        if (currentGeneration != matricesGeneration) {
+            matrices.clear();
+            matricesGeneration = currentGeneration;
+        }
+
+        var key = IndexKey.of(subjectId, groupId);
+        var matrix = matrices.get(key);
+        if (matrix == null) {
+            matrix = builder.apply(subjectId, groupId);
+            matrices.put(key, matrix);
+        }
+        return matrix.toDto();
+    }
+
+    /**
+     * Drops all cached matrices.
+     */
+    synchronized void clear() {
+        matrices.clear();
+    }
+
+    /**
+     * Stores an assigned or changed grade in the matrices of its subject.
+     *
+     * @param grade the grade
+     */
+    private synchronized void gradeChanged(Grade grade) {
+        for (GradeMatrix matrix : matrices.values()) {
+            matrix.putGrade(grade);
+        }
+    }
+
+    /**
+     * Clears the cell of a deleted grade in the matrices of its subject.
+     *
+     * @param grade the deleted grade
+     */
+    private synchronized void gradeDeleted(Grade grade) {
+        for (GradeMatrix matrix : matrices.values()) {
+            if (Objects.equals(matrix.getSubjectId(), grade.getSubjectId())) {
+                matrix.removeGrade(grade);
+            }
+        }
+    }
+
+    /**
+     * Moves the row of a student to the matrices of the student's current group
+     * and refreshes its label.
+     *
+     * @param student the saved or updated student
+     */
+    private synchronized void studentChanged(Student student) {
+        List<Grade> studentGrades = null;
+        for (GradeMatrix matrix : matrices.values()) {
+            boolean member = student.getStudentGroupId() != null
+                    && student.getStudentGroupId().equals(matrix.getGroupId());
+            if (!member) {
+                matrix.removeStudent(student.getId());
+                continue;
+            }
+            boolean joined = !matrix.hasStudent(student.getId());
+            matrix.putStudent(student);
+            if (joined) {
+                if (studentGrades == null) {
+                    studentGrades = gradeDao.findByIndex(gradesByStudent, student.getId());
+                }
+                studentGrades.forEach(matrix::putGrade);
+            }
+        }
+    }
+
+    /**
+     * Removes the row of a deleted student.
+     *
+     * @param student the deleted student
+     */
+    private synchronized void studentDeleted(Student student) {
+        for (GradeMatrix matrix : matrices.values()) {
+            matrix.removeStudent(student.getId());
+        }
+    }
+
+    /**
+     * Drops the matrices of the subject whose grade criteria changed.
+     *
+     * @param gradeCriterion the added, changed or removed criterion
+     */
+    private synchronized void gradeCriteriaChanged(GradeCriterion gradeCriterion) {
+        matrices.values().removeIf(matrix -> Objects.equals(matrix.getSubjectId(), gradeCriterion.getSubjectId())
+                || matrix.hasCriterion(gradeCriterion.getId()));
+    }
+}
@@ -1,11 +1,10 @@
 package pl.edu.wit.studentManagement.service;
 
-import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
 import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
-import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixRowDto;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Service providing query operations for retrieving structured grade information.
@@ -15,6 +14,9 @@ import java.util.stream.Collectors;
  * <p>
  * It aggregates data from the {@link Grade}, {@link Student}, and {@link GradeCriterion} entities.
  * This class is read-only and does not persist or modify data.
+ * <p>
+ * Built matrices are cached and kept up to date incrementally as grades, students and
+ * grade criteria change, see {@link GradeMatrixCache}.
  *
  * @author Michał Zawadzki
  */
@@ -31,6 +33,22 @@ public class GradeQueryService {
      * Data access object for managing GradeCriterion entities.
      */
     private final Dao<GradeCriterion> gradeCriterionDao;
+    /**
+     * Cache of built grade matrices.
+     */
+    private final GradeMatrixCache gradeMatrixCache;
+    /**
+     * Index of students by the group they belong to.
+     */
+    private final DaoIndex<Student, UUID> studentsByGroup;
+    /**
+     * Index of grade criteria by the subject they belong to.
+     */
+    private final DaoIndex<GradeCriterion, UUID> gradeCriteriaBySubject;
+    /**
+     * Index of grades by {@code (studentId, subjectId)}.
+     */
+    private final DaoIndex<Grade, IndexKey> gradesByStudentAndSubject;
 
     /**
      * Constructs a new instance of {@code GradeQueryService}.
@@ -43,6 +61,11 @@ public class GradeQueryService {
         this.gradeDao = gradeDao;
         this.studentDao = studentDao;
         this.gradeCriterionDao = gradeCriterionDao;
+        this.gradeMatrixCache = new GradeMatrixCache(gradeDao, studentDao, gradeCriterionDao, this::buildGradeMatrix);
+        this.studentsByGroup = studentDao.createIndex("studentGroupId", Student::getStudentGroupId);
+        this.gradeCriteriaBySubject = gradeCriterionDao.createIndex("subjectId", GradeCriterion::getSubjectId);
+        this.gradesByStudentAndSubject = gradeDao.createIndex("studentId+subjectId",
+                g -> IndexKey.of(g.getStudentId(), g.getSubjectId()));
     }
 
     /**
@@ -60,49 +83,31 @@ public class GradeQueryService {
      * @return a DTO representing the grade matrix
      */
     public GradeMatrixDto getGradeMatrixForSubjectAndGroup(UUID subjectId, UUID groupId) {
-        var students = studentDao.getAll()
-                .stream()
-                .filter(s -> Objects.equals(s.getStudentGroupId(), groupId))
-                .collect(Collectors.toList());
-
-        var gradeCriteria = gradeCriterionDao.getAll()
-                .stream()
-                .filter(s -> Objects.equals(s.getSubjectId(), subjectId))
-                .collect(Collectors.toList());
-
-        var grades = gradeDao.getAll()
-                .stream()
-                .filter(s -> Objects.equals(s.getSubjectId(), subjectId))
-                .collect(Collectors.toList());
+        return gradeMatrixCache.get(subjectId, groupId);
+    }
 
-        Map<UUID, Integer> criterionIndex = new HashMap<>();
-        List<String> criterionNames = new ArrayList<>();
-        for (int i = 0; i < gradeCriteria.size(); i++) {
-            criterionIndex.put(gradeCriteria.get(i).getId(), i);
-            criterionNames.add(gradeCriteria.get(i).getName());
+    /**
+     * Builds the grade matrix of a subject and a group from scratch, looking up only the group's students,
+     * the subject's criteria and the grades of these students in the subject.
+     * <p>
+     * The cost does not depend on the total number of grades, which matters when matrices are built for
+     * many subject and group pairs, e.g. by {@link GradeExportService}. Used both by the
+     * {@link GradeMatrixCache} and by the export; matrices built by a direct call are not cached.
+     *
+     * @param subjectId the ID of the subject
+     * @param groupId   the ID of the student group
+     * @return the materialized matrix
+     */
+    GradeMatrix buildGradeMatrix(UUID subjectId, UUID groupId) {
+        var matrix = new GradeMatrix(subjectId, groupId, gradeCriterionDao.findByIndex(gradeCriteriaBySubject, subjectId));
+        List<IndexKey> gradeKeys = new ArrayList<>();
+        for (Student student : studentDao.findByIndex(studentsByGroup, groupId)) {
+            matrix.putStudent(student);
+            gradeKeys.add(IndexKey.of(student.getId(), subjectId));
         }
-
-        List<GradeMatrixRowDto> rows = new ArrayList<>();
-        for (Student student : students) {
-            var gradesArray = new GradeDto[gradeCriteria.size()];
-            Arrays.fill(gradesArray, null);
-
-            for (Grade grade : grades) {
-                if (grade.getStudentId().equals(student.getId())) {
-                    var index = criterionIndex.get(grade.getGradeCriterionId());
-                    if (index != null) {
-                        gradesArray[index] = GradeMapper.toDto(grade);
-                    }
-                }
-            }
-
-            rows.add(new GradeMatrixRowDto(
-                    student.getId(),
-                    student.getFirstName() + " " + student.getLastName(),
-                    Arrays.asList(gradesArray)
-            ));
+        for (Grade grade : gradeDao.findByIndexKeys(gradesByStudentAndSubject, gradeKeys)) {
+            matrix.putGrade(grade);
         }
-
-        return new GradeMatrixDto(criterionNames, rows);
+        return matrix;
     }
 }
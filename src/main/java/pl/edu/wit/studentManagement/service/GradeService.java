@@ -4,7 +4,12 @@ import pl.edu.wit.studentManagement.service.dto.grade.AssignGradeDto;
 import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
 import pl.edu.wit.studentManagement.exceptions.ValidationException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Service layer for managing {@link Grade} operations such as assignment, update, and deletion.
@@ -34,6 +39,10 @@ public class GradeService {
      * Data access object for managing Subject entities
      */
     private final Dao<Subject> subjectDao;
+    /**
+     * Index of grades by {@code (studentId, gradeCriterionId)}, which identifies at most one grade
+     */
+    private final DaoIndex<Grade, IndexKey> gradesByStudentAndCriterion;
 
     /**
      * Constructs a new {@code GradeService} with the required DAOs.
@@ -48,6 +57,8 @@ public class GradeService {
         this.studentDao = studentDao;
         this.gradeCriterionDao = gradeCriterionDao;
         this.subjectDao = subjectDao;
+        this.gradesByStudentAndCriterion = gradeDao.createIndex("studentId+gradeCriterionId",
+                g -> IndexKey.of(g.getStudentId(), g.getGradeCriterionId()));
     }
 
     /**
@@ -73,17 +84,17 @@ public class GradeService {
         }
 
         // check if the grade is being updated or a new one has to be added
-        var grade = gradeDao.getAll()
-                .stream()
-                .filter(g -> g.getStudentId().equals(assignGradeDto.getStudentId()) &&
-                        g.getGradeCriterionId().equals(assignGradeDto.getGradeCriterionId()))
-                .findFirst();
+        var grade = gradeDao.findFirstByIndex(gradesByStudentAndCriterion,
+                IndexKey.of(assignGradeDto.getStudentId(), assignGradeDto.getGradeCriterionId()));
 
         if (grade.isPresent()) {
-            // update existing grade
-            grade.get().setGrade(assignGradeDto.getGrade());
-            gradeDao.update(grade.get());
-            return GradeMapper.toDto(grade.get());
+            // update existing grade; the stored grade is copied, so that the cached grade
+            // changes only once the update is written
+            var stored = grade.get();
+            var updated = new Grade(stored.getId(), stored.getSubjectId(), stored.getGradeCriterionId(),
+                    stored.getStudentId(), assignGradeDto.getGrade());
+            gradeDao.update(updated);
+            return GradeMapper.toDto(updated);
         }
 
         var newGrade = new Grade(subject.getId(), gradeCriterion.getId(), student.getId(), assignGradeDto.getGrade());
@@ -92,6 +103,67 @@ public class GradeService {
         return GradeMapper.toDto(newGrade);
     }
 
+    /**
+     * Assigns many grades at once, e.g. when uploading the grades of a whole term.
+     *
+     * <p>All assignments are validated as in {@link #assignGrade(AssignGradeDto)} before anything is changed.
+     * New grades are then saved and existing grades updated in a single transaction, so the grade file is
+     * written once and either all grades are assigned or none. If the same student and criterion occur
+     * more than once, the last assignment wins.
+     *
+     * @param assignGradeDtos the DTOs containing the assignment details
+     * @return {@link GradeDto}s representing the assigned grades, in the order of the DTOs
+     * @throws ValidationException if referenced entities do not exist, a grade value is invalid or saving fails
+     */
+    public List<GradeDto> assignGrades(List<AssignGradeDto> assignGradeDtos) throws ValidationException {
+        Map<UUID, Student> students = new HashMap<>();
+        Map<UUID, Subject> subjects = new HashMap<>();
+        Map<UUID, GradeCriterion> gradeCriteria = new HashMap<>();
+        for (AssignGradeDto dto : assignGradeDtos) {
+            if (!students.containsKey(dto.getStudentId())) {
+                students.put(dto.getStudentId(), studentDao.get(dto.getStudentId())
+                        .orElseThrow(() -> new ValidationException("student.notExists")));
+            }
+            if (!subjects.containsKey(dto.getSubjectId())) {
+                subjects.put(dto.getSubjectId(), subjectDao.get(dto.getSubjectId())
+                        .orElseThrow(() -> new ValidationException("subject.notExists")));
+            }
+            if (!gradeCriteria.containsKey(dto.getGradeCriterionId())) {
+                gradeCriteria.put(dto.getGradeCriterionId(), gradeCriterionDao.get(dto.getGradeCriterionId())
+                        .orElseThrow(() -> new ValidationException("gradeCriterion.notExists")));
+            }
+            var gradeCriterion = gradeCriteria.get(dto.getGradeCriterionId());
+            if (dto.getGrade() < 0 || dto.getGrade() > gradeCriterion.getMaxPoints()) {
+                throw new ValidationException("grade.wrongGrade");
+            }
+        }
+
+        var transaction = new Transaction();
+        Map<IndexKey, Grade> assigned = new HashMap<>();
+        List<Grade> result = new ArrayList<>();
+        for (AssignGradeDto dto : assignGradeDtos) {
+            var key = IndexKey.of(dto.getStudentId(), dto.getGradeCriterionId());
+            var grade = assigned.get(key);
+            if (grade == null) {
+                grade = gradeDao.findFirstByIndex(gradesByStudentAndCriterion, key).orElse(null);
+            }
+            if (grade != null) {
+                // Stored grades are copied, so that a failed commit leaves the cached grade untouched
+                grade = new Grade(grade.getId(), grade.getSubjectId(), grade.getGradeCriterionId(),
+                        grade.getStudentId(), dto.getGrade());
+                transaction.update(gradeDao, grade);
+            } else {
+                grade = new Grade(dto.getSubjectId(), dto.getGradeCriterionId(), dto.getStudentId(), dto.getGrade());
+                transaction.save(gradeDao, grade);
+            }
+            assigned.put(key, grade);
+            result.add(grade);
+        }
+        transaction.commit();
+
+        return result.stream().map(GradeMapper::toDto).collect(Collectors.toList());
+    }
+
     /**
      * Deletes a grade by its identifier.
      *
@@ -0,0 +1,46 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forces pending mutations of {@link DataStreamHandler} files written with {@link Durability#GROUP_COMMIT}
+ * to disk on a single background thread.
+ * <p>
+ * A handler schedules itself when the first mutation of a new group is written, so a group is forced no
+ * later than the configured interval after its first mutation, even if no further mutations follow.
+ * If forcing fails, it is retried after the same interval until it succeeds.
+ * The thread is a daemon and never keeps the application alive.
+ */
+final class GroupCommitter {
+    /**
+     * Executor shared by all handlers.
+     */
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "group-committer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private GroupCommitter() {
+    }
+
+    /**
+     * Schedules forcing the given handler's pending mutations to disk.
+     *
+     * @param handler      the handler with pending mutations
+     * @param delayMillis  delay after which the mutations are forced, in milliseconds
+     */
+    static void schedule(DataStreamHandler<?> handler, long delayMillis) {
+        executor.schedule(() -> {
+            try {
+                handler.sync();
+            } catch (IOException e) {
+                // the group stays pending and later mutations do not schedule it again, so retry here
+                schedule(handler, delayMillis);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
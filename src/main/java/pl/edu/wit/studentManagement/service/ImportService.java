@@ -0,0 +1,432 @@
+package pl.edu.wit.studentManagement.service;
+
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+import pl.edu.wit.studentManagement.service.dto.dataImport.ImportResultDto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Service importing students and grades in bulk from CSV files, e.g. when onboarding a new term.
+ * <p>
+ * Files are streamed line by line, so only a single batch of rows is held in memory at a time. The first
+ * line is a header naming the columns, in any order and case. Every row is validated like an entity created
+ * through the other services; album numbers, group codes, subject names and criterion names are resolved
+ * through DAO indexes. Valid rows are committed in batches of {@link #BATCH_SIZE} rows, each written to the
+ * files at once (see {@link Dao#saveAll(Collection)} and {@link Transaction}).
+ * <p>
+ * A row that cannot be imported does not abort the import. It is written to an error file as
+ * {@code line,error,row}, where {@code error} is the message key of the failure and {@code row} the original
+ * line. If committing a batch fails, all its rows are reported this way.
+ */
+public class ImportService {
+    /** Number of rows committed at once */
+    static final int BATCH_SIZE = 5000;
+
+    /** Column holding the first name of a student */
+    static final String FIRST_NAME = "firstName";
+    /** Column holding the last name of a student */
+    static final String LAST_NAME = "lastName";
+    /** Column holding the album number identifying a student */
+    static final String ALBUM = "album";
+    /** Optional column holding the code of the group a student is assigned to */
+    static final String GROUP = "group";
+    /** Column holding the name of the subject of a grade */
+    static final String SUBJECT = "subject";
+    /** Column holding the name of the grade criterion, unique within its subject */
+    static final String CRITERION = "criterion";
+    /** Column holding the grade value */
+    static final String GRADE = "grade";
+
+    private final Dao<Student> studentDao;
+    private final Dao<StudentGroup> studentGroupDao;
+    private final Dao<Subject> subjectDao;
+    private final Dao<GradeCriterion> gradeCriterionDao;
+    private final Dao<Grade> gradeDao;
+
+    /** Unique index of students by album number folded to upper case */
+    private final DaoIndex<Student, String> studentsByAlbum;
+    /** Index of student groups by code */
+    private final DaoIndex<StudentGroup, String> studentGroupsByCode;
+    /** Index of subjects by name */
+    private final DaoIndex<Subject, String> subjectsByName;
+    /** Index of grade criteria by {@code (subjectId, name)} */
+    private final DaoIndex<GradeCriterion, IndexKey> gradeCriteriaBySubjectAndName;
+    /** Index of grades by {@code (studentId, gradeCriterionId)}, which identifies at most one grade */
+    private final DaoIndex<Grade, IndexKey> gradesByStudentAndCriterion;
+
+    /**
+     * Constructs an ImportService with the required DAOs.
+     *
+     * @param studentDao        DAO for Student entities
+     * @param studentGroupDao   DAO for StudentGroup entities
+     * @param subjectDao        DAO for Subject entities
+     * @param gradeCriterionDao DAO for GradeCriterion entities
+     * @param gradeDao          DAO for Grade entities
+     */
+    ImportService(Dao<Student> studentDao, Dao<StudentGroup> studentGroupDao, Dao<Subject> subjectDao,
+                  Dao<GradeCriterion> gradeCriterionDao, Dao<Grade> gradeDao) {
+        this.studentDao = studentDao;
+        this.studentGroupDao = studentGroupDao;
+        this.subjectDao = subjectDao;
+        this.gradeCriterionDao = gradeCriterionDao;
+        this.gradeDao = gradeDao;
+        this.studentsByAlbum = StudentService.studentsByAlbum(studentDao);
+        this.studentGroupsByCode = studentGroupDao.createIndex("code", StudentGroup::getCode);
+        this.subjectsByName = subjectDao.createIndex("name", Subject::getName);
+        this.gradeCriteriaBySubjectAndName = gradeCriterionDao.createIndex("subjectId+name",
+                c -> IndexKey.of(c.getSubjectId(), c.getName()));
+        this.gradesByStudentAndCriterion = gradeDao.createIndex("studentId+gradeCriterionId",
+                g -> IndexKey.of(g.getStudentId(), g.getGradeCriterionId()));
+    }
+
+    /**
+     * Imports new students from a CSV file with the columns {@code firstName}, {@code lastName}, {@code album}
+     * and optionally {@code group}, the code of the group the student is assigned to.
+     * <p>
+     * Rows whose album number is already taken, by a stored student or an earlier row, are rejected.
+     *
+     * @param source    the CSV file to import
+     * @param errorFile the file rejected rows are written to, created only if a row is rejected
+     * @return summary of the import
+     * @throws ValidationException if the file cannot be read or its header lacks a required column
+     */
+    public ImportResultDto importStudents(Path source, Path errorFile) throws ValidationException {
+        return run(source, errorFile, List.of(FIRST_NAME, LAST_NAME, ALBUM), new StudentBatch());
+    }
+
+    /**
+     * Imports grades from a CSV file with the columns {@code album}, {@code subject}, {@code criterion} and
+     * {@code grade}, identifying the student by album number, the subject by name and the criterion by its
+     * name within the subject.
+     * <p>
+     * As in {@link GradeService#assignGrade}, a grade the student already has for the criterion is updated.
+     * If the same student and criterion occur more than once, the last row wins.
+     *
+     * @param source    the CSV file to import
+     * @param errorFile the file rejected rows are written to, created only if a row is rejected
+     * @return summary of the import
+     * @throws ValidationException if the file cannot be read or its header lacks a required column
+     */
+    public ImportResultDto importGrades(Path source, Path errorFile) throws ValidationException {
+        return run(source, errorFile, List.of(ALBUM, SUBJECT, CRITERION, GRADE), new GradeBatch());
+    }
+
+    /**
+     * Streams a file through a batch, committing it whenever it is full and at the end of the file.
+     *
+     * @param source    the CSV file to import
+     * @param errorFile the file rejected rows are written to
+     * @param required  names of the columns the header must contain
+     * @param batch     the batch validating and committing rows
+     * @return summary of the import
+     * @throws ValidationException if the file cannot be read or its header lacks a required column
+     */
+    private ImportResultDto run(Path source, Path errorFile, List<String> required, Batch batch)
+            throws ValidationException {
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             ErrorWriter errors = new ErrorWriter(errorFile)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new ValidationException("import.header.invalid");
+            }
+            batch.columns = columns(header, required);
+
+            long read = 0;
+            long imported = 0;
+            long lineNumber = 1;
+            List<Long> pendingLines = new ArrayList<>();
+            List<String> pendingRows = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                read++;
+                try {
+                    batch.add(parse(line, batch.columns));
+                    pendingLines.add(lineNumber);
+                    pendingRows.add(line);
+                } catch (ValidationException e) {
+                    errors.write(lineNumber, e.getMessageKey(), line);
+                }
+                if (pendingRows.size() >= BATCH_SIZE) {
+                    imported += commit(batch, pendingLines, pendingRows, errors);
+                }
+            }
+            imported += commit(batch, pendingLines, pendingRows, errors);
+            return new ImportResultDto(read, imported, errors.count, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new ValidationException("import.failed");
+        }
+    }
+
+    /**
+     * Commits a batch and clears the pending rows, reporting all of them if the commit fails.
+     *
+     * @param batch        the batch to commit
+     * @param pendingLines line numbers of the rows in the batch
+     * @param pendingRows  the rows in the batch
+     * @param errors       writer of the error file
+     * @return number of imported rows
+     * @throws IOException if the error file cannot be written
+     */
+    private static int commit(Batch batch, List<Long> pendingLines, List<String> pendingRows, ErrorWriter errors)
+            throws IOException {
+        int size = pendingRows.size();
+        if (size == 0) {
+            return 0;
+        }
+        try {
+            batch.commit();
+        } catch (ValidationException e) {
+            for (int i = 0; i < size; i++) {
+                errors.write(pendingLines.get(i), e.getMessageKey(), pendingRows.get(i));
+            }
+            size = 0;
+        } finally {
+            batch.clear();
+            pendingLines.clear();
+            pendingRows.clear();
+        }
+        return size;
+    }
+
+    /**
+     * Resolves the positions of the columns named in the header.
+     *
+     * @param header   the header line
+     * @param required names of the columns the header must contain
+     * @return column positions keyed by lower-cased column name
+     * @throws ValidationException if the header is malformed or lacks a required column
+     */
+    private static Map<String, Integer> columns(String header, List<String> required) throws ValidationException {
+        // A byte order mark is not part of the first column name
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        try {
+            List<String> names = Csv.parse(header, Csv.COMMA);
+            for (int i = 0; i < names.size(); i++) {
+                columns.putIfAbsent(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("import.header.invalid");
+        }
+        for (String column : required) {
+            if (!columns.containsKey(column.toLowerCase(Locale.ROOT))) {
+                throw new ValidationException("import.header.invalid");
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Splits a row into its fields.
+     *
+     * @param line    the row
+     * @param columns column positions resolved from the header
+     * @return trimmed fields of the row
+     * @throws ValidationException if the row is malformed or has fewer fields than the header
+     */
+    private static List<String> parse(String line, Map<String, Integer> columns) throws ValidationException {
+        List<String> fields;
+        try {
+            fields = Csv.parse(line, Csv.COMMA);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("import.row.malformed");
+        }
+        for (int position : columns.values()) {
+            if (position >= fields.size()) {
+                throw new ValidationException("import.row.malformed");
+            }
+        }
+        fields.replaceAll(String::trim);
+        return fields;
+    }
+
+    /**
+     * Rows validated but not yet committed.
+     */
+    private abstract static class Batch {
+        /** Column positions keyed by lower-cased column name */
+        Map<String, Integer> columns;
+
+        /**
+         * Returns the value of a column.
+         *
+         * @param fields the fields of the row
+         * @param column the name of the column
+         * @return the value, or an empty string if the header has no such column
+         */
+        String field(List<String> fields, String column) {
+            Integer position = columns.get(column.toLowerCase(Locale.ROOT));
+            return position == null ? "" : fields.get(position);
+        }
+
+        /**
+         * Validates a row and adds it to the batch.
+         *
+         * @param fields the fields of the row
+         * @throws ValidationException if the row cannot be imported, in which case the batch is unchanged
+         */
+        abstract void add(List<String> fields) throws ValidationException;
+
+        /**
+         * Writes all rows of the batch at once.
+         *
+         * @throws ValidationException if writing fails, in which case nothing is written
+         */
+        abstract void commit() throws ValidationException;
+
+        /**
+         * Empties the batch.
+         */
+        abstract void clear();
+    }
+
+    /**
+     * Batch of new students.
+     */
+    private final class StudentBatch extends Batch {
+        private final List<Student> students = new ArrayList<>();
+        /** Folded album numbers of the students in the batch */
+        private final Set<String> albums = new HashSet<>();
+
+        @Override
+        void add(List<String> fields) throws ValidationException {
+            var student = new Student(field(fields, FIRST_NAME), field(fields, LAST_NAME), field(fields, ALBUM));
+            student.validate();
+            if (albums.contains(student.getAlbumKey())
+                    || studentDao.countByIndex(studentsByAlbum, student.getAlbumKey()) > 0) {
+                throw new ValidationException("student.album.exists");
+            }
+            String groupCode = field(fields, GROUP);
+            if (!groupCode.isEmpty()) {
+                var group = studentGroupDao.findFirstByIndex(studentGroupsByCode, groupCode)
+                        .orElseThrow(() -> new ValidationException("studentGroup.notExists"));
+                student.setStudentGroupId(group.getId());
+            }
+            students.add(student);
+            albums.add(student.getAlbumKey());
+        }
+
+        @Override
+        void commit() throws ValidationException {
+            studentDao.saveAll(students);
+        }
+
+        @Override
+        void clear() {
+            students.clear();
+            albums.clear();
+        }
+    }
+
+    /**
+     * Batch of new and updated grades.
+     */
+    private final class GradeBatch extends Batch {
+        /** Grades of the batch keyed by {@code (studentId, gradeCriterionId)} */
+        private final Map<IndexKey, Grade> grades = new LinkedHashMap<>();
+        /** Ids of the grades in the batch that are not stored yet */
+        private final Set<UUID> newGrades = new HashSet<>();
+
+        @Override
+        void add(List<String> fields) throws ValidationException {
+            var student = studentDao.findFirstByIndex(studentsByAlbum, field(fields, ALBUM).toUpperCase(Locale.ROOT))
+                    .orElseThrow(() -> new ValidationException("student.notExists"));
+            var subject = subjectDao.findFirstByIndex(subjectsByName, field(fields, SUBJECT))
+                    .orElseThrow(() -> new ValidationException("subject.notExists"));
+            var gradeCriterion = gradeCriterionDao.findFirstByIndex(gradeCriteriaBySubjectAndName,
+                            IndexKey.of(subject.getId(), field(fields, CRITERION)))
+                    .orElseThrow(() -> new ValidationException("gradeCriterion.notExists"));
+
+            byte value;
+            try {
+                value = Byte.parseByte(field(fields, GRADE));
+            } catch (NumberFormatException e) {
+                throw new ValidationException("grade.wrongFormat");
+            }
+            if (value < 0 || value > gradeCriterion.getMaxPoints()) {
+                throw new ValidationException("grade.wrongGrade");
+            }
+
+            var key = IndexKey.of(student.getId(), gradeCriterion.getId());
+            var grade = grades.get(key);
+            if (grade == null) {
+                grade = gradeDao.findFirstByIndex(gradesByStudentAndCriterion, key).orElse(null);
+            }
+            if (grade == null) {
+                grade = new Grade(subject.getId(), gradeCriterion.getId(), student.getId(), value);
+                grade.validate();
+                newGrades.add(grade.getId());
+            } else {
+                // Stored grades are copied, so that a failed commit leaves the cached grade untouched
+                grade = new Grade(grade.getId(), grade.getSubjectId(), grade.getGradeCriterionId(),
+                        grade.getStudentId(), value);
+                grade.validate();
+            }
+            grades.put(key, grade);
+        }
+
+        @Override
+        void commit() throws ValidationException {
+            var transaction = new Transaction();
+            for (Grade grade : grades.values()) {
+                if (newGrades.contains(grade.getId())) {
+                    transaction.save(gradeDao, grade);
+                } else {
+                    transaction.update(gradeDao, grade);
+                }
+            }
+            transaction.commit();
+        }
+
+        @Override
+        void clear() {
+            grades.clear();
+            newGrades.clear();
+        }
+    }
+
+    /**
+     * Writer of the error file, which is created when the first rejected row is written.
+     */
+    private static final class ErrorWriter implements AutoCloseable {
+        private final Path path;
+        private BufferedWriter writer;
+        /** Number of rejected rows written */
+        long count;
+
+        ErrorWriter(Path path) {
+            this.path = path;
+        }
+
+        void write(long lineNumber, String error, String row) throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                writer.write(Csv.format(List.of("line", "error", "row"), Csv.COMMA));
+                writer.newLine();
+            }
+            writer.write(Csv.format(List.of(Long.toString(lineNumber), error, row), Csv.COMMA));
+            writer.newLine();
+            count++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable composite key for {@link DaoIndex}, e.g. {@code (studentId, gradeCriterionId)}.
+ * <p>
+ * Two keys are equal when all their parts are equal; parts may be {@code null}.
+ */
+final class IndexKey {
+    /**
+     * The parts the key is composed of.
+     */
+    private final Object[] parts;
+
+    private IndexKey(Object[] parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * Creates a key composed of the given parts.
+     *
+     * @param parts key parts, in order
+     * @return the composite key
+     */
+    static IndexKey of(Object... parts) {
+        return new IndexKey(parts.clone());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IndexKey)) return false;
+        return Arrays.equals(parts, ((IndexKey) o).parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(parts);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(parts);
+    }
+}
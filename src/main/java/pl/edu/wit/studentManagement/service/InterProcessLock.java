@@ -0,0 +1,364 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Advisory lock shared by all processes accessing a data file, e.g. several instances of the application
+ * working on the same network-mounted data directory.
+ * <p>
+ * The lock is taken with {@link FileChannel#lock(long, long, boolean)} on a sidecar {@code .lock} file
+ * rather than on the data file itself, as the data file is replaced whenever it is rewritten and a lock
+ * on the replaced file would no longer exclude anybody. Readers take a shared lock, writers an exclusive
+ * one. Locks are acquired with a bounded wait; a lock that cannot be acquired in time fails with a
+ * {@link LockTimeoutException} instead of blocking the application indefinitely.
+ * <p>
+ * File locks are held on behalf of the whole JVM, and a JVM may not request overlapping locks on the
+ * same file twice. There is therefore one instance per lock file (see {@link #forFile(Path)}), which
+ * coordinates the threads of this JVM with a read-write lock and holds a single file lock for all of them.
+ * <p>
+ * The first eight bytes of the lock file hold a change counter incremented by every writer before it
+ * releases the exclusive lock. Handlers compare it with the value they last saw to detect that another
+ * process has changed the data file, even where its length stayed the same (e.g. an in-place slot write).
+ */
+class InterProcessLock {
+    /** Interval at which an unavailable file lock is tried again, in milliseconds */
+    private static final long RETRY_MILLIS = 10;
+
+    /** Instances keyed by the absolute path of their lock file */
+    private static final Map<Path, InterProcessLock> LOCKS = new HashMap<>();
+
+    /**
+     * Path of the lock file.
+     */
+    private final Path path;
+
+    /**
+     * Coordinates the threads of this JVM before the file lock is requested.
+     */
+    private final ReentrantReadWriteLock local = new ReentrantReadWriteLock();
+
+    /**
+     * Channel of the lock file, open while the file lock is held.
+     */
+    private FileChannel channel;
+
+    /**
+     * Read-only channel of the lock file used by {@link #readChangeCount()}, opened on the first read
+     * and kept open, {@code null} until the lock file exists. It is never closed, as on some systems
+     * closing any channel of a file releases all locks the JVM holds on it.
+     */
+    private volatile FileChannel counterChannel;
+
+    /**
+     * Guards opening of {@link #counterChannel}.
+     */
+    private final Object counterChannelLock = new Object();
+
+    /**
+     * File lock held on behalf of this JVM, {@code null} if none is held.
+     */
+    private FileLock fileLock;
+
+    /**
+     * Number of threads holding the shared lock.
+     */
+    private int sharedHolders;
+
+    /**
+     * Change counter read from the lock file when the file lock was acquired.
+     */
+    private long changeCount;
+
+    /**
+     * Whether the change counter has been incremented since the exclusive lock was acquired.
+     */
+    private boolean changed;
+
+    /**
+     * Constructs a lock on the given lock file.
+     *
+     * @param path path of the lock file
+     */
+    private InterProcessLock(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the lock of the given lock file, shared by all handlers of this JVM using that file.
+     *
+     * @param path path of the lock file
+     * @return the lock
+     */
+    static synchronized InterProcessLock forFile(Path path) {
+        return LOCKS.computeIfAbsent(path.toAbsolutePath().normalize(), InterProcessLock::new);
+    }
+
+    /**
+     * Returns the path of the lock file.
+     *
+     * @return lock file path
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Acquires the shared lock. A thread already holding the exclusive lock acquires it right away.
+     *
+     * @param timeoutMillis maximum time to wait, in milliseconds
+     * @throws LockTimeoutException if the lock is not acquired in time
+     * @throws IOException          if the lock file cannot be opened or locked
+     */
+    void lockShared(long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        acquire(local.readLock(), timeoutMillis);
+        if (local.isWriteLockedByCurrentThread()) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                if (sharedHolders == 0) {
+                    lockFile(true, deadline, timeoutMillis);
+                }
+                sharedHolders++;
+            }
+        } catch (IOException | RuntimeException e) {
+            local.readLock().unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the shared lock.
+     */
+    void unlockShared() {
+        try {
+            if (!local.isWriteLockedByCurrentThread()) {
+                synchronized (this) {
+                    if (--sharedHolders == 0) {
+                        unlockFile();
+                    }
+                }
+            }
+        } finally {
+            local.readLock().unlock();
+        }
+    }
+
+    /**
+     * Acquires the exclusive lock. The lock is reentrant, but cannot be acquired while holding the shared lock.
+     *
+     * @param timeoutMillis maximum time to wait, in milliseconds
+     * @throws LockTimeoutException if the lock is not acquired in time
+     * @throws IOException          if the lock file cannot be opened or locked
+     */
+    void lockExclusive(long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        acquire(local.writeLock(), timeoutMillis);
+        if (local.getWriteHoldCount() > 1) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                lockFile(false, deadline, timeoutMillis);
+            }
+        } catch (IOException | RuntimeException e) {
+            local.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the exclusive lock. If the data file has been changed while the outermost exclusive lock
+     * was held, see {@link #markChanged()}, the change counter is written to the lock file first.
+     *
+     * @throws IOException if the change counter cannot be written; the lock is released nevertheless
+     */
+    void unlockExclusive() throws IOException {
+        try {
+            if (local.getWriteHoldCount() == 1) {
+                synchronized (this) {
+                    try {
+                        if (changed) {
+                            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, changeCount);
+                            while (buffer.hasRemaining()) {
+                                channel.write(buffer, buffer.position());
+                            }
+                            channel.force(false);
+                        }
+                    } finally {
+                        changed = false;
+                        unlockFile();
+                    }
+                }
+            }
+        } finally {
+            local.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the data file has been changed, incrementing the change counter. The counter is
+     * written to the lock file when the exclusive lock is released. Must be called while holding the
+     * exclusive lock.
+     *
+     * @return the incremented change counter
+     */
+    synchronized long markChanged() {
+        changed = true;
+        return ++changeCount;
+    }
+
+    /**
+     * Returns the change counter of the lock file, as read when the file lock was acquired and
+     * incremented by this JVM since. Must be called while holding the lock.
+     *
+     * @return the change counter
+     */
+    synchronized long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Reads the change counter from the lock file without locking, as last written by any process.
+     * A counter being written concurrently may be read torn, which only makes a caller comparing it
+     * with a value it saw before treat the data file as changed. The counter is read through a channel
+     * kept open, so that frequent checks do not open and close the lock file each time.
+     *
+     * @return the change counter, 0 if the lock file does not exist or is shorter than the counter,
+     * -1 if it cannot be read
+     */
+    long readChangeCount() {
+        try {
+            FileChannel file = counterChannel();
+            if (file == null) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            while (buffer.hasRemaining() && file.read(buffer, buffer.position()) >= 0) {
+                // read until the counter is complete or the file ends
+            }
+            return buffer.hasRemaining() ? 0 : buffer.getLong(0);
+        } catch (ClosedChannelException e) {
+            // closed by an interrupt of a reading thread; the next read opens the file again
+            counterChannel = null;
+            return -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the channel used to read the change counter, opening it if needed.
+     *
+     * @return the channel, {@code null} if the lock file does not exist yet
+     * @throws IOException if the lock file cannot be opened
+     */
+    private FileChannel counterChannel() throws IOException {
+        FileChannel file = counterChannel;
+        if (file == null) {
+            synchronized (counterChannelLock) {
+                file = counterChannel;
+                if (file == null) {
+                    try {
+                        file = FileChannel.open(path, StandardOpenOption.READ);
+                    } catch (NoSuchFileException e) {
+                        return null;
+                    }
+                    counterChannel = file;
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Acquires one of the local locks with a bounded wait.
+     *
+     * @param lock          the lock to acquire
+     * @param timeoutMillis maximum time to wait, in milliseconds
+     * @throws LockTimeoutException   if the lock is not acquired in time
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    private void acquire(Lock lock, long timeoutMillis) throws IOException {
+        try {
+            if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new LockTimeoutException(path, timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + path);
+        }
+    }
+
+    /**
+     * Opens the lock file and locks it, retrying until the deadline while another process holds
+     * a conflicting lock, then reads the change counter.
+     *
+     * @param shared        true for a shared lock, false for an exclusive one
+     * @param deadline      {@link System#nanoTime()} after which waiting fails
+     * @param timeoutMillis the timeout the deadline was derived from, for the error message
+     * @throws IOException if the lock is not acquired in time or the file cannot be opened or locked
+     */
+    private void lockFile(boolean shared, long deadline, long timeoutMillis) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            while (true) {
+                try {
+                    fileLock = channel.tryLock(0, Long.MAX_VALUE, shared);
+                } catch (OverlappingFileLockException e) {
+                    // held by code of this JVM that does not go through this class
+                    fileLock = null;
+                }
+                if (fileLock != null) {
+                    break;
+                }
+                if (System.nanoTime() >= deadline) {
+                    throw new LockTimeoutException(path, timeoutMillis);
+                }
+                Thread.sleep(RETRY_MILLIS);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                // read until the counter is complete or the file ends
+            }
+            changeCount = buffer.hasRemaining() ? 0 : buffer.getLong(0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlockFile();
+            throw new InterruptedIOException("Interrupted while waiting for " + path);
+        } catch (IOException | RuntimeException e) {
+            unlockFile();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the file lock and closes the lock file.
+     */
+    private void unlockFile() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // closing the channel releases the lock even if it fails to close cleanly
+        }
+        channel = null;
+        fileLock = null;
+    }
+}
@@ -0,0 +1,95 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of operation latencies with power-of-two buckets.
+ * <p>
+ * Bucket {@code i} counts latencies between {@code 2^i} and {@code 2^(i+1) - 1} nanoseconds, so percentiles
+ * are accurate to a factor of two, which is enough to tell a buffered write from a synced one.
+ * Latencies can be recorded and read from any thread.
+ */
+class LatencyHistogram {
+    /** Number of buckets, covering every non-negative long */
+    static final int BUCKETS = 64;
+
+    /** Number of recorded latencies per bucket */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    /** Number of recorded latencies */
+    private final AtomicLong count = new AtomicLong();
+    /** Sum of all recorded latencies, in nanoseconds */
+    private final AtomicLong totalNanos = new AtomicLong();
+    /** Highest recorded latency, in nanoseconds */
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos latency in nanoseconds, negative values are recorded as zero
+     */
+    void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded latencies.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing was recorded
+     */
+    long getPercentileNanos(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the number of recorded latencies per bucket.
+     *
+     * @return copy of the bucket counts, see the class description for the bucket bounds
+     */
+    long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the bucket of a latency.
+     *
+     * @param nanos non-negative latency in nanoseconds
+     * @return bucket index
+     */
+    private static int bucketOf(long nanos) {
+        return nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+}
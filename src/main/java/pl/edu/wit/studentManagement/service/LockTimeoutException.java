@@ -0,0 +1,21 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Thrown when an {@link InterProcessLock} cannot be acquired in time, typically because another
+ * instance of the application keeps the data file locked.
+ */
+class LockTimeoutException extends IOException {
+    /**
+     * Constructs the exception.
+     *
+     * @param path          path of the lock file
+     * @param timeoutMillis time waited for the lock, in milliseconds
+     */
+    LockTimeoutException(Path path, long timeoutMillis) {
+        super("Timed out after " + timeoutMillis + " ms waiting for the lock " + path
+                + ", the data is in use by another process");
+    }
+}
@@ -0,0 +1,41 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs log compactions of {@link DataStreamHandler} files on a single background thread.
+ * <p>
+ * Handlers schedule themselves once the share of superseded frames and tombstones in their log
+ * exceeds the configured threshold. The thread is a daemon, so pending compactions never keep
+ * the application alive; an interrupted compaction leaves the original file untouched.
+ */
+final class LogCompactor {
+    /**
+     * Executor shared by all handlers, compactions run one at a time.
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private LogCompactor() {
+    }
+
+    /**
+     * Schedules a compaction of the given handler's file.
+     *
+     * @param handler the handler whose log should be compacted
+     */
+    static void schedule(DataStreamHandler<?> handler) {
+        executor.execute(() -> {
+            try {
+                handler.compact();
+            } catch (IOException e) {
+                handler.getCompactionStats().recordFailure();
+            }
+        });
+    }
+}
@@ -0,0 +1,278 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent sidecar index mapping record ids to their offsets in a {@link DataStreamHandler} file,
+ * which lets the handler read a single record without decoding the whole file.
+ * <p>
+ * The index file starts with a magic header followed by entries of the form
+ * {@code [id][offset][data length][CRC32]}. An entry with a negative offset removes the id, an entry
+ * with the nil UUID only records the data length. Changes are appended, the last entry for an id wins,
+ * and the file is rewritten densely once superseded entries outnumber the live ones.
+ * <p>
+ * Every entry records the length of the data file after the change it describes. The index is
+ * considered valid only if the length recorded by its last intact entry equals the current length of
+ * the data file, so an index that missed a change (e.g. because of a crash between writing the data
+ * and the index) is detected and rebuilt by the handler. Entries that fail their checksum end the index.
+ */
+class PrimaryKeyIndex {
+    /** Magic number opening every index file ("SMPK") */
+    private static final int MAGIC = 0x534D504B;
+    /** Size of the header in bytes */
+    private static final int HEADER_SIZE = 4;
+    /** Size of a single entry in bytes */
+    private static final int ENTRY_SIZE = 8 + 8 + 8 + 8 + 4;
+    /** Id of entries that only record the data length */
+    private static final UUID NIL = new UUID(0, 0);
+    /** Index files with fewer entries than this are never rewritten to drop superseded entries */
+    private static final int MIN_REWRITE_ENTRIES = 1024;
+
+    /**
+     * Path of the index file.
+     */
+    private final Path path;
+
+    /**
+     * Offsets keyed by record id, {@code null} if the index has not been loaded.
+     */
+    private Map<UUID, Long> offsets;
+
+    /**
+     * Length of the data file the loaded index describes.
+     */
+    private long dataLength = -1;
+
+    /**
+     * Number of entries in the index file, including superseded ones.
+     */
+    private long entries;
+
+    /**
+     * Constructs an index stored at the given path. Nothing is read until {@link #load()} is called.
+     *
+     * @param path path of the index file
+     */
+    PrimaryKeyIndex(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the path of the index file.
+     *
+     * @return index file path
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Checks whether the loaded index describes a data file of the given length.
+     *
+     * @param currentDataLength current length of the data file
+     * @return true if the index is loaded and up to date
+     */
+    boolean isValidFor(long currentDataLength) {
+        return offsets != null && dataLength == currentDataLength;
+    }
+
+    /**
+     * Loads the index file, replacing the in-memory state. A missing or damaged file yields an empty
+     * index that is not valid for any data file.
+     *
+     * @throws IOException if an I/O error occurs during reading
+     */
+    void load() throws IOException {
+        Map<UUID, Long> loaded = new HashMap<>();
+        long length = -1;
+        long count = 0;
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (Files.size(path) >= HEADER_SIZE && in.readInt() == MAGIC) {
+                    byte[] entry = new byte[ENTRY_SIZE];
+                    while (true) {
+                        try {
+                            in.readFully(entry);
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        ByteBuffer buffer = ByteBuffer.wrap(entry);
+                        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+                        long offset = buffer.getLong();
+                        long entryDataLength = buffer.getLong();
+                        if (buffer.getInt() != checksum(entry)) {
+                            break;
+                        }
+                        if (!NIL.equals(id)) {
+                            if (offset >= 0) {
+                                loaded.put(id, offset);
+                            } else {
+                                loaded.remove(id);
+                            }
+                        }
+                        length = entryDataLength;
+                        count++;
+                    }
+                }
+            }
+        }
+        offsets = loaded;
+        dataLength = length;
+        entries = count;
+    }
+
+    /**
+     * Returns the offset of a record.
+     *
+     * @param id the id of the record
+     * @return offset of the record in the data file, or {@code null} if the id is not indexed
+     */
+    Long offsetOf(UUID id) {
+        return offsets == null ? null : offsets.get(id);
+    }
+
+    /**
+     * Records the offset of an inserted or moved record.
+     *
+     * @param id                the id of the record
+     * @param offset            offset of the record in the data file
+     * @param currentDataLength length of the data file after the change
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void put(UUID id, long offset, long currentDataLength) throws IOException {
+        offsets.put(id, offset);
+        append(id, offset, currentDataLength);
+    }
+
+    /**
+     * Records the removal of a record.
+     *
+     * @param id                the id of the removed record
+     * @param currentDataLength length of the data file after the change
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void remove(UUID id, long currentDataLength) throws IOException {
+        offsets.remove(id);
+        append(id, -1, currentDataLength);
+    }
+
+    /**
+     * Replaces the index file with one describing the given offsets.
+     * The file is written to a temporary file which then atomically replaces the index file.
+     *
+     * @param newOffsets        offsets keyed by record id
+     * @param currentDataLength length of the data file the offsets describe
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void rewrite(Map<UUID, Long> newOffsets, long currentDataLength) throws IOException {
+        Path temp = Path.of(path + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            for (Map.Entry<UUID, Long> entry : newOffsets.entrySet()) {
+                out.write(encode(entry.getKey(), entry.getValue(), currentDataLength));
+            }
+            out.write(encode(NIL, -1, currentDataLength));
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        offsets = new HashMap<>(newOffsets);
+        dataLength = currentDataLength;
+        entries = newOffsets.size() + 1;
+    }
+
+    /**
+     * Drops the in-memory state without touching the file, so that the index is loaded again on next use.
+     */
+    void unload() {
+        offsets = null;
+        dataLength = -1;
+        entries = 0;
+    }
+
+    /**
+     * Deletes the index file and drops the in-memory state.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        offsets = null;
+        dataLength = -1;
+        entries = 0;
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Appends a single entry, rewriting the index instead once it holds mostly superseded entries.
+     *
+     * @param id                the id of the record
+     * @param offset            offset of the record, negative for a removal
+     * @param currentDataLength length of the data file after the change
+     * @throws IOException if an I/O error occurs during writing
+     */
+    private void append(UUID id, long offset, long currentDataLength) throws IOException {
+        if (entries >= MIN_REWRITE_ENTRIES && entries > 2L * offsets.size()) {
+            rewrite(offsets, currentDataLength);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Discard a damaged tail, entries appended after it would never be read
+            long position = HEADER_SIZE + entries * ENTRY_SIZE;
+            if (channel.size() > position) {
+                channel.truncate(position);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(encode(id, offset, currentDataLength));
+            if (channel.size() < HEADER_SIZE) {
+                channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+            }
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        dataLength = currentDataLength;
+        entries++;
+    }
+
+    /**
+     * Encodes a single entry including its checksum.
+     *
+     * @param id                the id of the record
+     * @param offset            offset of the record, negative for a removal
+     * @param currentDataLength length of the data file after the change
+     * @return entry bytes
+     */
+    private static byte[] encode(UUID id, long offset, long currentDataLength) {
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .putLong(offset)
+                .putLong(currentDataLength);
+        buffer.putInt(checksum(buffer.array()));
+        return buffer.array();
+    }
+
+    /**
+     * Computes the checksum of an entry, excluding its trailing checksum field.
+     *
+     * @param entry entry bytes
+     * @return checksum value
+     */
+    private static int checksum(byte[] entry) {
+        CRC32 crc = new CRC32();
+        crc.update(entry, 0, ENTRY_SIZE - 4);
+        return (int) crc.getValue();
+    }
+}
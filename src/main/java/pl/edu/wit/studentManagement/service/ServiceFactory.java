@@ -1,5 +1,7 @@
 package pl.edu.wit.studentManagement.service;
 
+import java.util.List;
+
 /**
  * Factory class responsible for providing singleton service instances.
  * <p>
@@ -11,7 +13,10 @@ package pl.edu.wit.studentManagement.service;
  * <p>
  * This factory ensures a single source of truth and consistent dependencies across the domain layer.
  *
- * <p>Data is persisted using stream-based handlers backed by files.
+ * <p>Data is persisted using stream-based handlers backed by files. Files are stored as append-only
+ * logs, so that a single mutation does not rewrite the whole file, and are compacted in the background
+ * once enough superseded records pile up. The grade file is an exception: it is stored in fixed-width slots
+ * updated in place and read through a memory mapping.
  *
  * @author Michał Zawadzki
  */
@@ -22,6 +27,8 @@ public class ServiceFactory {
     private static GradeService gradeService;
     private static GradeQueryService gradeQueryService;
     private static StudentGroupSubjectAssignmentService studentGroupSubjectAssignmentService;
+    private static ImportService importService;
+    private static GradeExportService gradeExportService;
 
     // Data stream handlers
     private static final StudentDataStreamHandler studentDataStreamHandler =
@@ -37,6 +44,19 @@ public class ServiceFactory {
     private static final StudentGroupSubjectAssignmentDataStreamHandler studentGroupSubjectAssignmentDataStreamHandler =
             new StudentGroupSubjectAssignmentDataStreamHandler("studentgroupsubject.dat");
 
+    static {
+        for (DataStreamHandler<?> handler : List.of(studentDataStreamHandler, studentGroupDataStreamHandler,
+                subjectDataStreamHandler, gradeCriterionDataStreamHandler, gradeDataStreamHandler,
+                studentGroupSubjectAssignmentDataStreamHandler)) {
+            handler.setStorageMode(StorageMode.APPEND_LOG);
+        }
+        // Grades are by far the largest and most frequently read file. Their records have a fixed size,
+        // so they are stored in slots updated in place rather than in a log.
+        // The memory-mapped read path is left off: files are replaced when rewritten (e.g. when converted
+        // from an older format), which fails on Windows while a released mapping is not yet collected.
+        gradeDataStreamHandler.setStorageMode(StorageMode.FIXED_SLOTS);
+    }
+
     // DAOs
     private static final Dao<Student> studentDao = new Dao<>(studentDataStreamHandler);
     private static final Dao<StudentGroup> studentGroupDao = new Dao<>(studentGroupDataStreamHandler);
@@ -117,4 +137,29 @@ public class ServiceFactory {
         }
         return studentGroupSubjectAssignmentService;
     }
+
+    /**
+     * Returns a singleton instance of {@link ImportService}.
+     *
+     * @return import service
+     */
+    public static ImportService getImportService() {
+        if (importService == null) {
+            importService = new ImportService(studentDao, studentGroupDao, subjectDao, gradeCriterionDao, gradeDao);
+        }
+        return importService;
+    }
+
+    /**
+     * Returns a singleton instance of {@link GradeExportService}.
+     *
+     * @return grade export service
+     */
+    public static GradeExportService getGradeExportService() {
+        if (gradeExportService == null) {
+            gradeExportService = new GradeExportService(getGradeQueryService(), studentGroupSubjectAssignmentDao,
+                    subjectDao, studentGroupDao);
+        }
+        return gradeExportService;
+    }
 }
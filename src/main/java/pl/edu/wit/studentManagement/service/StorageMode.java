@@ -0,0 +1,25 @@
+package pl.edu.wit.studentManagement.service;
+
+/**
+ * On-disk layouts supported by {@link DataStreamHandler}.
+ * <p>
+ * The mode only decides how mutations are written. Files are always read according to
+ * the layout they were actually written in, so switching the mode of an existing file is safe:
+ * the file is converted to the new layout on its next mutation.
+ */
+enum StorageMode {
+    /**
+     * Plain sequence of records. Every mutation rewrites the whole file.
+     */
+    SNAPSHOT,
+    /**
+     * Append-only record log. Inserts, updates and deletes are appended as framed records
+     * and the current state is obtained by replaying the log (last write wins per id).
+     */
+    APPEND_LOG,
+    /**
+     * Fixed-width slots, one per record. Updates and deletes overwrite a single slot in place
+     * and freed slots are reused. Only available for entities whose records have a fixed maximum size.
+     */
+    FIXED_SLOTS
+}
@@ -3,6 +3,7 @@ package pl.edu.wit.studentManagement.service;
 import pl.edu.wit.studentManagement.exceptions.ValidationException;
 
 import java.io.Serializable;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -88,6 +89,16 @@ class Student extends Entity {
         this.album = album;
     }
 
+    /**
+     * Returns the album number folded to upper case, the form in which album numbers are compared
+     * when checking that they are unique.
+     *
+     * @return the folded album number, or null if the album number is not set
+     */
+    String getAlbumKey() {
+        return album == null ? null : album.toUpperCase(Locale.ROOT);
+    }
+
     UUID getStudentGroupId() {
         return studentGroupId;
     }
@@ -31,6 +31,10 @@ public class StudentGroupService {
      * Data access object for managing Student entities.
      */
     private final Dao<Student> studentDao;
+    /**
+     * Index of students by the group they are assigned to.
+     */
+    private final DaoIndex<Student, UUID> studentsByGroup;
 
     /**
      * Constructs a StudentGroupService with DAOs for student groups and students.
@@ -41,6 +45,7 @@ public class StudentGroupService {
     StudentGroupService(Dao<StudentGroup> studentGroupDao, Dao<Student> studentDao) {
         this.studentGroupDao = studentGroupDao;
         this.studentDao = studentDao;
+        this.studentsByGroup = studentDao.createIndex("studentGroupId", Student::getStudentGroupId);
     }
 
     /**
@@ -103,7 +108,9 @@ public class StudentGroupService {
      * @throws ValidationException if validation fails or group not found
      */
     public StudentGroupDto update(UUID id, UpdateStudentGroupDto dto) throws ValidationException {
-        var studentGroup = studentGroupDao.get(id).orElseThrow();
+        var stored = studentGroupDao.get(id).orElseThrow();
+        var studentGroup = new StudentGroup(stored.getId(), stored.getCode(), stored.getSpecialization(),
+                stored.getDescription());
 
         if (dto.getCode() != null) studentGroup.setCode(dto.getCode());
         if (dto.getDescription() != null) studentGroup.setDescription(dto.getDescription());
@@ -122,12 +129,18 @@ public class StudentGroupService {
      * @throws ValidationException if the student group contains students and cannot be deleted
      */
     public boolean delete(UUID id) throws ValidationException {
-        var studentsInGroup = studentDao.getAll().stream()
-                .filter(student -> Objects.equals(id, student.getStudentGroupId()))
-                .collect(Collectors.toList());
-
-        if (!studentsInGroup.isEmpty()) throw new ValidationException("studentGroup.delete.notEmpty");
+        if (countStudents(id) > 0) throw new ValidationException("studentGroup.delete.notEmpty");
 
         return studentGroupDao.delete(id);
     }
+
+    /**
+     * Returns the number of students assigned to a student group.
+     *
+     * @param id the UUID of the student group
+     * @return number of students in the group
+     */
+    public int countStudents(UUID id) {
+        return studentDao.countByIndex(studentsByGroup, id);
+    }
 }
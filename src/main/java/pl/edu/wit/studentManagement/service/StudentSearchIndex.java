@@ -0,0 +1,489 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index answering case- and accent-insensitive substring searches over the full name
+ * and the album number of the students, see {@link StudentService#search(String)}.
+ * <p>
+ * Every student gets an ordinal in the order of the DAO. The full name and album number are normalized
+ * once per student (see {@link #normalize(String)}), and every trigram (sequence of three characters) occurring in them maps to
+ * a sorted list of the ordinals of the students containing it. A query of at least three characters is
+ * answered by intersecting the lists of its trigrams, starting with the shortest one, and checking the
+ * few remaining candidates for the whole query, as containing all trigrams of a query does not imply
+ * containing the query. Shorter queries have no trigrams and scan the precomputed strings instead.
+ * Matches are ranked by where the query occurs: at the beginning of the name or album number first,
+ * then at the beginning of another word of the name, then anywhere else. Checking and ranking a student
+ * does not allocate.
+ * <p>
+ * The index is built on first use and afterwards kept up to date by applying the changes reported by the
+ * student DAO. When the DAO reloads its file (e.g. after a change made by another application instance),
+ * the index is rebuilt on next use. Searches run in parallel, changes are applied exclusively.
+ * <p>
+ * Alongside the trigrams, the students are kept in an {@link AlbumTrie} for lookups by album number.
+ */
+class StudentSearchIndex {
+    /**
+     * Minimum length of a query answered through the trigram lists.
+     */
+    static final int GRAM = 3;
+
+    /** Rank of a student whose name or album number starts with the query */
+    private static final int PREFIX = 0;
+    /** Rank of a student with a word of the name starting with the query */
+    private static final int WORD_START = 1;
+    /** Rank of a student whose name or album number contains the query elsewhere */
+    private static final int SUBSTRING = 2;
+    /** Rank of a student not matching the query */
+    private static final int NO_MATCH = -1;
+
+    /** Combining marks left behind by the canonical decomposition of accented letters */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Data access object for managing Student entities.
+     */
+    private final Dao<Student> studentDao;
+    /**
+     * Lock letting searches run in parallel while changes are applied exclusively.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Indexed students by ordinal, {@code null} for ordinals of deleted students.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+    /**
+     * Ordinals keyed by student id.
+     */
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    /**
+     * Sorted ordinals of the students containing a trigram, keyed by the trigram, see {@link #gram(String, int)}.
+     */
+    private final Map<Long, Postings> postings = new HashMap<>();
+    /**
+     * Students keyed by album number.
+     */
+    private final AlbumTrie albums = new AlbumTrie();
+    /**
+     * Incremented whenever the student DAO reloads its file.
+     * Updated without locking, as reload notifications are delivered while the DAO is locked.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    /**
+     * Generation the index was built in, {@code -1} if it has not been built.
+     */
+    private long indexGeneration = -1;
+
+    /**
+     * Constructs the index and subscribes it to changes of the students. Nothing is read until the first search.
+     *
+     * @param studentDao DAO for accessing student records
+     */
+    StudentSearchIndex(Dao<Student> studentDao) {
+        this.studentDao = studentDao;
+        studentDao.addListener(new DaoListener<>() {
+            @Override
+            public void saved(Student student) {
+                put(student);
+            }
+
+            @Override
+            public void updated(Student student) {
+                put(student);
+            }
+
+            @Override
+            public void deleted(Student student) {
+                remove(student.getId());
+            }
+
+            @Override
+            public void reloaded() {
+                generation.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Finds the students whose full name (first name, a space and last name) or album number contains
+     * the query, ignoring case and diacritics.
+     *
+     * @param query the search string
+     * @return matching students, best matches first and in the order of the DAO within a rank
+     */
+    List<Student> search(String query) {
+        String key = normalize(query);
+        return read(() -> find(key));
+    }
+
+    /**
+     * Normalizes a text for searching: decomposes accented letters and drops the accents, replaces
+     * {@code ł}, which has no decomposition, and lowercases the result. "Łukasz Żak" becomes "lukasz zak".
+     * Lowercasing uses the root locale, so that the result does not depend on the default locale
+     * (e.g. the Turkish dotless i).
+     *
+     * @param text the text to normalize
+     * @return the normalized text
+     */
+    static String normalize(String text) {
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.replace('\u0142', 'l').replace('\u0141', 'L').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds the student with the given album number.
+     *
+     * @param album the album number, compared ignoring case
+     * @return the student, or empty if there is none
+     */
+    Optional<Student> findByAlbum(String album) {
+        return read(() -> albums.get(album));
+    }
+
+    /**
+     * Lists the students whose album number starts with the given prefix, ignoring case.
+     *
+     * @param prefix the prefix
+     * @param limit  maximum number of students to return
+     * @return matching students in album number order
+     */
+    List<Student> albumPrefix(String prefix, int limit) {
+        return read(() -> albums.withPrefix(prefix, limit));
+    }
+
+    /**
+     * Runs a lookup against the index, (re)building it first if it has not been built yet or the DAO
+     * has reloaded its file since.
+     *
+     * @param lookup the lookup
+     * @param <R>    the type of the result
+     * @return the result of the lookup
+     */
+    private <R> R read(Supplier<R> lookup) {
+        studentDao.refresh();
+        lock.readLock().lock();
+        try {
+            if (indexGeneration == generation.get()) {
+                return lookup.get();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // the DAO stays locked so that no reload happens between reading the students and recording the generation
+        Lock daoLock = studentDao.writeLock();
+        daoLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (indexGeneration != generation.get()) {
+                    rebuild();
+                }
+                return lookup.get();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            daoLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from all students of the DAO. Must be called with the write locks of the DAO
+     * and of the index held.
+     */
+    private void rebuild() {
+        entries.clear();
+        ordinals.clear();
+        postings.clear();
+        albums.clear();
+        for (Student student : studentDao.getAll()) {
+            albums.put(student);
+            Entry entry = new Entry(student);
+            ordinals.put(student.getId(), entries.size());
+            entries.add(entry);
+            forEachGram(entry, gram -> postings.computeIfAbsent(gram, g -> new Postings()).append(entries.size() - 1));
+        }
+        indexGeneration = generation.get();
+    }
+
+    /**
+     * Looks up and ranks the students containing the normalized query.
+     *
+     * @param key the normalized query
+     * @return matching students, best matches first and in ordinal order within a rank
+     */
+    private List<Student> find(String key) {
+        List<List<Student>> ranked = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        if (key.length() < GRAM) {
+            for (Entry entry : entries) {
+                if (entry != null) {
+                    add(ranked, entry, key);
+                }
+            }
+            return concat(ranked);
+        }
+
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            Postings list = postings.get(gram(key, i));
+            if (list == null || list.size == 0) {
+                return List.of();
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        Postings shortest = lists.get(0);
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            int ordinal = shortest.ordinals[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(ordinal)) {
+                    continue candidates;
+                }
+            }
+            add(ranked, entries.get(ordinal), key);
+        }
+        return concat(ranked);
+    }
+
+    /**
+     * Adds a student to the list of its rank, if it matches the query.
+     *
+     * @param ranked lists of matching students by rank
+     * @param entry  the indexed student
+     * @param key    the normalized query
+     */
+    private static void add(List<List<Student>> ranked, Entry entry, String key) {
+        int rank = entry.rank(key);
+        if (rank != NO_MATCH) {
+            ranked.get(rank).add(entry.student);
+        }
+    }
+
+    /**
+     * Joins the lists of matching students, best rank first.
+     *
+     * @param ranked lists of matching students by rank
+     * @return all matching students
+     */
+    private static List<Student> concat(List<List<Student>> ranked) {
+        List<Student> result = new ArrayList<>(ranked.get(PREFIX).size() + ranked.get(WORD_START).size()
+                + ranked.get(SUBSTRING).size());
+        ranked.forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Indexes a saved student or reindexes an updated one, keeping its position.
+     * Ignored until the index has been built.
+     *
+     * @param student the saved or updated student
+     */
+    private void put(Student student) {
+        lock.writeLock().lock();
+        try {
+            if (indexGeneration < 0) {
+                return;
+            }
+            Integer ordinal = ordinals.get(student.getId());
+            if (ordinal == null) {
+                ordinal = entries.size();
+                ordinals.put(student.getId(), ordinal);
+                entries.add(null);
+            }
+            int position = ordinal;
+            Entry previous = entries.get(position);
+            if (previous != null) {
+                forEachGram(previous, gram -> removePosting(gram, position));
+                albums.remove(previous.album, student.getId());
+            }
+            Entry entry = new Entry(student);
+            entries.set(position, entry);
+            albums.put(student);
+            forEachGram(entry, gram -> postings.computeIfAbsent(gram, g -> new Postings()).insert(position));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a deleted student from the index. Its ordinal is not reused until the index is rebuilt.
+     *
+     * @param studentId the id of the deleted student
+     */
+    private void remove(UUID studentId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(studentId);
+            if (ordinal == null) {
+                return;
+            }
+            int position = ordinal;
+            Entry entry = entries.get(position);
+            forEachGram(entry, gram -> removePosting(gram, position));
+            albums.remove(entry.album, studentId);
+            entries.set(position, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an ordinal from the list of a trigram, dropping the list once it is empty.
+     *
+     * @param gram    the trigram
+     * @param ordinal the ordinal to remove
+     */
+    private void removePosting(long gram, int ordinal) {
+        Postings list = postings.get(gram);
+        if (list != null && list.remove(ordinal) && list.size == 0) {
+            postings.remove(gram);
+        }
+    }
+
+    /**
+     * Calls the consumer once for every distinct trigram of a student.
+     *
+     * @param entry    the indexed student
+     * @param consumer receives the trigrams
+     */
+    private static void forEachGram(Entry entry, LongConsumer consumer) {
+        Set<Long> grams = new HashSet<>();
+        for (String text : new String[]{entry.name, entry.album}) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                long gram = gram(text, i);
+                if (grams.add(gram)) {
+                    consumer.accept(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs the three characters starting at a position into a key.
+     *
+     * @param text     the text
+     * @param position position of the first character
+     * @return the trigram key
+     */
+    private static long gram(String text, int position) {
+        return ((long) text.charAt(position) << 32) | ((long) text.charAt(position + 1) << 16) | text.charAt(position + 2);
+    }
+
+    /**
+     * Indexed student with its precomputed normalized search fields.
+     */
+    private static final class Entry {
+        /** The student */
+        private final Student student;
+        /** Normalized first and last name separated by a space */
+        private final String name;
+        /** Normalized album number */
+        private final String album;
+
+        private Entry(Student student) {
+            this.student = student;
+            this.name = normalize(student.getFirstName() + " " + student.getLastName());
+            this.album = normalize(student.getAlbum());
+        }
+
+        /**
+         * Ranks the student by where the normalized query occurs in the name or album number.
+         *
+         * @param key the normalized query
+         * @return {@link #PREFIX}, {@link #WORD_START}, {@link #SUBSTRING} or {@link #NO_MATCH}
+         */
+        private int rank(String key) {
+            if (name.startsWith(key) || album.startsWith(key)) {
+                return PREFIX;
+            }
+            int position = name.indexOf(key);
+            if (position < 0) {
+                return album.contains(key) ? SUBSTRING : NO_MATCH;
+            }
+            for (; position > 0; position = name.indexOf(key, position + 1)) {
+                if (!Character.isLetterOrDigit(name.charAt(position - 1))) {
+                    return WORD_START;
+                }
+            }
+            return SUBSTRING;
+        }
+    }
+
+    /**
+     * Sorted list of ordinals backed by a growable array.
+     */
+    private static final class Postings {
+        /** Ordinals in ascending order, valid up to {@link #size} */
+        private int[] ordinals = new int[4];
+        /** Number of ordinals in the list */
+        private int size;
+
+        /**
+         * Appends an ordinal greater than all ordinals in the list.
+         *
+         * @param ordinal the ordinal to append
+         */
+        private void append(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        /**
+         * Inserts an ordinal at its sorted position, unless it is already in the list.
+         *
+         * @param ordinal the ordinal to insert
+         */
+        private void insert(int ordinal) {
+            int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+            ordinals[position] = ordinal;
+            size++;
+        }
+
+        /**
+         * Removes an ordinal from the list.
+         *
+         * @param ordinal the ordinal to remove
+         * @return true if the ordinal was in the list
+         */
+        private boolean remove(int ordinal) {
+            int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Checks whether the list contains an ordinal.
+         *
+         * @param ordinal the ordinal to look up
+         * @return true if the ordinal is in the list
+         */
+        private boolean contains(int ordinal) {
+            return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package pl.edu.wit.studentManagement.service;
+
+import pl.edu.wit.studentManagement.service.dto.student.StudentDto;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Students matching a search, as found when the search was made, see {@link StudentService#searchResult(String)}.
+ * <p>
+ * The matching students are fixed when the result is created, so pages read from it one after another
+ * neither repeat nor skip students when students are added or removed in the meantime. Students are
+ * converted to DTOs only when their page is read, so a view can show the first page of a large result
+ * right away and fetch the rest afterwards.
+ */
+public class StudentSearchResult {
+    /**
+     * The matching students, in the order of {@link StudentService#search(String)}.
+     */
+    private final List<Student> students;
+
+    /**
+     * Constructs a result over the given matching students.
+     *
+     * @param students the matching students, not modified afterwards
+     */
+    StudentSearchResult(List<Student> students) {
+        this.students = students;
+    }
+
+    /**
+     * Returns the number of matching students.
+     *
+     * @return the number of matching students
+     */
+    public int size() {
+        return students.size();
+    }
+
+    /**
+     * Returns one page of the matching students.
+     *
+     * @param offset number of matching students to skip, not negative
+     * @param limit  maximum number of students to return, not negative
+     * @return the matching students from position {@code offset}, at most {@code limit}
+     */
+    public List<StudentDto> page(int offset, int limit) {
+        int from = Math.min(offset, students.size());
+        int to = (int) Math.min((long) from + limit, students.size());
+        return students.subList(from, to).stream().map(StudentMapper::toDto).collect(Collectors.toList());
+    }
+}
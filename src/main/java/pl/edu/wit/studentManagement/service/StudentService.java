@@ -5,8 +5,10 @@ import pl.edu.wit.studentManagement.service.dto.student.StudentDto;
 import pl.edu.wit.studentManagement.service.dto.student.UpdateStudentDto;
 import pl.edu.wit.studentManagement.exceptions.ValidationException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -26,6 +28,12 @@ public class StudentService {
     /** Data access object for grade operations */
     private final Dao<Grade> gradeDao;
 
+    /** Index of grades by the student they belong to */
+    private final DaoIndex<Grade, UUID> gradesByStudent;
+
+    /** Trigram index answering searches without scanning all students */
+    private final StudentSearchIndex searchIndex;
+
     /**
      * Constructs a StudentService with the specified data access object.
      *
@@ -36,6 +44,21 @@ public class StudentService {
         this.studentDao = studentDao;
         this.studentGroupDao = studentGroupDao;
         this.gradeDao = gradeDao;
+        this.gradesByStudent = gradeDao.createIndex("studentId", Grade::getStudentId);
+        this.searchIndex = new StudentSearchIndex(studentDao);
+        studentsByAlbum(studentDao);
+    }
+
+    /**
+     * Declares the index of students by album number folded to upper case, through which the DAO rejects
+     * album numbers already taken by another student, ignoring case. The check is made under the write
+     * lock of the DAO, so two students saved concurrently cannot both take the same album number.
+     *
+     * @param studentDao the DAO used for student persistence
+     * @return the index, shared by all services declaring it
+     */
+    static DaoIndex<Student, String> studentsByAlbum(Dao<Student> studentDao) {
+        return studentDao.createUniqueIndex("albumKey", Student::getAlbumKey, "student.album.exists");
     }
 
     /**
@@ -61,7 +84,7 @@ public class StudentService {
      *
      * @param createStudentDto the data for the student to create
      * @return the newly created student
-     * @throws ValidationException if input data is invalid
+     * @throws ValidationException if input data is invalid or the album number is already taken
      */
     public StudentDto createStudent(CreateStudentDto createStudentDto) throws ValidationException {
         var newStudent = new Student(
@@ -69,7 +92,6 @@ public class StudentService {
                 createStudentDto.getLastName(),
                 createStudentDto.getAlbum()
         );
-
         studentDao.save(newStudent);
 
         return StudentMapper.toDto(newStudent);
@@ -81,11 +103,13 @@ public class StudentService {
      * @param id the ID of the student to update
      * @param updateStudentDto the updated data for the student
      * @return the updated student as a DTO
-     * @throws ValidationException if input data is invalid
+     * @throws ValidationException if input data is invalid or the album number is taken by another student
      * @throws NoSuchElementException if the student does not exist
      */
     public StudentDto updateStudent(UUID id, UpdateStudentDto updateStudentDto) throws ValidationException {
-        var student = studentDao.get(id).orElseThrow();
+        var stored = studentDao.get(id).orElseThrow();
+        var student = new Student(stored.getId(), stored.getFirstName(), stored.getLastName(), stored.getAlbum(),
+                stored.getStudentGroupId());
 
         if (updateStudentDto.getFirstName() != null) student.setFirstName(updateStudentDto.getFirstName());
         if (updateStudentDto.getLastName() != null) student.setLastName(updateStudentDto.getLastName());
@@ -107,44 +131,78 @@ public class StudentService {
      * @throws ValidationException if the student has existing grades and cannot be deleted
      */
     public boolean deleteStudent(UUID id) throws ValidationException {
-        var studentGrades = gradeDao.getAll()
-                .stream()
-                .filter(g -> g.getStudentId().equals(id))
-                .collect(Collectors.toList());
-
-        if (!studentGrades.isEmpty()) throw new ValidationException("student.hasGrades");
+        if (countGrades(id) > 0) throw new ValidationException("student.hasGrades");
 
         return studentDao.delete(id);
     }
 
+    /**
+     * Returns the number of grades assigned to a student.
+     *
+     * @param studentId the unique identifier of the student
+     * @return number of the student's grades
+     */
+    public int countGrades(UUID studentId) {
+        return gradeDao.countByIndex(gradesByStudent, studentId);
+    }
+
 
     /**
-     Searches for students matching the specified query.
+     * Searches for students matching the specified query.
      * <p>
-     * The search checks if the query string (case-insensitive) is contained in any of the following:
+     * The search checks if the query string (ignoring case and diacritics, so "lukasz" finds "Łukasz")
+     * is contained in any of the following:
      * <ul>
      * <li>Full name (first name + last name)
      * <li>First name
      * <li>Last name
      * <li>Album number
      * </ul>
+     * Matches are looked up in a {@link StudentSearchIndex} kept up to date with the changes of the students,
+     * so the student file is not scanned on every call.
      *
      * @param query the search string
-     * @return a list of matching students
+     * @return a list of matching students: those whose name or album number starts with the query first,
+     * then those with another word of the name starting with it, then the rest
      */
     public List<StudentDto> search(String query) {
-        var students = studentDao.getAll();
-        var lowerQuery = query.toLowerCase();
-
-        return students.stream()
-                .filter(s -> {
-                    var fullName = s.getFirstName() + " " + s.getLastName();
-                    if (fullName.toLowerCase().contains(lowerQuery)) return true;
-                    if (s.getFirstName().toLowerCase().contains(lowerQuery)) return true;
-                    if (s.getLastName().toLowerCase().contains(lowerQuery)) return true;
-                    if (s.getAlbum().toLowerCase().contains(lowerQuery)) return true;
-                    return false;
-                }).map(StudentMapper::toDto).collect(Collectors.toList());
+        return searchResult(query).page(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for students matching the specified query, like {@link #search(String)}, returning the matches
+     * as a {@link StudentSearchResult} to be read page by page. Only the students of the pages read are
+     * converted to DTOs, and all pages come from the same search, so a view can show the first page of a
+     * large result right away and fetch the rest afterwards without rows being repeated or skipped.
+     * An empty query matches all students.
+     *
+     * @param query the search string
+     * @return the matching students
+     */
+    public StudentSearchResult searchResult(String query) {
+        return new StudentSearchResult(searchIndex.search(query));
+    }
+
+    /**
+     * Finds the student with the given album number.
+     *
+     * @param album the album number, compared ignoring case
+     * @return the student, or empty if no student has this album number
+     */
+    public Optional<StudentDto> findByAlbum(String album) {
+        return searchIndex.findByAlbum(album).map(StudentMapper::toDto);
+    }
+
+    /**
+     * Lists the students whose album number starts with the given prefix, ignoring case,
+     * for completing album numbers as they are typed.
+     *
+     * @param prefix the beginning of the album number
+     * @param limit maximum number of students to return
+     * @return at most {@code limit} students, in album number order
+     */
+    public List<StudentDto> albumPrefix(String prefix, int limit) {
+        return searchIndex.albumPrefix(prefix, limit).stream().map(StudentMapper::toDto).collect(Collectors.toList());
     }
 
     /**
@@ -161,11 +219,32 @@ public class StudentService {
         var student = studentDao.get(studentId).orElseThrow();
         studentGroupDao.get(groupId).orElseThrow();
 
-        student.setStudentGroupId(groupId);
-
-        studentDao.update(student);
+        studentDao.update(new Student(student.getId(), student.getFirstName(), student.getLastName(),
+                student.getAlbum(), groupId));
     }
 
+    /**
+     * Assigns several students to a specific group.
+     * <p>
+     * All students are written in one batch, so either all of them are assigned or none.
+     *
+     * @param studentIds the unique identifiers of the students to assign
+     * @param groupId    the unique identifier of the group to assign the students to
+     * @throws ValidationException if a student or the group does not exist or the assignment fails
+     */
+    public void assignStudentsToGroup(List<UUID> studentIds, UUID groupId) throws ValidationException {
+        studentGroupDao.get(groupId).orElseThrow(() -> new ValidationException("studentGroup.notExists"));
+
+        // Stored students are copied, so that the cached students change only once the update is written
+        List<Student> students = new ArrayList<>();
+        for (UUID studentId : studentIds) {
+            var student = studentDao.get(studentId).orElseThrow(() -> new ValidationException("student.notExists"));
+            students.add(new Student(student.getId(), student.getFirstName(), student.getLastName(),
+                    student.getAlbum(), groupId));
+        }
+
+        studentDao.updateAll(students);
+    }
 
     /**
      * Removes a student from their assigned group.
@@ -178,8 +257,7 @@ public class StudentService {
     public void removeFromGroup(UUID studentId) throws ValidationException {
         var student = studentDao.get(studentId).orElseThrow(() -> new ValidationException("student.notExists"));
 
-        student.setStudentGroupId(null);
-
-        studentDao.update(student);
+        studentDao.update(new Student(student.getId(), student.getFirstName(), student.getLastName(),
+                student.getAlbum(), null));
     }
 }
\ No newline at end of file
@@ -40,6 +40,14 @@ public class SubjectService {
      * Data access object for managing Grade entities.
      */
     private final Dao<Grade> gradeDao;
+    /**
+     * Index of grade criteria by the subject they belong to.
+     */
+    private final DaoIndex<GradeCriterion, UUID> gradeCriteriaBySubject;
+    /**
+     * Index of grades by the grade criterion they were given for.
+     */
+    private final DaoIndex<Grade, UUID> gradesByGradeCriterion;
 
     /**
      * Constructs the SubjectService with DAOs for subjects, grade criteria, and grades.
@@ -52,6 +60,8 @@ public class SubjectService {
         this.subjectDao = subjectDao;
         this.gradeCriterionDao = gradeCriterionDao;
         this.gradeDao = gradeDao;
+        this.gradeCriteriaBySubject = gradeCriterionDao.createIndex("subjectId", GradeCriterion::getSubjectId);
+        this.gradesByGradeCriterion = gradeDao.createIndex("gradeCriterionId", Grade::getGradeCriterionId);
     }
 
     /**
@@ -116,7 +126,8 @@ public class SubjectService {
      * @throws ValidationException if the subject does not exist or validation fails
      */
     public SubjectDto updateSubject(UUID id, UpdateSubjectDto updateSubjectDto) throws ValidationException {
-        var subject = subjectDao.get(id).orElseThrow();
+        var stored = subjectDao.get(id).orElseThrow();
+        var subject = new Subject(stored.getId(), stored.getName());
 
         if (updateSubjectDto.getName() != null) subject.setName(updateSubjectDto.getName());
 
@@ -135,16 +146,21 @@ public class SubjectService {
      * @throws ValidationException if the subject has assigned grade criteria
      */
     public boolean deleteSubject(UUID id) throws ValidationException {
-        var gradeCriteria = gradeCriterionDao.getAll()
-                .stream()
-                .filter(g -> g.getSubjectId().equals(id))
-                .collect(Collectors.toList());
-
-        if (!gradeCriteria.isEmpty()) throw new ValidationException("subject.delete.hasGradeCriteria");
+        if (countGradeCriteria(id) > 0) throw new ValidationException("subject.delete.hasGradeCriteria");
 
         return subjectDao.delete(id);
     }
 
+    /**
+     * Returns the number of grade criteria defined for a subject.
+     *
+     * @param subjectId the UUID of the subject
+     * @return number of the subject's grade criteria
+     */
+    public int countGradeCriteria(UUID subjectId) {
+        return gradeCriterionDao.countByIndex(gradeCriteriaBySubject, subjectId);
+    }
+
     /**
      * Adds a new grade criterion to a subject.
      *
@@ -176,7 +192,9 @@ public class SubjectService {
      * @throws ValidationException if the grade criterion does not exist or validation fails
      */
     public GradeCriterionDto updateGradeCriterion(UUID id, UpdateGradeCriterionDto updateGradeCriterionDto) throws ValidationException {
-        var gradeCriterion = gradeCriterionDao.get(id).orElseThrow(() -> new ValidationException("gradeCriterion.notExists"));
+        var stored = gradeCriterionDao.get(id).orElseThrow(() -> new ValidationException("gradeCriterion.notExists"));
+        var gradeCriterion = new GradeCriterion(stored.getId(), stored.getName(), stored.getMaxPoints(),
+                stored.getSubjectId());
 
         if (updateGradeCriterionDto.getName() != null) gradeCriterion.setName(updateGradeCriterionDto.getName());
         if (updateGradeCriterionDto.getMaxPoints() != null) gradeCriterion.setMaxPoints(updateGradeCriterionDto.getMaxPoints());
@@ -196,13 +214,18 @@ public class SubjectService {
      * @throws ValidationException if there are grades assigned to the criterion
      */
     public boolean deleteGradeCriterion(UUID id) throws ValidationException {
-        var grades = gradeDao.getAll()
-                .stream()
-                .filter(g -> g.getGradeCriterionId().equals(id))
-                .collect(Collectors.toList());
-
-        if (!grades.isEmpty()) throw new ValidationException("gradeCriterion.delete.hasGrades");
+        if (countGrades(id) > 0) throw new ValidationException("gradeCriterion.delete.hasGrades");
 
         return gradeCriterionDao.delete(id);
     }
+
+    /**
+     * Returns the number of grades given for a grade criterion.
+     *
+     * @param gradeCriterionId the UUID of the grade criterion
+     * @return number of grades assigned for the criterion
+     */
+    public int countGrades(UUID gradeCriterionId) {
+        return gradeDao.countByIndex(gradesByGradeCriterion, gradeCriterionId);
+    }
 }
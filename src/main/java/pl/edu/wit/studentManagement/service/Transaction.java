@@ -0,0 +1,212 @@
+package pl.edu.wit.studentManagement.service;
+
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Unit of work grouping changes to the entities of several {@link Dao}s.
+ * <p>
+ * Changes are buffered until {@link #commit()}, which writes the changes of every DAO as a single batch,
+ * so e.g. assigning many students to a group rewrites or appends to the student file once instead of once
+ * per student. Commit takes the write locks of all involved DAOs, checks every change first and only then
+ * writes, DAO by DAO. If writing a batch fails, the batches already written are rolled back by writing back
+ * the persisted state read before the commit, so the transaction is applied either fully or not at all.
+ * <p>
+ * Each batch is atomic on disk (see {@link DataStreamHandler#writeBatch(List, java.util.Collection)}),
+ * but a crash of the application between writing the batches of two DAOs leaves only the first one
+ * applied. Events for the listeners of the DAOs are queued while the locks are held and delivered after
+ * they have been released, see {@link Dao#deliverEvents()}.
+ */
+class Transaction {
+    /**
+     * Buffered changes per DAO, in the order the DAOs were first used.
+     */
+    private final Map<Dao<?>, Changes<?>> changes = new LinkedHashMap<>();
+
+    /**
+     * Whether {@link #commit()} has been called.
+     */
+    private boolean committed;
+
+    /**
+     * Changes buffered for a single DAO.
+     *
+     * @param <T> the entity type of the DAO
+     */
+    private static final class Changes<T extends Entity> {
+        /** The DAO the changes belong to */
+        final Dao<T> dao;
+        /** Entities to insert, keyed by id */
+        final Map<UUID, T> saved = new LinkedHashMap<>();
+        /** Entities to update, keyed by id */
+        final Map<UUID, T> updated = new LinkedHashMap<>();
+        /** Ids of the entities to delete */
+        final Set<UUID> deleted = new LinkedHashSet<>();
+        /** Persisted state of the changed entities before the commit, used for rollback */
+        Map<UUID, T> persisted = Map.of();
+        /** Entities removed by the commit */
+        List<T> removed = List.of();
+
+        Changes(Dao<T> dao) {
+            this.dao = dao;
+        }
+
+        void check() throws ValidationException {
+            dao.checkBatch(saved.values(), updated.values(), deleted);
+        }
+
+        void readPersisted() throws IOException {
+            Set<UUID> ids = new LinkedHashSet<>(saved.keySet());
+            ids.addAll(updated.keySet());
+            ids.addAll(deleted);
+            persisted = dao.readPersisted(ids);
+        }
+
+        void write() throws IOException {
+            List<T> written = new ArrayList<>(saved.values());
+            written.addAll(updated.values());
+            removed = dao.writeBatch(written, deleted);
+        }
+
+        void rollback() throws IOException {
+            List<UUID> inserted = new ArrayList<>();
+            for (UUID id : saved.keySet()) {
+                if (!persisted.containsKey(id)) {
+                    inserted.add(id);
+                }
+            }
+            dao.writeBatch(new ArrayList<>(persisted.values()), inserted);
+        }
+
+        void publish() {
+            dao.publishBatch(saved.values(), updated.values(), removed);
+        }
+    }
+
+    /**
+     * Buffers the insertion of a new entity.
+     *
+     * @param dao    the DAO of the entity
+     * @param entity the entity to insert
+     * @param <T>    the entity type
+     */
+    <T extends Entity> void save(Dao<T> dao, T entity) {
+        Changes<T> changes = changesOf(dao);
+        changes.deleted.remove(entity.getId());
+        changes.saved.put(entity.getId(), entity);
+    }
+
+    /**
+     * Buffers the update of an existing entity. Updating an entity inserted within the same
+     * transaction only replaces the inserted instance.
+     *
+     * @param dao    the DAO of the entity
+     * @param entity the entity with updated data
+     * @param <T>    the entity type
+     */
+    <T extends Entity> void update(Dao<T> dao, T entity) {
+        Changes<T> changes = changesOf(dao);
+        if (changes.saved.containsKey(entity.getId())) {
+            changes.saved.put(entity.getId(), entity);
+        } else {
+            changes.updated.put(entity.getId(), entity);
+        }
+    }
+
+    /**
+     * Buffers the deletion of an entity. Deleting an entity inserted within the same
+     * transaction only drops the insertion.
+     *
+     * @param dao the DAO of the entity
+     * @param id  the id of the entity to delete
+     * @param <T> the entity type
+     */
+    <T extends Entity> void delete(Dao<T> dao, UUID id) {
+        Changes<T> changes = changesOf(dao);
+        if (changes.saved.remove(id) == null) {
+            changes.updated.remove(id);
+            changes.deleted.add(id);
+        }
+    }
+
+    /**
+     * Writes all buffered changes.
+     *
+     * @throws ValidationException if a change fails validation or refers to a missing entity, in which case
+     *                             nothing is written, or if writing fails, in which case everything written
+     *                             is rolled back
+     * @throws IllegalStateException if the transaction has already been committed
+     */
+    void commit() throws ValidationException {
+        if (committed) {
+            throw new IllegalStateException("Transaction already committed");
+        }
+        committed = true;
+        List<Changes<?>> ordered = new ArrayList<>(changes.values());
+        // Lock the DAOs in a fixed order, so that concurrent transactions cannot deadlock
+        ordered.sort(Comparator.comparingLong(c -> c.dao.lockOrder()));
+        int locked = 0;
+        try {
+            for (Changes<?> c : ordered) {
+                c.dao.writeLock().lock();
+                locked++;
+            }
+            commitLocked(ordered);
+            for (Changes<?> c : ordered) {
+                c.publish();
+            }
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                ordered.get(i).dao.writeLock().unlock();
+            }
+        }
+        for (Changes<?> c : ordered) {
+            c.dao.deliverEvents();
+        }
+    }
+
+    /**
+     * Checks and writes the changes, with the write locks of all DAOs held.
+     *
+     * @param ordered changes in locking order
+     * @throws ValidationException if the commit fails
+     */
+    private void commitLocked(List<Changes<?>> ordered) throws ValidationException {
+        for (Changes<?> c : ordered) {
+            try {
+                c.check();
+            } catch (ValidationException e) {
+                ordered.forEach(other -> other.dao.invalidate());
+                throw e;
+            }
+        }
+        int written = 0;
+        try {
+            // The last batch is never rolled back, so its persisted state is not needed
+            for (int i = 0; i < ordered.size() - 1; i++) {
+                ordered.get(i).readPersisted();
+            }
+            for (Changes<?> c : ordered) {
+                c.write();
+                written++;
+            }
+        } catch (IOException e) {
+            for (int i = written - 1; i >= 0; i--) {
+                try {
+                    ordered.get(i).rollback();
+                } catch (IOException ignored) {
+                    // nothing more can be done, the cache is dropped below
+                }
+            }
+            ordered.forEach(c -> c.dao.invalidate());
+            throw new ValidationException(Dao.failureKey(e, "transaction.failed"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Entity> Changes<T> changesOf(Dao<T> dao) {
+        return (Changes<T>) changes.computeIfAbsent(dao, Changes::new);
+    }
+}
@@ -0,0 +1,222 @@
+package pl.edu.wit.studentManagement.service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Redo log protecting in-place writes to a {@link DataStreamHandler} file against crashes.
+ * <p>
+ * Before a set of positional writes is applied to the data file, it is appended to the log as one
+ * transaction of the form {@code [payload length][CRC32][payload]} and the log is forced to disk. The
+ * payload lists the writes as {@code [position][length][bytes]}. A transaction whose length or checksum
+ * does not match was cut short by a crash and was never applied, so it is discarded on recovery, together
+ * with everything after it. Complete transactions are replayed on recovery; replaying a write that has
+ * already reached the data file is harmless, as it stores the same bytes again.
+ * <p>
+ * Committed transactions stay in the log until a checkpoint forces the data file to disk and empties
+ * the log, which happens once the log grows past {@link #CHECKPOINT_SIZE} and before the data file is
+ * replaced as a whole.
+ */
+class WriteAheadLog {
+    /** Magic number opening every log file ("SMWL") */
+    private static final int MAGIC = 0x534D574C;
+    /** Size of the header in bytes */
+    private static final int HEADER_SIZE = 4;
+    /** Size of the header of a single transaction in bytes */
+    private static final int TRANSACTION_HEADER_SIZE = 4 + 4;
+    /** Size of the log after which the next commit checkpoints it first */
+    static final long CHECKPOINT_SIZE = 1024 * 1024;
+
+    /**
+     * A single positional write to the data file.
+     */
+    static final class Write {
+        /** Position in the data file */
+        final long position;
+        /** Bytes to write */
+        final byte[] bytes;
+
+        /**
+         * Constructs a write of the given bytes at the given position.
+         *
+         * @param position position in the data file
+         * @param bytes    bytes to write
+         */
+        Write(long position, byte[] bytes) {
+            this.position = position;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Path of the log file.
+     */
+    private final Path path;
+
+    /**
+     * Constructs a log stored at the given path. The file is created by the first commit.
+     *
+     * @param path path of the log file
+     */
+    WriteAheadLog(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the path of the log file.
+     *
+     * @return log file path
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Appends the writes as a single transaction and forces the log to disk.
+     * Once this method returns, the writes survive a crash even if they never reach the data file.
+     *
+     * @param writes writes to log
+     * @throws IOException if an I/O error occurs during writing
+     */
+    void commit(List<Write> writes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        for (Write write : writes) {
+            payload.writeLong(write.position);
+            payload.writeInt(write.bytes.length);
+            payload.write(write.bytes);
+        }
+        byte[] body = bytes.toByteArray();
+        ByteBuffer transaction = ByteBuffer.allocate(TRANSACTION_HEADER_SIZE + body.length)
+                .putInt(body.length)
+                .putInt(checksum(body))
+                .put(body);
+        transaction.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = channel.size();
+            if (position < HEADER_SIZE) {
+                channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+                position = HEADER_SIZE;
+            }
+            while (transaction.hasRemaining()) {
+                position += channel.write(transaction, position);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Checks whether the log has grown large enough to be checkpointed.
+     *
+     * @return true if the log should be checkpointed
+     */
+    boolean needsCheckpoint() {
+        return Files.exists(path) && path.toFile().length() >= CHECKPOINT_SIZE;
+    }
+
+    /**
+     * Forces the data file to disk and empties the log, as all its transactions have been applied.
+     *
+     * @param data channel of the data file, or {@code null} if the data file does not exist
+     * @throws IOException if an I/O error occurs
+     */
+    void checkpoint(FileChannel data) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        if (data != null) {
+            data.force(false);
+        }
+        Files.delete(path);
+    }
+
+    /**
+     * Replays all complete transactions of the log onto the data file, discards an incomplete one
+     * and empties the log.
+     *
+     * @param data channel of the data file, open for writing
+     * @return number of replayed transactions
+     * @throws IOException if an I/O error occurs
+     */
+    int recover(FileChannel data) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        List<List<Write>> transactions = read();
+        for (List<Write> writes : transactions) {
+            for (Write write : writes) {
+                ByteBuffer buffer = ByteBuffer.wrap(write.bytes);
+                long position = write.position;
+                while (buffer.hasRemaining()) {
+                    position += data.write(buffer, position);
+                }
+            }
+        }
+        checkpoint(data);
+        return transactions.size();
+    }
+
+    /**
+     * Reads the complete transactions of the log, stopping at the first incomplete or corrupted one.
+     *
+     * @return writes of every complete transaction, in commit order
+     * @throws IOException if an I/O error occurs during reading
+     */
+    private List<List<Write>> read() throws IOException {
+        List<List<Write>> transactions = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long size = Files.size(path);
+            if (size < HEADER_SIZE || in.readInt() != MAGIC) {
+                return transactions;
+            }
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || length > size) {
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    if (checksum != checksum(body)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                List<Write> writes = new ArrayList<>();
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body));
+                while (payload.available() > 0) {
+                    long position = payload.readLong();
+                    byte[] bytes = new byte[payload.readInt()];
+                    payload.readFully(bytes);
+                    writes.add(new Write(position, bytes));
+                }
+                transactions.add(writes);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Computes the checksum of a transaction payload.
+     *
+     * @param body payload bytes
+     * @return checksum value
+     */
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
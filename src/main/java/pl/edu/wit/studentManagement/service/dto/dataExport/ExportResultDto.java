@@ -0,0 +1,44 @@
+package pl.edu.wit.studentManagement.service.dto.dataExport;
+
+/**
+ * Data Transfer Object summarizing a bulk export of grade matrices.
+ */
+public class ExportResultDto {
+    /**
+     * Number of files written, one per exported matrix.
+     */
+    private final int files;
+    /**
+     * Number of student rows written over all files, excluding headers.
+     */
+    private final long rows;
+    /**
+     * Wall-clock duration of the export in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Constructs an ExportResultDto.
+     *
+     * @param files        number of files written
+     * @param rows         number of student rows written
+     * @param elapsedNanos duration of the export in nanoseconds
+     */
+    public ExportResultDto(int files, long rows, long elapsedNanos) {
+        this.files = files;
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
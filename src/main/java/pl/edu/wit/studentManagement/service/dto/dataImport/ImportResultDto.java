@@ -0,0 +1,66 @@
+package pl.edu.wit.studentManagement.service.dto.dataImport;
+
+/**
+ * Data Transfer Object summarizing a bulk import of a CSV file.
+ * <p>
+ * Rows that could not be imported are not part of the import; they are listed together with the reason
+ * in an error file, which exists only if {@link #getFailedRows()} is positive.
+ */
+public class ImportResultDto {
+    /**
+     * Number of data rows read, excluding the header and blank lines.
+     */
+    private final long readRows;
+    /**
+     * Number of rows that were imported.
+     */
+    private final long importedRows;
+    /**
+     * Number of rows that were rejected and written to the error file.
+     */
+    private final long failedRows;
+    /**
+     * Wall-clock duration of the import in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Constructs an ImportResultDto.
+     *
+     * @param readRows     number of data rows read
+     * @param importedRows number of imported rows
+     * @param failedRows   number of rejected rows
+     * @param elapsedNanos duration of the import in nanoseconds
+     */
+    public ImportResultDto(long readRows, long importedRows, long failedRows, long elapsedNanos) {
+        this.readRows = readRows;
+        this.importedRows = importedRows;
+        this.failedRows = failedRows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getReadRows() {
+        return readRows;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the throughput of the import.
+     *
+     * @return rows read per second, or 0 if no time was measured
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos <= 0 ? 0 : readRows * 1_000_000_000.0 / elapsedNanos;
+    }
+}
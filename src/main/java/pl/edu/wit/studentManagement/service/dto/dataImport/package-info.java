@@ -0,0 +1,4 @@
+/**
+ * Contains DTO classes describing the outcome of bulk data imports.
+ */
+package pl.edu.wit.studentManagement.service.dto.dataImport;
@@ -2,6 +2,7 @@ package pl.edu.wit.studentManagement.view.fragments;
 
 import pl.edu.wit.studentManagement.exceptions.ValidationException;
 import pl.edu.wit.studentManagement.service.*;
+import pl.edu.wit.studentManagement.service.dto.dataExport.ExportResultDto;
 import pl.edu.wit.studentManagement.service.dto.grade.AssignGradeDto;
 import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
 import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
@@ -32,12 +33,17 @@ public class GradesFragment implements Fragment {
     private final JComboBox<StudentGroupDto> groupComboBox;
     private final JTable gradesTable;
     private final DefaultTableModel tableModel;
+    /**
+     * Matrix currently displayed in the table, rows are in the same order as table rows
+     */
+    private GradeMatrixDto currentMatrix;
 
     private final GradeService gradeService = ServiceFactory.getGradeService();
     private final SubjectService subjectService = ServiceFactory.getSubjectService();
     private final StudentGroupService studentGroupService = ServiceFactory.getStudentGroupService();
     private final GradeQueryService gradeQueryService = ServiceFactory.getGradeQueryService();
     private final StudentGroupSubjectAssignmentService groupSubjectAssignmentService = ServiceFactory.getStudentGroupSubjectAssignmentService();
+    private final GradeExportService gradeExportService = ServiceFactory.getGradeExportService();
 
     public JPanel getPanel() {
         return panel;
@@ -99,10 +105,14 @@ public class GradesFragment implements Fragment {
         actionsPanel.setLayout(new BoxLayout(actionsPanel, BoxLayout.X_AXIS));
         actionsPanel.setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
         JButton setGradeButton = new JButton(Translator.translate("grade.set"));
+        JButton exportButton = new JButton(Translator.translate("grade.exportAll"));
         actionsPanel.add(setGradeButton);
+        actionsPanel.add(Box.createHorizontalStrut(8));
+        actionsPanel.add(exportButton);
         panel.add(actionsPanel, BorderLayout.SOUTH);
 
         setGradeButton.addActionListener(e -> handleSetGrade());
+        exportButton.addActionListener(e -> handleExportAll());
 
         gradesTable.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
@@ -123,6 +133,27 @@ public class GradesFragment implements Fragment {
         refreshTable();
     }
 
+    private void handleExportAll() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showSaveDialog(panel) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        var directory = chooser.getSelectedFile().toPath();
+        AppWindow.threadPool.submit(() -> {
+            try {
+                ExportResultDto result = gradeExportService.exportGradeMatrices(directory, ExportFormat.CSV);
+                String message = String.format(Translator.translate("export.summary"),
+                        result.getFiles(), result.getRows(), result.getElapsedNanos() / 1e9, directory);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(panel, message,
+                        Translator.translate("information"), JOptionPane.INFORMATION_MESSAGE));
+            } catch (ValidationException ex) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(panel,
+                        Translator.translate(ex.getMessageKey()), Translator.translate("error"), JOptionPane.ERROR_MESSAGE));
+            }
+        });
+    }
+
     private void updateGroupsComboBox() {
         groupComboBox.removeAllItems();
 
@@ -168,6 +199,7 @@ public class GradesFragment implements Fragment {
         SubjectDto selectedSubject = (SubjectDto) subjectComboBox.getSelectedItem();
         StudentGroupDto selectedGroup = (StudentGroupDto) groupComboBox.getSelectedItem();
         if (selectedSubject == null || selectedGroup == null) {
+            currentMatrix = null;
             tableModel.setRowCount(0);
             tableModel.setColumnCount(0);
             return;
@@ -184,6 +216,7 @@ public class GradesFragment implements Fragment {
             }
 
             SwingUtilities.invokeLater(() -> {
+                currentMatrix = matrix;
                 tableModel.setColumnIdentifiers(columns);
 
                 tableModel.setRowCount(0);
@@ -203,7 +236,8 @@ public class GradesFragment implements Fragment {
 
     private void handleSetGrade() {
         int selectedRow = gradesTable.getSelectedRow();
-        if (selectedRow == -1) {
+        GradeMatrixDto matrix = currentMatrix;
+        if (selectedRow == -1 || matrix == null || selectedRow >= matrix.getRows().size()) {
             JOptionPane.showMessageDialog(panel, Translator.translate("student.notSelected"), Translator.translate("information"), JOptionPane.INFORMATION_MESSAGE);
             return;
         }
@@ -233,9 +267,6 @@ public class GradesFragment implements Fragment {
             return;
         }
 
-        GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(
-                selectedSubject.getId(), selectedGroup.getId());
-
         GradeMatrixRowDto studentRow = matrix.getRows().get(selectedRow);
         String studentName = studentRow.getStudentName();
 
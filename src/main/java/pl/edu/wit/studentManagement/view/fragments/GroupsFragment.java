@@ -342,12 +342,10 @@ public class GroupsFragment implements Fragment {
             return;
 
         StudentGroupDto group = groups.get(selectedGroupRow);
-        for (var studentId : result.studentIds) {
-            try {
-                studentService.assignStudentToGroup(studentId, group.getId());
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(panel, Translator.translate(ex.getMessage()), Translator.translate("error"), JOptionPane.ERROR_MESSAGE);
-            }
+        try {
+            studentService.assignStudentsToGroup(result.studentIds, group.getId());
+        } catch (ValidationException ex) {
+            JOptionPane.showMessageDialog(panel, Translator.translate(ex.getMessageKey()), Translator.translate("error"), JOptionPane.ERROR_MESSAGE);
         }
         reloadGroupStudents(group.getId());
     }
@@ -1,8 +1,11 @@
 package pl.edu.wit.studentManagement.view.fragments;
 
 import pl.edu.wit.studentManagement.exceptions.ValidationException;
+import pl.edu.wit.studentManagement.service.ImportService;
 import pl.edu.wit.studentManagement.service.ServiceFactory;
+import pl.edu.wit.studentManagement.service.StudentSearchResult;
 import pl.edu.wit.studentManagement.service.StudentService;
+import pl.edu.wit.studentManagement.service.dto.dataImport.ImportResultDto;
 import pl.edu.wit.studentManagement.service.dto.student.StudentDto;
 import pl.edu.wit.studentManagement.service.dto.student.UpdateStudentDto;
 import pl.edu.wit.studentManagement.translations.Translator;
@@ -13,10 +16,13 @@ import pl.edu.wit.studentManagement.view.interfaces.Fragment;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.AbstractTableModel;
 import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Fragment for managing students in the application
@@ -24,18 +30,35 @@ import java.util.UUID;
  * @author Wojciech Berdowski
  */
 public class StudentsFragment implements Fragment {
+    /** Time after the last keystroke before the search runs, in milliseconds */
+    private static final int SEARCH_DELAY_MILLIS = 250;
+    /** Maximum number of album numbers suggested while typing */
+    private static final int ALBUM_SUGGESTIONS = 8;
+    /** Number of students loaded first, enough to fill the visible part of the table */
+    private static final int FIRST_PAGE_SIZE = 100;
+    /** Number of students appended at a time once the first page is shown */
+    private static final int PAGE_SIZE = 2000;
+
     private final JPanel panel;
     private JTable studentsTable;
     private JTextField firstNameField, lastNameField, albumField;
-    private DefaultTableModel tableModel;
+    private StudentsTableModel tableModel;
     private final StudentService studentService = ServiceFactory.getStudentService();
-    private List<StudentDto> currentStudents;
+    private final ImportService importService = ServiceFactory.getImportService();
     private JTextField searchField;
+    /** Runs the search once typing has paused, restarted by every change of the search field */
+    private final Timer searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> reloadStudents());
+    /** Incremented by every reload; results of a reload that is no longer the latest are discarded */
+    private final AtomicLong reloadGeneration = new AtomicLong();
+    /** The latest reload submitted to the thread pool, accessed on the event dispatch thread only */
+    private Future<?> pendingReload;
+    /** Album numbers starting with the text of the search field, shown below it */
+    private final JPopupMenu albumSuggestions = new JPopupMenu();
 
     public StudentsFragment() {
         panel = new JPanel(new BorderLayout());
 
-        currentStudents = new ArrayList<>();
+        searchTimer.setRepeats(false);
 
         var leftPanel = createLeftPanel();
         var rightPanel = createDetailsPanel();
@@ -64,14 +87,7 @@ public class StudentsFragment implements Fragment {
 
         leftPanel.add(topPanel, BorderLayout.NORTH);
 
-        String[] columnNames = {Translator.translate("first.name"), Translator.translate("last.name"), Translator.translate("student.id")};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        refreshTableData(currentStudents);
+        tableModel = new StudentsTableModel();
 
         studentsTable = new JTable(tableModel);
         studentsTable.setRowHeight(28);
@@ -91,13 +107,17 @@ public class StudentsFragment implements Fragment {
 
         JButton addButton = new JButton(Translator.translate("student.add"));
         JButton removeButton = new JButton(Translator.translate("student.delete"));
+        JButton importButton = new JButton(Translator.translate("student.import"));
 
         actionsPanel.add(addButton);
         actionsPanel.add(Box.createHorizontalStrut(8));
         actionsPanel.add(removeButton);
+        actionsPanel.add(Box.createHorizontalStrut(8));
+        actionsPanel.add(importButton);
 
         addButton.addActionListener(this::handleAddStudentButton);
         removeButton.addActionListener(this::handleRemoveStudentButton);
+        importButton.addActionListener(this::handleImportStudentsButton);
 
         leftPanel.add(actionsPanel, BorderLayout.SOUTH);
 
@@ -115,18 +135,26 @@ public class StudentsFragment implements Fragment {
         searchPanel.add(searchLabel, BorderLayout.WEST);
         searchPanel.add(searchField, BorderLayout.CENTER);
 
+        albumSuggestions.setFocusable(false);
+        searchField.addFocusListener(new java.awt.event.FocusAdapter() {
+            @Override
+            public void focusLost(java.awt.event.FocusEvent e) {
+                albumSuggestions.setVisible(false);
+            }
+        });
+
         searchField.addActionListener(e -> reloadStudents());
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
             public void insertUpdate(javax.swing.event.DocumentEvent e) {
-                reloadStudents();
+                searchTimer.restart();
             }
 
             public void removeUpdate(javax.swing.event.DocumentEvent e) {
-                reloadStudents();
+                searchTimer.restart();
             }
 
             public void changedUpdate(javax.swing.event.DocumentEvent e) {
-                reloadStudents();
+                searchTimer.restart();
             }
         });
 
@@ -187,8 +215,8 @@ public class StudentsFragment implements Fragment {
 
         int selectedRow = studentsTable.getSelectedRow();
 
-        if (selectedRow != -1 && selectedRow < currentStudents.size()) {
-            StudentDto selected = currentStudents.get(selectedRow);
+        if (selectedRow != -1 && selectedRow < tableModel.getRowCount()) {
+            StudentDto selected = tableModel.getStudent(selectedRow);
             firstNameField.setText(selected.getFirstName());
             lastNameField.setText(selected.getLastName());
             albumField.setText(selected.getAlbum());
@@ -218,7 +246,7 @@ public class StudentsFragment implements Fragment {
 
     private void handleRemoveStudentButton(ActionEvent e) {
         int selectedRow = studentsTable.getSelectedRow();
-        if (selectedRow == -1 || selectedRow >= currentStudents.size())
+        if (selectedRow == -1 || selectedRow >= tableModel.getRowCount())
             return;
 
         int result = JOptionPane.showConfirmDialog(
@@ -231,7 +259,7 @@ public class StudentsFragment implements Fragment {
         if (result != JOptionPane.YES_OPTION)
             return;
 
-        UUID id = currentStudents.get(selectedRow).getId();
+        UUID id = tableModel.getStudent(selectedRow).getId();
         try {
             studentService.deleteStudent(id);
             reloadStudents();
@@ -240,12 +268,41 @@ public class StudentsFragment implements Fragment {
         }
     }
 
+    private void handleImportStudentsButton(ActionEvent e) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV", "csv"));
+        if (chooser.showOpenDialog(panel) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        Path source = chooser.getSelectedFile().toPath();
+        Path errorFile = source.resolveSibling(source.getFileName() + ".errors.csv");
+        AppWindow.threadPool.submit(() -> {
+            try {
+                ImportResultDto result = importService.importStudents(source, errorFile);
+                String message = String.format(Translator.translate("import.summary"),
+                        result.getImportedRows(), result.getReadRows(), result.getRowsPerSecond());
+                if (result.getFailedRows() > 0) {
+                    message += "\n" + String.format(Translator.translate("import.summary.errors"), errorFile);
+                }
+                String summary = message;
+                SwingUtilities.invokeLater(() -> {
+                    reloadStudents();
+                    JOptionPane.showMessageDialog(panel, summary, Translator.translate("information"),
+                            JOptionPane.INFORMATION_MESSAGE);
+                });
+            } catch (ValidationException ex) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(panel,
+                        Translator.translate(ex.getMessageKey()), Translator.translate("error"), JOptionPane.ERROR_MESSAGE));
+            }
+        });
+    }
+
     private void handleSaveStudentButton() {
         int selectedRow = studentsTable.getSelectedRow();
-        if (selectedRow == -1 || selectedRow >= currentStudents.size())
+        if (selectedRow == -1 || selectedRow >= tableModel.getRowCount())
             return;
 
-        StudentDto selected = currentStudents.get(selectedRow);
+        StudentDto selected = tableModel.getStudent(selectedRow);
         UpdateStudentDto updateDto = new UpdateStudentDto();
         updateDto.setFirstName(firstNameField.getText());
         updateDto.setLastName(lastNameField.getText());
@@ -265,39 +322,186 @@ public class StudentsFragment implements Fragment {
         reloadStudents(null);
     }
 
+    /**
+     * Reloads the students matching the search field in the background and shows them, selecting the given
+     * student if found. All pages are read from a single search result, so no student is shown twice or
+     * left out. The first page of students is shown as soon as it is loaded, the rest are appended page by
+     * page. A reload supersedes the previous one: if that has not started yet it is cancelled,
+     * otherwise its results are discarded, so the table always shows the results of the latest query.
+     * Album numbers starting with the query are suggested below the search field.
+     * Must be called on the event dispatch thread.
+     *
+     * @param studentIdToSelect id of the student to select after reloading, or null
+     */
     private void reloadStudents(UUID studentIdToSelect) {
-        String query = searchField.getText();
+        searchTimer.stop();
+        String query = searchField.getText() == null || searchField.getText().isBlank() ? "" : searchField.getText();
+        long generation = reloadGeneration.incrementAndGet();
+        if (pendingReload != null) {
+            // not interrupted, as an interrupt closes the file channels of the data handlers
+            pendingReload.cancel(false);
+        }
 
-        AppWindow.threadPool.submit(() -> {
-            if (query == null || query.isBlank()) {
-                currentStudents = studentService.getAllStudents();
-            } else {
-                currentStudents = studentService.search(query);
-            }
+        pendingReload = AppWindow.threadPool.submit(() -> {
+            if (generation != reloadGeneration.get())
+                return;
+
+            StudentSearchResult result = studentService.searchResult(query);
+            List<StudentDto> firstPage = result.page(0, FIRST_PAGE_SIZE);
+            List<StudentDto> suggestions = query.trim().matches("[A-Za-z0-9]+")
+                    ? studentService.albumPrefix(query.trim(), ALBUM_SUGGESTIONS)
+                    : List.of();
             SwingUtilities.invokeLater(() -> {
-                refreshTableData(currentStudents);
-
-                if (studentIdToSelect != null) {
-                    int idx = -1;
-                    for (int i = 0; i < currentStudents.size(); i++) {
-                        if (currentStudents.get(i).getId().equals(studentIdToSelect)) {
-                            idx = i;
-                            break;
-                        }
-                    }
-                    if (idx != -1) {
-                        studentsTable.setRowSelectionInterval(idx, idx);
-                    }
-                }
+                if (generation != reloadGeneration.get())
+                    return;
+
+                tableModel.setStudents(firstPage);
+                updateDetailsPanel();
+                selectStudent(studentIdToSelect);
+                showAlbumSuggestions(suggestions, query);
             });
+            for (int offset = FIRST_PAGE_SIZE; offset < result.size(); offset += PAGE_SIZE) {
+                if (generation != reloadGeneration.get())
+                    return;
+
+                List<StudentDto> page = result.page(offset, PAGE_SIZE);
+                SwingUtilities.invokeLater(() -> {
+                    if (generation != reloadGeneration.get())
+                        return;
+
+                    tableModel.addStudents(page);
+                    if (studentsTable.getSelectedRow() == -1)
+                        selectStudent(studentIdToSelect);
+                });
+            }
         });
     }
 
-    private void refreshTableData(List<StudentDto> students) {
-        tableModel.setRowCount(0);
-        for (StudentDto s : students) {
-            tableModel.addRow(new Object[]{s.getFirstName(), s.getLastName(), s.getAlbum()});
+    /**
+     * Selects the row of the given student, if it is shown.
+     *
+     * @param studentId id of the student to select, or null to select nothing
+     */
+    private void selectStudent(UUID studentId) {
+        if (studentId == null)
+            return;
+
+        int idx = tableModel.indexOf(studentId);
+        if (idx != -1) {
+            studentsTable.setRowSelectionInterval(idx, idx);
+        }
+    }
+
+    /**
+     * Shows the suggested album numbers below the search field, or hides them if there is nothing to
+     * suggest beyond the album number already typed. Choosing a suggestion searches for it and selects
+     * the student.
+     *
+     * @param suggestions students whose album number starts with the query
+     * @param query the text of the search field the suggestions were made for
+     */
+    private void showAlbumSuggestions(List<StudentDto> suggestions, String query) {
+        albumSuggestions.setVisible(false);
+        albumSuggestions.removeAll();
+        if (suggestions.isEmpty() || !searchField.isFocusOwner())
+            return;
+        if (suggestions.size() == 1 && suggestions.get(0).getAlbum().equalsIgnoreCase(query.trim()))
+            return;
+
+        for (StudentDto s : suggestions) {
+            JMenuItem item = new JMenuItem(s.getAlbum() + "  " + s.getFirstName() + " " + s.getLastName());
+            item.addActionListener(e -> {
+                searchField.setText(s.getAlbum());
+                reloadStudents(s.getId());
+            });
+            albumSuggestions.add(item);
+        }
+        albumSuggestions.show(searchField, 0, searchField.getHeight());
+    }
+
+    /**
+     * Table model backed directly by the list of shown students. Cells are read from the students when the
+     * table paints them, so only the visible rows are ever rendered, and replacing or extending the list
+     * fires a single event instead of one per row.
+     */
+    private static class StudentsTableModel extends AbstractTableModel {
+        private final String[] columnNames = {Translator.translate("first.name"), Translator.translate("last.name"), Translator.translate("student.id")};
+        private List<StudentDto> students = new ArrayList<>();
+
+        /**
+         * Replaces the shown students.
+         *
+         * @param students the students to show
+         */
+        void setStudents(List<StudentDto> students) {
+            this.students = new ArrayList<>(students);
+            fireTableDataChanged();
+        }
+
+        /**
+         * Appends students below the shown ones.
+         *
+         * @param more the students to append
+         */
+        void addStudents(List<StudentDto> more) {
+            if (more.isEmpty())
+                return;
+
+            int first = students.size();
+            students.addAll(more);
+            fireTableRowsInserted(first, students.size() - 1);
+        }
+
+        /**
+         * Returns the student shown in a row.
+         *
+         * @param row the row index
+         * @return the student
+         */
+        StudentDto getStudent(int row) {
+            return students.get(row);
+        }
+
+        /**
+         * Finds the row of a student.
+         *
+         * @param studentId id of the student
+         * @return the row index, or -1 if the student is not shown
+         */
+        int indexOf(UUID studentId) {
+            for (int i = 0; i < students.size(); i++) {
+                if (students.get(i).getId().equals(studentId))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int getRowCount() {
+            return students.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            StudentDto student = students.get(row);
+            switch (column) {
+                case 0:
+                    return student.getFirstName();
+                case 1:
+                    return student.getLastName();
+                default:
+                    return student.getAlbum();
+            }
         }
-        updateDetailsPanel();
     }
 }
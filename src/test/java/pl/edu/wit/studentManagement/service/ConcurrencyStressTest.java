@@ -0,0 +1,303 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.wit.studentManagement.service.dto.grade.AssignGradeDto;
+import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
+import pl.edu.wit.studentManagement.service.dto.gradeCriterion.UpdateGradeCriterionDto;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixRowDto;
+import pl.edu.wit.studentManagement.service.dto.student.CreateStudentDto;
+import pl.edu.wit.studentManagement.service.dto.student.StudentDto;
+import pl.edu.wit.studentManagement.service.dto.student.UpdateStudentDto;
+import pl.edu.wit.studentManagement.service.dto.studentGroup.CreateStudentGroupDto;
+import pl.edu.wit.studentManagement.service.dto.studentGroup.UpdateStudentGroupDto;
+import pl.edu.wit.studentManagement.service.dto.studentGroupSubjectAssignment.CreateStudentGroupSubjectAssignmentDto;
+import pl.edu.wit.studentManagement.service.dto.studentGroupSubjectAssignment.StudentGroupSubjectAssignmentDto;
+import pl.edu.wit.studentManagement.service.dto.subject.UpdateSubjectDto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test of the read-write locking of {@link Dao} and {@link DataStreamHandler}: services are called
+ * from many threads at once, mixing reads and writes, and the files are then checked for integrity with
+ * fresh handlers. DAOs are real, backed by handlers writing to a temporary directory.
+ */
+@DisplayName("Concurrency Stress Test Suite")
+class ConcurrencyStressTest {
+    private static final int THREADS = 8;
+    private static final int STUDENTS_PER_THREAD = 40;
+
+    @TempDir
+    Path tempDir;
+
+    private Dao<Student> studentDao;
+    private Dao<StudentGroup> groupDao;
+    private Dao<Grade> gradeDao;
+    private Dao<Subject> subjectDao;
+    private Dao<GradeCriterion> criterionDao;
+    private Dao<StudentGroupSubjectAssignment> assignmentDao;
+    private StudentService studentService;
+    private GradeService gradeService;
+    private StudentGroupService studentGroupService;
+    private SubjectService subjectService;
+    private GradeQueryService gradeQueryService;
+    private StudentGroupSubjectAssignmentService assignmentService;
+    private Subject subject;
+    private GradeCriterion criterion;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var studentHandler = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString());
+        var groupHandler = new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString());
+        var subjectHandler = new SubjectDataStreamHandler(tempDir.resolve("subject.dat").toString());
+        var criterionHandler = new GradeCriterionDataStreamHandler(tempDir.resolve("gradeCriterion.dat").toString());
+        var gradeHandler = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString());
+        var assignmentHandler = new StudentGroupSubjectAssignmentDataStreamHandler(
+                tempDir.resolve("studentGroupSubject.dat").toString());
+        studentHandler.setStorageMode(StorageMode.APPEND_LOG);
+        groupHandler.setStorageMode(StorageMode.APPEND_LOG);
+        gradeHandler.setStorageMode(StorageMode.FIXED_SLOTS);
+
+        subject = new Subject("Matematyka");
+        subjectHandler.writeAll(List.of(subject));
+        criterion = new GradeCriterion("Kolokwium", (byte) 20, subject.getId());
+        criterionHandler.writeAll(List.of(criterion));
+
+        studentDao = new Dao<>(studentHandler);
+        groupDao = new Dao<>(groupHandler);
+        gradeDao = new Dao<>(gradeHandler);
+        subjectDao = new Dao<>(subjectHandler);
+        criterionDao = new Dao<>(criterionHandler);
+        assignmentDao = new Dao<>(assignmentHandler);
+        studentService = new StudentService(studentDao, groupDao, gradeDao);
+        gradeService = new GradeService(gradeDao, studentDao, criterionDao, subjectDao);
+        studentGroupService = new StudentGroupService(groupDao, studentDao);
+        subjectService = new SubjectService(subjectDao, criterionDao, gradeDao);
+        gradeQueryService = new GradeQueryService(gradeDao, studentDao, criterionDao);
+        assignmentService = new StudentGroupSubjectAssignmentService(assignmentDao);
+    }
+
+    @Test
+    @DisplayName("Given many threads reading and writing, when they finish, then no call fails and files match the DAOs")
+    void givenManyThreadsReadingAndWriting_whenFinished_thenNoFailuresAndFilesMatchDaos() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<UUID>>> futures = new ArrayList<>();
+
+        // Act
+        for (int thread = 0; thread < THREADS; thread++) {
+            int number = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<UUID> created = new ArrayList<>();
+                for (int i = 0; i < STUDENTS_PER_THREAD; i++) {
+                    StudentDto student = studentService.createStudent(
+                            new CreateStudentDto("Student", "Number" + i, String.format("T%d%04d", number, i)));
+                    created.add(student.getId());
+                    gradeService.assignGrade(new AssignGradeDto(
+                            subject.getId(), criterion.getId(), student.getId(), (byte) (i % 20)));
+                    if (i % 5 == 0) {
+                        gradeService.assignGrade(new AssignGradeDto(
+                                subject.getId(), criterion.getId(), student.getId(), (byte) 20));
+                    }
+                    if (i % 7 == 0) {
+                        var update = new UpdateStudentDto();
+                        update.setLastName("Renamed" + i);
+                        studentService.updateStudent(student.getId(), update);
+                    }
+                    assertTrue(studentDao.get(student.getId()).isPresent());
+                    assertEquals(1, studentService.countGrades(student.getId()));
+                    studentService.getAllStudents();
+                }
+                return created;
+            }));
+        }
+        start.countDown();
+        Set<UUID> created = new HashSet<>();
+        for (Future<List<UUID>> future : futures) {
+            created.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(THREADS * STUDENTS_PER_THREAD, created.size());
+        Set<UUID> persistedStudents = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString())
+                .readAll().stream().map(Student::getId).collect(Collectors.toSet());
+        List<Grade> persistedGrades = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString()).readAll();
+        assertEquals(created, persistedStudents);
+        assertEquals(THREADS * STUDENTS_PER_THREAD, persistedGrades.size());
+        assertEquals(persistedStudents, persistedGrades.stream().map(Grade::getStudentId).collect(Collectors.toSet()));
+        for (Grade grade : persistedGrades) {
+            assertEquals(Optional.of(grade.getGrade()), gradeDao.get(grade.getId()).map(Grade::getGrade));
+        }
+        assertEquals(persistedStudents, studentDao.getAll().stream().map(Student::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("Given threads renaming subjects and moving students while others read matrices, when they finish, then files match the DAOs and matrices")
+    void givenRenamesAndMovesWhileMatricesRead_whenFinished_thenFilesMatchDaosAndMatrices() throws Exception {
+        // Arrange
+        UUID firstGroup = studentGroupService.create(new CreateStudentGroupDto("G1", "Informatyka", "")).getId();
+        UUID secondGroup = studentGroupService.create(new CreateStudentGroupDto("G2", "Informatyka", "")).getId();
+        List<UUID> students = new ArrayList<>();
+        for (int i = 0; i < STUDENTS_PER_THREAD; i++) {
+            UUID id = studentService.createStudent(
+                    new CreateStudentDto("Student", "Number" + i, String.format("M%04d", i))).getId();
+            studentService.assignStudentToGroup(id, firstGroup);
+            gradeService.assignGrade(new AssignGradeDto(subject.getId(), criterion.getId(), id, (byte) 1));
+            students.add(id);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int thread = 0; thread < THREADS; thread++) {
+            int number = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < STUDENTS_PER_THREAD; i++) {
+                    UUID student = students.get((number * 7 + i) % students.size());
+                    switch (number % 4) {
+                        case 0:
+                            var subjectUpdate = new UpdateSubjectDto();
+                            subjectUpdate.setName("Matematyka " + number + "-" + i);
+                            subjectService.updateSubject(subject.getId(), subjectUpdate);
+                            subjectService.updateGradeCriterion(criterion.getId(),
+                                    new UpdateGradeCriterionDto("Kolokwium " + number + "-" + i, null));
+                            break;
+                        case 1:
+                            studentService.assignStudentToGroup(student, i % 2 == 0 ? secondGroup : firstGroup);
+                            var groupUpdate = new UpdateStudentGroupDto();
+                            groupUpdate.setDescription("Opis " + number + "-" + i);
+                            studentGroupService.update(i % 2 == 0 ? firstGroup : secondGroup, groupUpdate);
+                            break;
+                        case 2:
+                            for (UUID group : List.of(firstGroup, secondGroup)) {
+                                GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(
+                                        subject.getId(), group);
+                                assertEquals(1, matrix.getCriteriaNames().size());
+                                for (GradeMatrixRowDto row : matrix.getRows()) {
+                                    assertTrue(students.contains(row.getStudentId()));
+                                    GradeDto grade = row.getGrades().get(0);
+                                    assertEquals(row.getStudentId(), grade.getStudentId());
+                                }
+                            }
+                            break;
+                        default:
+                            gradeService.assignGrade(new AssignGradeDto(
+                                    subject.getId(), criterion.getId(), student, (byte) (i % 20)));
+                            // each assigning thread works on its own group, so only it deletes its assignments
+                            UUID group = number / 4 % 2 == 0 ? firstGroup : secondGroup;
+                            assignmentService.createAssignment(
+                                    new CreateStudentGroupSubjectAssignmentDto(group, subject.getId()));
+                            List<StudentGroupSubjectAssignmentDto> assignments =
+                                    assignmentService.getAssignmentsByStudentGroup(group);
+                            if (i % 3 == 0) {
+                                assertTrue(assignmentService.deleteAssignment(assignments.get(0).getId()));
+                            }
+                            break;
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        var persistedSubject = new SubjectDataStreamHandler(tempDir.resolve("subject.dat").toString()).readAll();
+        var persistedCriterion = new GradeCriterionDataStreamHandler(tempDir.resolve("gradeCriterion.dat").toString())
+                .readAll();
+        var persistedGroups = new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString())
+                .readAll();
+        var persistedStudents = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString()).readAll();
+        var persistedGrades = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString()).readAll();
+        var persistedAssignments = new StudentGroupSubjectAssignmentDataStreamHandler(
+                tempDir.resolve("studentGroupSubject.dat").toString()).readAll();
+        assertEquals(subjectDao.get(subject.getId()).orElseThrow().getName(), persistedSubject.get(0).getName());
+        assertEquals(criterionDao.get(criterion.getId()).orElseThrow().getName(), persistedCriterion.get(0).getName());
+        for (StudentGroup group : persistedGroups) {
+            assertEquals(groupDao.get(group.getId()).orElseThrow().getDescription(), group.getDescription());
+        }
+        for (Student student : persistedStudents) {
+            assertEquals(studentDao.get(student.getId()).orElseThrow().getStudentGroupId(), student.getStudentGroupId());
+        }
+        assertEquals(students.size(), persistedGrades.size());
+        assertEquals(assignmentDao.getAll().stream().map(StudentGroupSubjectAssignment::getId).collect(Collectors.toSet()),
+                persistedAssignments.stream().map(StudentGroupSubjectAssignment::getId).collect(Collectors.toSet()));
+
+        Map<UUID, Byte> gradesByStudent = persistedGrades.stream()
+                .collect(Collectors.toMap(Grade::getStudentId, Grade::getGrade));
+        Set<UUID> matrixStudents = new HashSet<>();
+        for (UUID group : List.of(firstGroup, secondGroup)) {
+            GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(subject.getId(), group);
+            assertEquals(List.of(persistedCriterion.get(0).getName()), matrix.getCriteriaNames());
+            for (GradeMatrixRowDto row : matrix.getRows()) {
+                assertTrue(matrixStudents.add(row.getStudentId()));
+                assertEquals(group, studentDao.get(row.getStudentId()).orElseThrow().getStudentGroupId());
+                assertEquals(gradesByStudent.get(row.getStudentId()), row.getGrades().get(0).getGrade());
+            }
+        }
+        assertEquals(new HashSet<>(students), matrixStudents);
+    }
+
+    @Test
+    @DisplayName("Given transactions over two DAOs in opposite order, when committed concurrently, then none deadlocks")
+    void givenTransactionsInOppositeOrder_whenCommittedConcurrently_thenNoneDeadlocks() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int thread = 0; thread < THREADS; thread++) {
+            int number = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < STUDENTS_PER_THREAD; i++) {
+                    Transaction transaction = new Transaction();
+                    var group = new StudentGroup(String.format("G%d%04d", number, i), "Grupa", "");
+                    var student = new Student("Student", "Number" + i, String.format("T%d%04d", number, i));
+                    student.setStudentGroupId(group.getId());
+                    if (number % 2 == 0) {
+                        transaction.save(groupDao, group);
+                        transaction.save(studentDao, student);
+                    } else {
+                        transaction.save(studentDao, student);
+                        transaction.save(groupDao, group);
+                    }
+                    transaction.commit();
+                    groupDao.getAll();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        var groups = new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString()).readAll();
+        var students = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString()).readAll();
+        assertEquals(THREADS * STUDENTS_PER_THREAD, groups.size());
+        assertEquals(THREADS * STUDENTS_PER_THREAD, students.size());
+        assertEquals(groups.stream().map(StudentGroup::getId).collect(Collectors.toSet()),
+                students.stream().map(Student::getStudentGroupId).collect(Collectors.toSet()));
+    }
+}
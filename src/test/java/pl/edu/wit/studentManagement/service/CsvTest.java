@@ -0,0 +1,49 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link Csv}, verifying parsing and quoting of delimiter-separated lines.
+ */
+@DisplayName("Csv Test Suite")
+class CsvTest {
+
+    @Test
+    @DisplayName("Given quoted fields, when parsed, then quotes are removed and separators kept")
+    void givenQuotedFields_whenParsed_thenQuotesRemovedAndSeparatorsKept() {
+        // Act
+        List<String> fields = Csv.parse("a,\"b, c\",\"say \"\"hi\"\"\",,", Csv.COMMA);
+
+        // Assert
+        assertEquals(List.of("a", "b, c", "say \"hi\"", "", ""), fields);
+    }
+
+    @Test
+    @DisplayName("Given unterminated quote, when parsed, then throws")
+    void givenUnterminatedQuote_whenParsed_thenThrows() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> Csv.parse("a,\"b", Csv.COMMA));
+        assertThrows(IllegalArgumentException.class, () -> Csv.parse("\"a\"b,c", Csv.COMMA));
+    }
+
+    @Test
+    @DisplayName("Given fields needing quotes, when formatted and parsed, then fields are preserved")
+    void givenFieldsNeedingQuotes_whenFormattedAndParsed_thenPreserved() {
+        // Arrange
+        List<String> fields = List.of("plain", "tab\there", "comma,here", "quote\"here");
+
+        // Act
+        String csv = Csv.format(fields, Csv.COMMA);
+        String tsv = Csv.format(fields, Csv.TAB);
+
+        // Assert
+        assertEquals("plain,tab\there,\"comma,here\",\"quote\"\"here\"", csv);
+        assertEquals(fields, Csv.parse(csv, Csv.COMMA));
+        assertEquals(fields, Csv.parse(tsv, Csv.TAB));
+    }
+}
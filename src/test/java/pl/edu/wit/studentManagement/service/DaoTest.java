@@ -6,9 +6,14 @@ import org.junit.jupiter.api.Test;
 import pl.edu.wit.studentManagement.exceptions.ValidationException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -141,9 +146,282 @@ class DaoTest {
         assertFalse(result);
     }
 
+    @Test
+    @DisplayName("Given loaded cache, when get and getAll called repeatedly, then file is read only once")
+    void givenLoadedCache_whenReadRepeatedly_thenFileReadOnce() throws IOException {
+        // Arrange
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity));
+
+        // Act
+        dao.getAll();
+        dao.get(testEntity.getId());
+        dao.get(UUID.randomUUID());
+        List<TestEntity> result = dao.getAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(dataStreamHandler, times(1)).readAll();
+    }
+
+    @Test
+    @DisplayName("Given loaded cache, when entity saved and deleted, then changes are visible without reading the file")
+    void givenLoadedCache_whenEntitySavedAndDeleted_thenChangesVisibleWithoutReading() throws IOException, ValidationException {
+        // Arrange
+        when(dataStreamHandler.readAll()).thenReturn(List.of());
+        dao.getAll();
+
+        // Act
+        dao.save(testEntity);
+        Optional<TestEntity> afterSave = dao.get(testEntity.getId());
+        dao.delete(testEntity.getId());
+        Optional<TestEntity> afterDelete = dao.get(testEntity.getId());
+
+        // Assert
+        assertTrue(afterSave.isPresent());
+        assertTrue(afterDelete.isEmpty());
+        verify(dataStreamHandler, times(1)).readAll();
+    }
+
+    @Test
+    @DisplayName("Given file changed by another writer, when get called, then cache is reloaded")
+    void givenFileChangedByAnotherWriter_whenGetCalled_thenCacheReloaded() throws IOException {
+        // Arrange
+        when(dataStreamHandler.readAll()).thenReturn(List.of()).thenReturn(List.of(testEntity));
+        when(dataStreamHandler.fileLength()).thenReturn(10L);
+        dao.getAll();
+        when(dataStreamHandler.fileLength()).thenReturn(20L);
+
+        // Act
+        Optional<TestEntity> result = dao.get(testEntity.getId());
+
+        // Assert
+        assertTrue(result.isPresent());
+        verify(dataStreamHandler, times(2)).readAll();
+    }
+
+    @Test
+    @DisplayName("Given loaded cache, when invalidate called, then next read reloads the file")
+    void givenLoadedCache_whenInvalidateCalled_thenNextReadReloads() throws IOException {
+        // Arrange
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity));
+        dao.getAll();
+
+        // Act
+        dao.invalidate();
+        dao.getAll();
+
+        // Assert
+        verify(dataStreamHandler, times(2)).readAll();
+    }
+
+    @Test
+    @DisplayName("Given failed update, when get called, then cache is reloaded from file")
+    void givenFailedUpdate_whenGetCalled_thenCacheReloaded() throws IOException {
+        // Arrange
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity));
+        dao.getAll();
+        doThrow(IOException.class).when(dataStreamHandler).update(testEntity);
+
+        // Act
+        assertThrows(ValidationException.class, () -> dao.update(testEntity));
+        dao.getAll();
+
+        // Assert
+        verify(dataStreamHandler, times(2)).readAll();
+    }
+
+    @Test
+    @DisplayName("Given index, when entities saved, updated and deleted, then index lookups follow the changes")
+    void givenIndex_whenEntitiesMutated_thenIndexLookupsFollowChanges() throws IOException, ValidationException {
+        // Arrange
+        TestEntity other = new TestEntity(UUID.randomUUID());
+        testEntity.setCategory("a");
+        other.setCategory("a");
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity));
+        DaoIndex<TestEntity, String> index = dao.createIndex("category", TestEntity::getCategory);
+
+        // Act & Assert
+        assertEquals(List.of(testEntity), dao.findByIndex(index, "a"));
+
+        dao.save(other);
+        assertEquals(List.of(testEntity, other), dao.findByIndex(index, "a"));
+
+        other.setCategory("b");
+        dao.update(other);
+        assertEquals(List.of(testEntity), dao.findByIndex(index, "a"));
+        assertEquals(Optional.of(other), dao.findFirstByIndex(index, "b"));
+
+        dao.delete(other.getId());
+        assertTrue(dao.findFirstByIndex(index, "b").isEmpty());
+        verify(dataStreamHandler, times(1)).readAll();
+    }
+
+    @Test
+    @DisplayName("Given index declared under a name, when declared again under that name, then the same index is returned")
+    void givenIndexDeclared_whenDeclaredAgainUnderSameName_thenSameIndexReturned() {
+        // Arrange
+        DaoIndex<TestEntity, String> index = dao.createIndex("category", TestEntity::getCategory);
+
+        // Act
+        DaoIndex<TestEntity, String> again = dao.createIndex("category", TestEntity::getCategory);
+        DaoIndex<TestEntity, String> other = dao.createIndex("other", TestEntity::getCategory);
+
+        // Assert
+        assertSame(index, again);
+        assertNotSame(index, other);
+    }
+
+    @Test
+    @DisplayName("Given unique index, when a write would give two entities the same key, then it is rejected")
+    void givenUniqueIndex_whenWriteDuplicatesKey_thenRejected() throws IOException, ValidationException {
+        // Arrange
+        TestEntity other = new TestEntity(UUID.randomUUID());
+        testEntity.setCategory("A");
+        other.setCategory("B");
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity, other));
+        dao.createUniqueIndex("category", e -> e.getCategory().toUpperCase(Locale.ROOT), "category.exists");
+        TestEntity duplicate = new TestEntity(UUID.randomUUID());
+        duplicate.setCategory("a");
+
+        // Act
+        ValidationException saveEx = assertThrows(ValidationException.class, () -> dao.save(duplicate));
+        other.setCategory("a");
+        ValidationException updateEx = assertThrows(ValidationException.class, () -> dao.update(other));
+        testEntity.setCategory("b");
+        dao.updateAll(List.of(testEntity, other));
+
+        // Assert
+        assertEquals("category.exists", saveEx.getMessageKey());
+        assertEquals("category.exists", updateEx.getMessageKey());
+        verify(dataStreamHandler, never()).write(any());
+        verify(dataStreamHandler, never()).update(any());
+        verify(dataStreamHandler).writeBatch(List.of(testEntity, other), List.of());
+    }
+
+    @Test
+    @DisplayName("Given listener still handling a save, when the entity is deleted by another thread, then events arrive in commit order")
+    void givenListenerHandlingSave_whenDeletedByAnotherThread_thenEventsArriveInCommitOrder() throws Exception {
+        // Arrange
+        when(dataStreamHandler.readAll()).thenReturn(List.of());
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch deleted = new CountDownLatch(1);
+        dao.addListener(new DaoListener<>() {
+            @Override
+            public void saved(TestEntity entity) {
+                try {
+                    deleted.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add("saved");
+            }
+
+            @Override
+            public void deleted(TestEntity entity) {
+                received.add("deleted");
+            }
+        });
+
+        // Act
+        Thread saver = new Thread(() -> assertDoesNotThrow(() -> dao.save(testEntity)));
+        saver.start();
+        while (dao.get(testEntity.getId()).isEmpty()) {
+            Thread.onSpinWait();
+        }
+        Thread deleter = new Thread(() -> dao.delete(testEntity.getId()));
+        deleter.start();
+        while (dao.get(testEntity.getId()).isPresent()) {
+            Thread.onSpinWait();
+        }
+        deleted.countDown();
+        saver.join();
+        deleter.join();
+
+        // Assert
+        assertEquals(List.of("saved", "deleted"), received);
+    }
+
+    @Test
+    @DisplayName("Given several DAOs, when lock orders compared, then every DAO has its own position")
+    void givenSeveralDaos_whenLockOrdersCompared_thenEveryDaoHasItsOwnPosition() {
+        // Arrange
+        Dao<TestEntity> other = new Dao<>(dataStreamHandler);
+
+        // Act & Assert
+        assertTrue(dao.lockOrder() < other.lockOrder());
+        assertEquals(dao.lockOrder(), dao.lockOrder());
+    }
+
+    @Test
+    @DisplayName("Given composite index, when cache reloaded, then index is rebuilt")
+    void givenCompositeIndex_whenCacheReloaded_thenIndexRebuilt() throws IOException {
+        // Arrange
+        testEntity.setCategory("a");
+        TestEntity reloaded = new TestEntity(UUID.randomUUID());
+        reloaded.setCategory("b");
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity)).thenReturn(List.of(reloaded));
+        DaoIndex<TestEntity, IndexKey> index = dao.createIndex("category+1", e -> IndexKey.of(e.getCategory(), 1));
+        dao.getAll();
+
+        // Act
+        dao.invalidate();
+        Optional<TestEntity> oldKey = dao.findFirstByIndex(index, IndexKey.of("a", 1));
+        Optional<TestEntity> newKey = dao.findFirstByIndex(index, IndexKey.of("b", 1));
+
+        // Assert
+        assertTrue(oldKey.isEmpty());
+        assertEquals(Optional.of(reloaded), newKey);
+    }
+
+    @Test
+    @DisplayName("Given several entities, when saveAll called, then they are written in one batch and cached")
+    void givenSeveralEntities_whenSaveAllCalled_thenWrittenInOneBatchAndCached() throws Exception {
+        // Arrange
+        TestEntity other = new TestEntity(UUID.randomUUID());
+        when(dataStreamHandler.readAll()).thenReturn(List.of());
+
+        // Act
+        dao.saveAll(List.of(testEntity, other));
+
+        // Assert
+        verify(dataStreamHandler, times(1)).writeBatch(List.of(testEntity, other), List.of());
+        verify(dataStreamHandler, never()).write(any());
+        assertEquals(2, dao.getAll().size());
+    }
+
+    @Test
+    @DisplayName("Given one missing entity, when updateAll called, then throws and nothing is written")
+    void givenOneMissingEntity_whenUpdateAllCalled_thenThrowsAndNothingWritten() throws Exception {
+        // Arrange
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity));
+        TestEntity missing = new TestEntity(UUID.randomUUID());
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> dao.updateAll(List.of(testEntity, missing)));
+        verify(dataStreamHandler, never()).writeBatch(any(), any());
+    }
+
+    @Test
+    @DisplayName("Given existing entities, when deleteAll called, then they are deleted in one batch")
+    void givenExistingEntities_whenDeleteAllCalled_thenDeletedInOneBatch() throws Exception {
+        // Arrange
+        TestEntity other = new TestEntity(UUID.randomUUID());
+        when(dataStreamHandler.readAll()).thenReturn(List.of(testEntity, other));
+        List<UUID> ids = List.of(testEntity.getId(), other.getId());
+
+        // Act
+        boolean result = dao.deleteAll(ids);
+
+        // Assert
+        assertTrue(result);
+        verify(dataStreamHandler, times(1)).writeBatch(List.of(), ids);
+        assertTrue(dao.getAll().isEmpty());
+    }
+
     // Test helper class
     private static class TestEntity extends Entity {
         private final UUID id;
+        private String category;
 
         TestEntity(UUID id) {
             this.id = id;
@@ -160,5 +438,13 @@ class DaoTest {
         UUID getId() {
             return id;
         }
+
+        String getCategory() {
+            return category;
+        }
+
+        void setCategory(String category) {
+            this.category = category;
+        }
     }
 }
\ No newline at end of file
@@ -8,8 +8,12 @@ import pl.edu.wit.studentManagement.exceptions.ValidationException;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -113,6 +117,489 @@ class DataStreamHandlerTest {
         assertThrows(IOException.class, () -> handler.deleteById(UUID.randomUUID()));
     }
     
+    @Test
+    @DisplayName("Given non-existing entity, when update or deleteById fails, then change counter is unchanged")
+    void givenNonExistingEntity_whenUpdateOrDeleteByIdFails_thenChangeCountUnchanged() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        handler.write(new TestEntity("Test"));
+        long changeCount = handler.changeCount();
+
+        // Act
+        assertThrows(IOException.class, () -> handler.update(new TestEntity("Missing")));
+        assertThrows(IOException.class, () -> handler.deleteById(UUID.randomUUID()));
+
+        // Assert
+        assertEquals(changeCount, handler.changeCount());
+    }
+
+    @Test
+    @DisplayName("Given append log mode, when entities are written, updated and deleted, then new handler replays the same state")
+    void givenAppendLogMode_whenEntitiesMutated_thenNewHandlerReplaysSameState() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity first = new TestEntity("First");
+        TestEntity second = new TestEntity("Second");
+        TestEntity third = new TestEntity("Third");
+
+        // Act
+        handler.write(first);
+        handler.write(second);
+        handler.write(third);
+        handler.update(new TestEntity(first.getId(), "First updated"));
+        handler.deleteById(second.getId());
+        List<TestEntity> result = new TestDataStreamHandler(filePath).readAll();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(first.getId(), result.get(0).getId());
+        assertEquals("First updated", result.get(0).getName());
+        assertEquals(third.getId(), result.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Given append log mode, when entity is updated, then previous records are not rewritten")
+    void givenAppendLogMode_whenEntityUpdated_thenFileOnlyGrows() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity entity = new TestEntity("Test");
+        handler.write(entity);
+        byte[] before = Files.readAllBytes(Path.of(filePath));
+
+        // Act
+        handler.update(new TestEntity(entity.getId(), "Updated"));
+
+        // Assert
+        byte[] after = Files.readAllBytes(Path.of(filePath));
+        assertTrue(after.length > before.length);
+        for (int i = 0; i < before.length; i++) {
+            assertEquals(before[i], after[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Given append log mode, when updating or deleting non-existing entity, then throws IOException")
+    void givenAppendLogMode_whenMutatingNonExistingEntity_thenThrowsIOException() {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> handler.update(new TestEntity("Test")));
+        assertThrows(IOException.class, () -> handler.deleteById(UUID.randomUUID()));
+    }
+
+    @Test
+    @DisplayName("Given snapshot file, when switched to append log mode and written, then existing entities are kept")
+    void givenSnapshotFile_whenSwitchedToAppendLogAndWritten_thenExistingEntitiesKept() throws IOException {
+        // Arrange
+        TestEntity existing = new TestEntity("Existing");
+        handler.write(existing);
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+
+        // Act
+        handler.write(new TestEntity("New"));
+        List<TestEntity> result = handler.readAll();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(existing.getId(), result.get(0).getId());
+        assertEquals("New", result.get(1).getName());
+    }
+
+    @Test
+    @DisplayName("Given log with incomplete last frame, when readAll and write called, then torn frame is dropped")
+    void givenLogWithIncompleteLastFrame_whenReadAllAndWrite_thenTornFrameDropped() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity kept = new TestEntity("Kept");
+        handler.write(kept);
+        handler.write(new TestEntity("Torn"));
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        TestDataStreamHandler reopened = new TestDataStreamHandler(filePath);
+        reopened.setStorageMode(StorageMode.APPEND_LOG);
+
+        // Act
+        List<TestEntity> afterCrash = reopened.readAll();
+        reopened.write(new TestEntity("After"));
+        List<TestEntity> result = reopened.readAll();
+
+        // Assert
+        assertEquals(1, afterCrash.size());
+        assertEquals(kept.getId(), afterCrash.get(0).getId());
+        assertEquals(2, result.size());
+        assertEquals("After", result.get(1).getName());
+    }
+
+    @Test
+    @DisplayName("Given log with garbage length in last frame, when readAll called, then replay stops before that frame")
+    void givenLogWithGarbageLengthInLastFrame_whenReadAllCalled_thenReplayStopsBeforeFrame() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity kept = new TestEntity("Kept");
+        handler.write(kept);
+        long lastFrame = new File(filePath).length();
+        handler.write(new TestEntity("Corrupted"));
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.seek(lastFrame + 1);
+            file.writeInt(Integer.MAX_VALUE - 8);
+        }
+        TestDataStreamHandler reopened = new TestDataStreamHandler(filePath);
+        reopened.setStorageMode(StorageMode.APPEND_LOG);
+
+        // Act
+        List<TestEntity> result = reopened.readAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(kept.getId(), result.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Given log with superseded frames, when compact called, then file shrinks and state is kept")
+    void givenLogWithSupersededFrames_whenCompactCalled_thenFileShrinksAndStateKept() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        handler.setCompactionThreshold(2);
+        TestEntity kept = new TestEntity("Kept");
+        TestEntity removed = new TestEntity("Removed");
+        handler.write(kept);
+        handler.write(removed);
+        for (int i = 0; i < 50; i++) {
+            handler.update(new TestEntity(kept.getId(), "Kept " + i));
+        }
+        handler.deleteById(removed.getId());
+        long lengthBefore = Files.size(Path.of(filePath));
+
+        // Act
+        boolean compacted = handler.compact();
+
+        // Assert
+        assertTrue(compacted);
+        long lengthAfter = Files.size(Path.of(filePath));
+        assertTrue(lengthAfter < lengthBefore);
+        assertEquals(0, handler.getGarbageRatio());
+        assertEquals(1, handler.getCompactionStats().getCompactions());
+        assertEquals(lengthBefore - lengthAfter, handler.getCompactionStats().getBytesReclaimed());
+        assertFalse(Files.exists(Path.of(filePath + ".tmp")));
+
+        List<TestEntity> result = new TestDataStreamHandler(filePath).readAll();
+        assertEquals(1, result.size());
+        assertEquals("Kept 49", result.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Given garbage ratio above threshold, when entities are updated, then log is compacted in background")
+    void givenGarbageRatioAboveThreshold_whenEntitiesUpdated_thenLogCompactedInBackground() throws Exception {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        handler.setCompactionThreshold(0.5);
+        TestEntity entity = new TestEntity("Test");
+        handler.write(entity);
+
+        // Act
+        for (int i = 0; i < DataStreamHandler.MIN_COMPACTION_FRAMES; i++) {
+            handler.update(new TestEntity(entity.getId(), "Test " + i));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handler.getCompactionStats().getCompactions() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Assert
+        assertTrue(handler.getCompactionStats().getCompactions() >= 1);
+        assertTrue(handler.getCompactionStats().getBytesReclaimed() > 0);
+        List<TestEntity> result = handler.readAll();
+        assertEquals(1, result.size());
+        assertEquals("Test " + (DataStreamHandler.MIN_COMPACTION_FRAMES - 1), result.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Given snapshot file, when compact called, then returns false")
+    void givenSnapshotFile_whenCompactCalled_thenReturnsFalse() throws IOException {
+        // Arrange
+        handler.write(new TestEntity("Test"));
+
+        // Act & Assert
+        assertFalse(handler.compact());
+    }
+
+    @Test
+    @DisplayName("Given buffer smaller than a record, when entities written and read, then all entities are read")
+    void givenBufferSmallerThanRecord_whenEntitiesWrittenAndRead_thenAllEntitiesRead() throws IOException {
+        // Arrange
+        handler.setBufferSize(3);
+        List<TestEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entities.add(new TestEntity("Test " + i));
+        }
+
+        // Act
+        handler.writeAll(entities);
+        List<TestEntity> result = handler.readAll();
+
+        // Assert
+        assertEquals(100, result.size());
+        assertEquals(entities.get(99).getId(), result.get(99).getId());
+        assertEquals("Test 99", result.get(99).getName());
+    }
+
+    @Test
+    @DisplayName("Given snapshot file with incomplete last record, when readAll called, then throws IOException")
+    void givenSnapshotWithIncompleteLastRecord_whenReadAllCalled_thenThrowsIOException() throws IOException {
+        // Arrange
+        handler.write(new TestEntity("Test"));
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> handler.readAll());
+    }
+
+    @Test
+    @DisplayName("Given non-positive buffer size, when setBufferSize called, then throws IllegalArgumentException")
+    void givenNonPositiveBufferSize_whenSetBufferSizeCalled_thenThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> handler.setBufferSize(0));
+    }
+
+    @Test
+    @DisplayName("Given memory-mapped snapshot file, when readAll called twice, then file is mapped once")
+    void givenMemoryMappedSnapshot_whenReadAllCalledTwice_thenFileMappedOnce() throws IOException {
+        // Arrange
+        TestEntity entity = new TestEntity("Test");
+        handler.write(entity);
+        handler.setMemoryMapped(true);
+
+        // Act
+        List<TestEntity> first = handler.readAll();
+        List<TestEntity> second = handler.readAll();
+
+        // Assert
+        assertEquals(1, first.size());
+        assertEquals(entity.getId(), first.get(0).getId());
+        assertEquals("Test", second.get(0).getName());
+        assertEquals(1, handler.getMappingCount());
+    }
+
+    @Test
+    @DisplayName("Given memory-mapped log file, when entity written, then file is remapped and new entity read")
+    void givenMemoryMappedLog_whenEntityWritten_thenRemappedAndNewEntityRead() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        handler.setMemoryMapped(true);
+        handler.write(new TestEntity("First"));
+        handler.readAll();
+
+        // Act
+        handler.write(new TestEntity("Second"));
+        List<TestEntity> result = handler.readAll();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals("Second", result.get(1).getName());
+        assertEquals(2, handler.getMappingCount());
+    }
+
+    @Test
+    @DisplayName("Given handler without fixed record size, when fixed slots mode set, then throws IllegalArgumentException")
+    void givenHandlerWithoutRecordSize_whenFixedSlotsModeSet_thenThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> handler.setStorageMode(StorageMode.FIXED_SLOTS));
+    }
+
+    @Test
+    @DisplayName("Given log file, when entities written and deleted, then new handler reads them by id through the index file")
+    void givenLogFile_whenEntitiesMutated_thenNewHandlerReadsByIdThroughIndex() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity first = new TestEntity("First");
+        TestEntity second = new TestEntity("Second");
+        handler.write(first);
+        handler.write(second);
+        handler.update(new TestEntity(first.getId(), "Updated"));
+        handler.deleteById(second.getId());
+
+        // Act
+        TestDataStreamHandler reopened = new TestDataStreamHandler(filePath);
+        var found = reopened.readById(first.getId());
+        var deleted = reopened.readById(second.getId());
+
+        // Assert
+        assertTrue(Files.exists(tempDir.resolve("test.idx")));
+        assertEquals("Updated", found.orElseThrow().getName());
+        assertTrue(deleted.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Given log file with missing or corrupt index file, when readById called, then index is rebuilt")
+    void givenMissingOrCorruptIndex_whenReadByIdCalled_thenIndexRebuilt() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity entity = new TestEntity("Test");
+        handler.write(entity);
+        Path index = tempDir.resolve("test.idx");
+
+        // Act
+        Files.delete(index);
+        var afterDelete = new TestDataStreamHandler(filePath).readById(entity.getId());
+        Files.write(index, new byte[]{1, 2, 3, 4, 5, 6, 7});
+        var afterCorruption = new TestDataStreamHandler(filePath).readById(entity.getId());
+
+        // Assert
+        assertEquals("Test", afterDelete.orElseThrow().getName());
+        assertEquals("Test", afterCorruption.orElseThrow().getName());
+        assertTrue(Files.size(index) > 7);
+    }
+
+    @Test
+    @DisplayName("Given index file out of date with data file, when readById called, then current entity is returned")
+    void givenStaleIndex_whenReadByIdCalled_thenCurrentEntityReturned() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity entity = new TestEntity("Test");
+        handler.write(entity);
+        Path index = tempDir.resolve("test.idx");
+        byte[] staleIndex = Files.readAllBytes(index);
+        handler.update(new TestEntity(entity.getId(), "Updated"));
+        Files.write(index, staleIndex);
+
+        // Act
+        var result = new TestDataStreamHandler(filePath).readById(entity.getId());
+
+        // Assert
+        assertEquals("Updated", result.orElseThrow().getName());
+    }
+
+    @Test
+    @DisplayName("Given snapshot file, when readById called, then entity is found without index file")
+    void givenSnapshotFile_whenReadByIdCalled_thenEntityFoundWithoutIndex() throws IOException {
+        // Arrange
+        TestEntity entity = new TestEntity("Test");
+        handler.write(entity);
+
+        // Act
+        var result = handler.readById(entity.getId());
+
+        // Assert
+        assertEquals("Test", result.orElseThrow().getName());
+        assertFalse(Files.exists(tempDir.resolve("test.idx")));
+    }
+
+    @Test
+    @DisplayName("Given temporary file left by interrupted rewrite, when readAll called, then original data is read and temporary file deleted")
+    void givenLeftoverTemporaryFile_whenReadAllCalled_thenOriginalReadAndTemporaryDeleted() throws IOException {
+        // Arrange
+        handler.write(new TestEntity("Test"));
+        Path temp = tempDir.resolve("test.dat.tmp");
+        Files.write(temp, new byte[]{1, 0, 0, 0});
+
+        // Act
+        List<TestEntity> result = new TestDataStreamHandler(filePath).readAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals("Test", result.get(0).getName());
+        assertFalse(Files.exists(temp));
+    }
+
+    @Test
+    @DisplayName("Given group commit durability, when entities written, then latencies are recorded for that mode and entities persisted")
+    void givenGroupCommitDurability_whenEntitiesWritten_thenLatenciesRecordedAndEntitiesPersisted() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        handler.setDurability(Durability.GROUP_COMMIT);
+        handler.setGroupCommit(2, 10);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            handler.write(new TestEntity("Entity" + i));
+        }
+        handler.sync();
+        List<TestEntity> result = new TestDataStreamHandler(filePath).readAll();
+
+        // Assert
+        assertEquals(3, result.size());
+        LatencyHistogram latencies = handler.getCommitLatencies(Durability.GROUP_COMMIT);
+        assertEquals(3, latencies.getCount());
+        assertTrue(latencies.getPercentileNanos(99) >= latencies.getPercentileNanos(50));
+        assertTrue(latencies.getPercentileNanos(100) >= latencies.getMaxNanos());
+        assertEquals(0, handler.getCommitLatencies(Durability.SYNC_EACH).getCount());
+    }
+
+    @Test
+    @DisplayName("Given group commit durability and slot file, when entities written, then latencies recorded as synchronous")
+    void givenGroupCommitDurabilityAndSlotFile_whenEntitiesWritten_thenLatenciesRecordedAsSynchronous() throws IOException {
+        // Arrange
+        var gradeHandler = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString());
+        gradeHandler.setStorageMode(StorageMode.FIXED_SLOTS);
+        gradeHandler.setDurability(Durability.GROUP_COMMIT);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            gradeHandler.write(new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) i));
+        }
+
+        // Assert
+        assertEquals(3, gradeHandler.getCommitLatencies(Durability.SYNC_EACH).getCount());
+        assertEquals(0, gradeHandler.getCommitLatencies(Durability.GROUP_COMMIT).getCount());
+    }
+
+    @Test
+    @DisplayName("Given non-positive group commit size, when setGroupCommit called, then throws IllegalArgumentException")
+    void givenNonPositiveGroupCommitSize_whenSetGroupCommitCalled_thenThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> handler.setGroupCommit(0, 10));
+    }
+
+    @Test
+    @DisplayName("Given log file, when batch written and its frame cut short, then none of its changes are read")
+    void givenLogFile_whenBatchFrameCutShort_thenNoneOfItsChangesRead() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.APPEND_LOG);
+        TestEntity kept = new TestEntity("Kept");
+        TestEntity removed = new TestEntity("Removed");
+        handler.writeAll(List.of(kept, removed));
+        long lengthBefore = Files.size(Path.of(filePath));
+
+        // Act
+        handler.writeBatch(List.of(new TestEntity(kept.getId(), "Updated"), new TestEntity("Added")), List.of(removed.getId()));
+        List<TestEntity> afterBatch = new TestDataStreamHandler(filePath).readAll();
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        List<TestEntity> afterCrash = new TestDataStreamHandler(filePath).readAll();
+
+        // Assert
+        assertEquals(2, afterBatch.size());
+        assertEquals("Updated", afterBatch.get(0).getName());
+        assertEquals("Added", afterBatch.get(1).getName());
+        assertTrue(Files.size(Path.of(filePath)) > lengthBefore);
+        assertEquals(2, afterCrash.size());
+        assertEquals("Kept", afterCrash.get(0).getName());
+        assertEquals("Removed", afterCrash.get(1).getName());
+    }
+
+    @Test
+    @DisplayName("Given snapshot file, when batch written, then entities are inserted, updated and deleted")
+    void givenSnapshotFile_whenBatchWritten_thenEntitiesInsertedUpdatedAndDeleted() throws IOException {
+        // Arrange
+        TestEntity kept = new TestEntity("Kept");
+        TestEntity removed = new TestEntity("Removed");
+        handler.writeAll(List.of(kept, removed));
+
+        // Act
+        handler.writeBatch(List.of(new TestEntity(kept.getId(), "Updated"), new TestEntity("Added")), List.of(removed.getId()));
+        List<TestEntity> result = handler.readAll();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals("Updated", result.get(0).getName());
+        assertEquals("Added", result.get(1).getName());
+    }
+
     // Helper concrete implementation for testing
     private static class TestDataStreamHandler extends DataStreamHandler<TestEntity> {
         TestDataStreamHandler(String filePath) {
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.UUID;
@@ -106,4 +107,210 @@ class GradeDataStreamHandlerTest {
         assertTrue(tempFilePath.toFile().exists());
         assertTrue(tempFilePath.toFile().length() > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Given fixed slots mode, when grades written, updated and deleted, then new handler reads the same state")
+    void givenFixedSlotsMode_whenGradesMutated_thenNewHandlerReadsSameState() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade first = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        Grade second = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 20);
+
+        // Act
+        handler.write(first);
+        handler.write(second);
+        first.setGrade((byte) 15);
+        handler.update(first);
+        handler.deleteById(second.getId());
+        List<Grade> result = new GradeDataStreamHandler(tempFilePath.toString()).readAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(first.getId(), result.get(0).getId());
+        assertEquals(15, result.get(0).getGrade());
+    }
+
+    @Test
+    @DisplayName("Given fixed slots mode, when grades mutated, then new handler reads them by id")
+    void givenFixedSlotsMode_whenGradesMutated_thenNewHandlerReadsById() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade first = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        Grade second = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 20);
+        Grade third = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 30);
+        handler.write(first);
+        handler.write(second);
+        handler.deleteById(second.getId());
+        handler.write(third);
+        first.setGrade((byte) 15);
+        handler.update(first);
+
+        // Act
+        GradeDataStreamHandler reopened = new GradeDataStreamHandler(tempFilePath.toString());
+
+        // Assert
+        assertEquals(15, reopened.readById(first.getId()).orElseThrow().getGrade());
+        assertTrue(reopened.readById(second.getId()).isEmpty());
+        assertEquals(30, reopened.readById(third.getId()).orElseThrow().getGrade());
+    }
+
+    @Test
+    @DisplayName("Given fixed slots mode, when grade updated or deleted and another written, then file length does not change")
+    void givenFixedSlotsMode_whenGradeUpdatedOrSlotReused_thenFileLengthUnchanged() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade grade = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        handler.write(grade);
+        long length = tempFilePath.toFile().length();
+
+        // Act
+        grade.setGrade((byte) 90);
+        handler.update(grade);
+        long lengthAfterUpdate = tempFilePath.toFile().length();
+        handler.deleteById(grade.getId());
+        handler.write(new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 30));
+
+        // Assert
+        assertEquals(length, lengthAfterUpdate);
+        assertEquals(length, tempFilePath.toFile().length());
+        assertEquals(1, handler.readAll().size());
+    }
+
+    @Test
+    @DisplayName("Given free slot, when writing into it fails, then the slot is reused by the next write")
+    void givenFreeSlot_whenWritingIntoItFails_thenSlotReusedByNextWrite() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade kept = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        Grade deleted = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 20);
+        handler.writeAll(List.of(kept, deleted));
+        handler.deleteById(deleted.getId());
+        long length = tempFilePath.toFile().length();
+        // A directory in place of the write-ahead log makes the next slot write fail
+        Path writeAheadLog = tempFilePath.resolveSibling("test-grades.wal");
+        Files.deleteIfExists(writeAheadLog);
+        Files.createDirectory(writeAheadLog);
+
+        // Act
+        assertThrows(IOException.class,
+                () -> handler.write(new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 30)));
+        Files.delete(writeAheadLog);
+        handler.write(new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 40));
+
+        // Assert
+        assertEquals(length, tempFilePath.toFile().length());
+        assertEquals(2, handler.readAll().size());
+    }
+
+    @Test
+    @DisplayName("Given fixed slots mode, when batch written, then all slots change in one write-ahead log transaction")
+    void givenFixedSlotsMode_whenBatchWritten_thenSlotsChangedTogether() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade updated = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        Grade removed = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 20);
+        Grade added = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 30);
+        handler.writeAll(List.of(updated, removed));
+        byte[] beforeBatch = Files.readAllBytes(tempFilePath);
+        updated.setGrade((byte) 15);
+
+        // Act
+        handler.writeBatch(List.of(updated, added), List.of(removed.getId()));
+        // As if the process died before any slot write reached the file
+        Files.write(tempFilePath, beforeBatch);
+        GradeDataStreamHandler reopened = new GradeDataStreamHandler(tempFilePath.toString());
+
+        // Assert
+        assertEquals(15, reopened.readById(updated.getId()).orElseThrow().getGrade());
+        assertEquals(30, reopened.readById(added.getId()).orElseThrow().getGrade());
+        assertTrue(reopened.readById(removed.getId()).isEmpty());
+        assertEquals(2, reopened.readAll().size());
+    }
+
+    @Test
+    @DisplayName("Given committed slot write lost before reaching the file, when new handler reads, then write is replayed")
+    void givenSlotWriteLostBeforeReachingFile_whenNewHandlerReads_thenWriteReplayed() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade grade = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        handler.write(grade);
+        byte[] beforeUpdate = Files.readAllBytes(tempFilePath);
+        grade.setGrade((byte) 90);
+        handler.update(grade);
+        Files.write(tempFilePath, beforeUpdate);
+
+        // Act
+        List<Grade> result = new GradeDataStreamHandler(tempFilePath.toString()).readAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(90, result.get(0).getGrade());
+        assertFalse(Files.exists(tempFilePath.resolveSibling("test-grades.wal")));
+    }
+
+    @Test
+    @DisplayName("Given incomplete transaction at end of write-ahead log, when new handler reads, then it is discarded")
+    void givenIncompleteWalTransaction_whenNewHandlerReads_thenDiscarded() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade grade = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        handler.write(grade);
+        Path wal = tempFilePath.resolveSibling("test-grades.wal");
+        try (FileOutputStream out = new FileOutputStream(wal.toFile(), true)) {
+            out.write(new byte[]{0, 0, 0, 80, 1, 2, 3, 4, 5});
+        }
+
+        // Act
+        List<Grade> result = new GradeDataStreamHandler(tempFilePath.toString()).readAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(10, result.get(0).getGrade());
+        assertFalse(Files.exists(wal));
+    }
+
+    @Test
+    @DisplayName("Given slot file with incomplete last slot, when readAll and write called, then torn slot is dropped")
+    void givenSlotFileWithIncompleteLastSlot_whenReadAllAndWrite_thenTornSlotDropped() throws IOException {
+        // Arrange
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade kept = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        handler.write(kept);
+        handler.write(new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 20));
+        try (RandomAccessFile file = new RandomAccessFile(tempFilePath.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+        // Without the write-ahead log the torn slot cannot be repaired
+        Files.delete(tempFilePath.resolveSibling("test-grades.wal"));
+        GradeDataStreamHandler reopened = new GradeDataStreamHandler(tempFilePath.toString());
+        reopened.setStorageMode(StorageMode.FIXED_SLOTS);
+
+        // Act
+        List<Grade> afterCrash = reopened.readAll();
+        reopened.write(new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 30));
+        List<Grade> result = reopened.readAll();
+
+        // Assert
+        assertEquals(1, afterCrash.size());
+        assertEquals(kept.getId(), afterCrash.get(0).getId());
+        assertEquals(2, result.size());
+        assertEquals(30, result.get(1).getGrade());
+    }
+
+    @Test
+    @DisplayName("Given snapshot file, when switched to fixed slots mode and written, then existing grades are kept")
+    void givenSnapshotFile_whenSwitchedToFixedSlotsAndWritten_thenExistingGradesKept() throws IOException {
+        // Arrange
+        Grade existing = new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 10);
+        handler.write(existing);
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+
+        // Act
+        handler.write(new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 20));
+        List<Grade> result = handler.readAll();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(existing.getId(), result.get(0).getId());
+    }
+}
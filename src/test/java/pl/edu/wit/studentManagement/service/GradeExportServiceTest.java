@@ -0,0 +1,111 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.wit.studentManagement.service.dto.dataExport.ExportResultDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link GradeExportService}, verifying that a file is written for every subject
+ * and group assigned to each other. DAOs are real, backed by handlers writing to a temporary directory.
+ */
+@DisplayName("Grade Export Service Test Suite")
+class GradeExportServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private GradeExportService exportService;
+    private Path exportDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var studentHandler = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString());
+        var groupHandler = new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString());
+        var subjectHandler = new SubjectDataStreamHandler(tempDir.resolve("subject.dat").toString());
+        var criterionHandler = new GradeCriterionDataStreamHandler(tempDir.resolve("gradeCriterion.dat").toString());
+        var gradeHandler = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString());
+        var assignmentHandler = new StudentGroupSubjectAssignmentDataStreamHandler(
+                tempDir.resolve("assignment.dat").toString());
+
+        var group1 = new StudentGroup("INF/1", "Informatyka", "");
+        var group2 = new StudentGroup("INF2", "Informatyka", "");
+        groupHandler.writeAll(List.of(group1, group2));
+        var math = new Subject("Matematyka");
+        var physics = new Subject("Fizyka");
+        subjectHandler.writeAll(List.of(math, physics));
+        var colloquium = new GradeCriterion("Kolokwium", (byte) 20, math.getId());
+        var exam = new GradeCriterion("Egzamin, pisemny", (byte) 50, math.getId());
+        criterionHandler.writeAll(List.of(colloquium, exam, new GradeCriterion("Lab", (byte) 10, physics.getId())));
+
+        var anna = new Student("Anna", "Nowak", "A0001");
+        anna.setStudentGroupId(group1.getId());
+        var jan = new Student("Jan", "Kowalski", "A0002");
+        jan.setStudentGroupId(group1.getId());
+        var piotr = new Student("Piotr", "Zielinski", "A0003");
+        piotr.setStudentGroupId(group2.getId());
+        studentHandler.writeAll(List.of(anna, jan, piotr));
+        gradeHandler.writeAll(List.of(
+                new Grade(math.getId(), colloquium.getId(), anna.getId(), (byte) 15),
+                new Grade(math.getId(), exam.getId(), anna.getId(), (byte) 40),
+                new Grade(math.getId(), exam.getId(), jan.getId(), (byte) 30),
+                new Grade(math.getId(), exam.getId(), piotr.getId(), (byte) 45)));
+
+        assignmentHandler.writeAll(List.of(
+                new StudentGroupSubjectAssignment(group1.getId(), math.getId()),
+                new StudentGroupSubjectAssignment(group1.getId(), physics.getId()),
+                new StudentGroupSubjectAssignment(group2.getId(), math.getId()),
+                new StudentGroupSubjectAssignment(group1.getId(), math.getId()),
+                new StudentGroupSubjectAssignment(group2.getId(), UUID.randomUUID())));
+
+        var studentDao = new Dao<>(studentHandler);
+        var gradeQueryService = new GradeQueryService(new Dao<>(gradeHandler), studentDao, new Dao<>(criterionHandler));
+        exportService = new GradeExportService(gradeQueryService, new Dao<>(assignmentHandler),
+                new Dao<>(subjectHandler), new Dao<>(groupHandler));
+        exportDirectory = tempDir.resolve("export");
+    }
+
+    @Test
+    @DisplayName("Given assignments, when exported to CSV, then a file is written per subject and group")
+    void givenAssignments_whenExportedToCsv_thenFileWrittenPerSubjectAndGroup() throws Exception {
+        // Act
+        ExportResultDto result = exportService.exportGradeMatrices(exportDirectory, ExportFormat.CSV, 2);
+
+        // Assert
+        assertEquals(3, result.getFiles());
+        assertEquals(5, result.getRows());
+        try (var files = Files.list(exportDirectory)) {
+            assertEquals(List.of("Fizyka_INF_1.csv", "Matematyka_INF2.csv", "Matematyka_INF_1.csv"),
+                    files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+        assertEquals(List.of(
+                "album,student,Kolokwium,\"Egzamin, pisemny\"",
+                "A0001,Anna Nowak,15,40",
+                "A0002,Jan Kowalski,,30"), Files.readAllLines(exportDirectory.resolve("Matematyka_INF_1.csv")));
+        assertEquals(List.of(
+                "album,student,Lab",
+                "A0001,Anna Nowak,",
+                "A0002,Jan Kowalski,"), Files.readAllLines(exportDirectory.resolve("Fizyka_INF_1.csv")));
+    }
+
+    @Test
+    @DisplayName("Given assignments, when exported to TSV, then fields are separated by tabs")
+    void givenAssignments_whenExportedToTsv_thenFieldsSeparatedByTabs() throws Exception {
+        // Act
+        exportService.exportGradeMatrices(exportDirectory, ExportFormat.TSV);
+
+        // Assert
+        assertEquals(List.of(
+                "album\tstudent\tKolokwium\tEgzamin, pisemny",
+                "A0003\tPiotr Zielinski\t\t45"), Files.readAllLines(exportDirectory.resolve("Matematyka_INF2.tsv")));
+    }
+}
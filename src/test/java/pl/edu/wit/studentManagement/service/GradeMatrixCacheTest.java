@@ -0,0 +1,124 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+import pl.edu.wit.studentManagement.service.dto.gradeMatrix.GradeMatrixDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test suite for {@link GradeMatrixCache}, verifying that cached grade matrices are kept
+ * up to date incrementally as grades, students and grade criteria change.
+ * DAOs are real, backed by mocked {@link DataStreamHandler}s.
+ */
+@DisplayName("GradeMatrixCache Test Suite")
+class GradeMatrixCacheTest {
+    private Dao<Grade> gradeDao;
+    private Dao<Student> studentDao;
+    private Dao<GradeCriterion> gradeCriterionDao;
+    private GradeQueryService gradeQueryService;
+
+    private UUID subjectId;
+    private UUID groupId;
+    private Student student;
+    private GradeCriterion criterion;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        subjectId = UUID.randomUUID();
+        groupId = UUID.randomUUID();
+        student = new Student("Alice", "Smith", "A0001");
+        student.setStudentGroupId(groupId);
+        criterion = new GradeCriterion("Midterm", (byte) 100, subjectId);
+
+        DataStreamHandler<Grade> gradeHandler = mock(DataStreamHandler.class);
+        DataStreamHandler<Student> studentHandler = mock(DataStreamHandler.class);
+        DataStreamHandler<GradeCriterion> gradeCriterionHandler = mock(DataStreamHandler.class);
+        when(gradeHandler.readAll()).thenReturn(new ArrayList<>());
+        when(studentHandler.readAll()).thenReturn(new ArrayList<>(List.of(student)));
+        when(gradeCriterionHandler.readAll()).thenReturn(new ArrayList<>(List.of(criterion)));
+
+        gradeDao = spy(new Dao<>(gradeHandler));
+        studentDao = new Dao<>(studentHandler);
+        gradeCriterionDao = new Dao<>(gradeCriterionHandler);
+        gradeQueryService = new GradeQueryService(gradeDao, studentDao, gradeCriterionDao);
+    }
+
+    @Test
+    @DisplayName("Given cached matrix, when requested again, then it is not rebuilt")
+    void givenCachedMatrix_whenRequestedAgain_thenNotRebuilt() {
+        // Arrange
+        gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+
+        // Act
+        GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+
+        // Assert
+        assertEquals(1, matrix.getRows().size());
+        verify(gradeDao, times(1)).findByIndexKeys(any(), any());
+    }
+
+    @Test
+    @DisplayName("Given cached matrix, when grade saved and deleted, then cell is updated without rebuild")
+    void givenCachedMatrix_whenGradeSavedAndDeleted_thenCellUpdated() throws ValidationException {
+        // Arrange
+        gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+        Grade grade = new Grade(subjectId, criterion.getId(), student.getId(), (byte) 85);
+
+        // Act
+        gradeDao.save(grade);
+        GradeMatrixDto afterSave = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+        gradeDao.delete(grade.getId());
+        GradeMatrixDto afterDelete = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+
+        // Assert
+        assertEquals(85, afterSave.getRows().get(0).getGrades().get(0).getGrade());
+        assertNull(afterDelete.getRows().get(0).getGrades().get(0));
+        verify(gradeDao, times(1)).findByIndexKeys(any(), any());
+    }
+
+    @Test
+    @DisplayName("Given cached matrix, when student leaves and rejoins group, then row is removed and restored with grades")
+    void givenCachedMatrix_whenStudentLeavesAndRejoinsGroup_thenRowRemovedAndRestored() throws ValidationException {
+        // Arrange
+        gradeDao.save(new Grade(subjectId, criterion.getId(), student.getId(), (byte) 60));
+        gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+
+        // Act
+        student.setStudentGroupId(null);
+        studentDao.update(student);
+        GradeMatrixDto afterLeave = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+        student.setStudentGroupId(groupId);
+        studentDao.update(student);
+        GradeMatrixDto afterRejoin = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+
+        // Assert
+        assertTrue(afterLeave.getRows().isEmpty());
+        assertEquals(1, afterRejoin.getRows().size());
+        assertEquals(60, afterRejoin.getRows().get(0).getGrades().get(0).getGrade());
+        verify(gradeDao, times(1)).findByIndexKeys(any(), any());
+    }
+
+    @Test
+    @DisplayName("Given cached matrix, when grade criterion added, then matrix is rebuilt with new column")
+    void givenCachedMatrix_whenGradeCriterionAdded_thenMatrixRebuilt() throws ValidationException {
+        // Arrange
+        gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+
+        // Act
+        gradeCriterionDao.save(new GradeCriterion("Final", (byte) 100, subjectId));
+        GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
+
+        // Assert
+        assertEquals(List.of("Midterm", "Final"), matrix.getCriteriaNames());
+        verify(gradeDao, times(2)).findByIndexKeys(any(), any());
+    }
+}
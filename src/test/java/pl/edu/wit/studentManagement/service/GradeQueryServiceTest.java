@@ -52,9 +52,9 @@ class GradeQueryServiceTest {
         Grade grade = new Grade(subjectId, criterionId, studentId, (byte) 85);
         UUID gradeId = grade.getId();
 
-        when(studentDao.getAll()).thenReturn(List.of(student));
-        when(gradeCriterionDao.getAll()).thenReturn(List.of(criterion));
-        when(gradeDao.getAll()).thenReturn(List.of(grade));
+        when(studentDao.findByIndex(any(), eq(groupId))).thenReturn(List.of(student));
+        when(gradeCriterionDao.findByIndex(any(), eq(subjectId))).thenReturn(List.of(criterion));
+        when(gradeDao.findByIndexKeys(any(), eq(List.of(IndexKey.of(studentId, subjectId))))).thenReturn(List.of(grade));
 
         // Act
         GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
@@ -77,9 +77,9 @@ class GradeQueryServiceTest {
         assertEquals(studentId, dto.getStudentId());
         assertEquals(85, dto.getGrade());
 
-        verify(studentDao).getAll();
-        verify(gradeCriterionDao).getAll();
-        verify(gradeDao).getAll();
+        verify(studentDao).findByIndex(any(), eq(groupId));
+        verify(gradeCriterionDao).findByIndex(any(), eq(subjectId));
+        verify(gradeDao).findByIndexKeys(any(), any());
     }
 
     @DisplayName("Given no students in the group, when getGradeMatrixForSubjectAndGroup is called, then return empty rows")
@@ -91,9 +91,9 @@ class GradeQueryServiceTest {
 
         GradeCriterion criterion = new GradeCriterion("Exam", (byte) 100, subjectId);
 
-        when(studentDao.getAll()).thenReturn(List.of());
-        when(gradeCriterionDao.getAll()).thenReturn(List.of(criterion));
-        when(gradeDao.getAll()).thenReturn(List.of());
+        when(studentDao.findByIndex(any(), eq(groupId))).thenReturn(List.of());
+        when(gradeCriterionDao.findByIndex(any(), eq(subjectId))).thenReturn(List.of(criterion));
+        when(gradeDao.findByIndexKeys(any(), eq(List.of()))).thenReturn(List.of());
 
         // Act
         GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
@@ -102,9 +102,9 @@ class GradeQueryServiceTest {
         assertEquals(List.of("Exam"), matrix.getCriteriaNames());
         assertTrue(matrix.getRows().isEmpty());
 
-        verify(studentDao).getAll();
-        verify(gradeCriterionDao).getAll();
-        verify(gradeDao).getAll();
+        verify(studentDao).findByIndex(any(), eq(groupId));
+        verify(gradeCriterionDao).findByIndex(any(), eq(subjectId));
+        verify(gradeDao).findByIndexKeys(any(), any());
     }
 
     @Test
@@ -118,9 +118,9 @@ class GradeQueryServiceTest {
         student.setStudentGroupId(groupId);
         UUID studentId = student.getId();
 
-        when(studentDao.getAll()).thenReturn(List.of(student));
-        when(gradeCriterionDao.getAll()).thenReturn(List.of());
-        when(gradeDao.getAll()).thenReturn(List.of());
+        when(studentDao.findByIndex(any(), eq(groupId))).thenReturn(List.of(student));
+        when(gradeCriterionDao.findByIndex(any(), eq(subjectId))).thenReturn(List.of());
+        when(gradeDao.findByIndexKeys(any(), eq(List.of(IndexKey.of(studentId, subjectId))))).thenReturn(List.of());
 
         // Act
         GradeMatrixDto matrix = gradeQueryService.getGradeMatrixForSubjectAndGroup(subjectId, groupId);
@@ -134,8 +134,8 @@ class GradeQueryServiceTest {
         assertEquals("John Doe", row.getStudentName());
         assertTrue(row.getGrades().isEmpty());
 
-        verify(studentDao).getAll();
-        verify(gradeCriterionDao).getAll();
-        verify(gradeDao).getAll();
+        verify(studentDao).findByIndex(any(), eq(groupId));
+        verify(gradeCriterionDao).findByIndex(any(), eq(subjectId));
+        verify(gradeDao).findByIndexKeys(any(), any());
     }
 }
@@ -11,10 +11,17 @@ import pl.edu.wit.studentManagement.service.dto.grade.AssignGradeDto;
 import pl.edu.wit.studentManagement.service.dto.grade.GradeDto;
 import pl.edu.wit.studentManagement.service.dto.grade.UpdateGradeDto;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -75,6 +82,33 @@ class GradeServiceTest {
         assertEquals(grade, result.getGrade());
     }
 
+    @Test
+    @DisplayName("Given existing grade for student and criterion, when assignGrade called, then update existing grade")
+    void givenExistingGradeForStudentAndCriterion_whenAssignGradeCalled_thenUpdateExistingGrade() throws ValidationException {
+        // Arrange
+        Student student = new Student("Jan", "Kowalski", "A0001");
+        Subject subject = new Subject("Java");
+        GradeCriterion criterion = new GradeCriterion("Egzamin", (byte) 50, subject.getId());
+        Grade existing = new Grade(subject.getId(), criterion.getId(), student.getId(), (byte) 10);
+        AssignGradeDto assignGradeDto = new AssignGradeDto(subject.getId(), criterion.getId(), student.getId(), (byte) 40);
+
+        when(studentDao.get(student.getId())).thenReturn(Optional.of(student));
+        when(subjectDao.get(subject.getId())).thenReturn(Optional.of(subject));
+        when(gradeCriterionDao.get(criterion.getId())).thenReturn(Optional.of(criterion));
+        when(gradeDao.findFirstByIndex(any(), eq(IndexKey.of(student.getId(), criterion.getId()))))
+                .thenReturn(Optional.of(existing));
+
+        // Act
+        GradeDto result = gradeService.assignGrade(assignGradeDto);
+
+        // Assert
+        assertEquals(existing.getId(), result.getId());
+        assertEquals(40, result.getGrade());
+        assertEquals(10, existing.getGrade());
+        verify(gradeDao).update(argThat(grade -> grade.getId().equals(existing.getId()) && grade.getGrade() == 40));
+        verify(gradeDao, never()).save(any());
+    }
+
     @Test
     @DisplayName("Given non-existing student, when assignGrade called, then throw ValidationException")
     void givenNonExistingStudent_whenAssignGradeCalled_thenThrowValidationException() {
@@ -173,4 +207,59 @@ class GradeServiceTest {
         assertTrue(result);
         verify(gradeDao).delete(grade.getId());
     }
+
+    @Test
+    @DisplayName("Given new and existing grades, when assignGrades called, then all are written in one batch")
+    void givenNewAndExistingGrades_whenAssignGradesCalled_thenWrittenInOneBatch() throws Exception {
+        // Arrange
+        Student student = new Student("Jan", "Kowalski", "A0001");
+        Subject subject = new Subject("Java");
+        GradeCriterion exam = new GradeCriterion("Egzamin", (byte) 50, subject.getId());
+        GradeCriterion project = new GradeCriterion("Projekt", (byte) 20, subject.getId());
+        Grade existing = new Grade(subject.getId(), exam.getId(), student.getId(), (byte) 10);
+
+        when(studentDao.get(student.getId())).thenReturn(Optional.of(student));
+        when(subjectDao.get(subject.getId())).thenReturn(Optional.of(subject));
+        when(gradeCriterionDao.get(exam.getId())).thenReturn(Optional.of(exam));
+        when(gradeCriterionDao.get(project.getId())).thenReturn(Optional.of(project));
+        when(gradeDao.findFirstByIndex(any(), eq(IndexKey.of(student.getId(), exam.getId()))))
+                .thenReturn(Optional.of(existing));
+        when(gradeDao.findFirstByIndex(any(), eq(IndexKey.of(student.getId(), project.getId()))))
+                .thenReturn(Optional.empty());
+        when(gradeDao.writeLock()).thenReturn(new ReentrantLock());
+
+        // Act
+        List<GradeDto> result = gradeService.assignGrades(List.of(
+                new AssignGradeDto(subject.getId(), exam.getId(), student.getId(), (byte) 45),
+                new AssignGradeDto(subject.getId(), project.getId(), student.getId(), (byte) 15)));
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(existing.getId(), result.get(0).getId());
+        assertEquals(45, result.get(0).getGrade());
+        assertEquals(15, result.get(1).getGrade());
+        verify(gradeDao, times(1)).writeBatch(any(), any());
+        verify(gradeDao, never()).save(any());
+        verify(gradeDao, never()).update(any());
+    }
+
+    @Test
+    @DisplayName("Given one grade above max points, when assignGrades called, then throw and change nothing")
+    void givenOneGradeAboveMaxPoints_whenAssignGradesCalled_thenThrowAndChangeNothing() throws Exception {
+        // Arrange
+        Student student = new Student("Jan", "Kowalski", "A0001");
+        Subject subject = new Subject("Java");
+        GradeCriterion exam = new GradeCriterion("Egzamin", (byte) 50, subject.getId());
+
+        when(studentDao.get(student.getId())).thenReturn(Optional.of(student));
+        when(subjectDao.get(subject.getId())).thenReturn(Optional.of(subject));
+        when(gradeCriterionDao.get(exam.getId())).thenReturn(Optional.of(exam));
+
+        // Act & Assert
+        var exception = assertThrows(ValidationException.class, () -> gradeService.assignGrades(List.of(
+                new AssignGradeDto(subject.getId(), exam.getId(), student.getId(), (byte) 45),
+                new AssignGradeDto(subject.getId(), exam.getId(), student.getId(), (byte) 51))));
+        assertEquals("grade.wrongGrade", exception.getMessageKey());
+        verify(gradeDao, never()).writeBatch(any(), any());
+    }
 }
\ No newline at end of file
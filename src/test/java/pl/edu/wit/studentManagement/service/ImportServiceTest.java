@@ -0,0 +1,182 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+import pl.edu.wit.studentManagement.service.dto.dataImport.ImportResultDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test suite for {@link ImportService}, verifying that CSV files are imported in batches
+ * and that rejected rows are reported in the error file instead of aborting the import.
+ * DAOs are real, backed by handlers writing to a temporary directory.
+ */
+@DisplayName("Import Service Test Suite")
+class ImportServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private StudentDataStreamHandler studentHandler;
+    private Dao<Student> studentDao;
+    private Dao<Grade> gradeDao;
+    private StudentGroup group;
+    private Subject subject;
+    private GradeCriterion criterion;
+    private ImportService importService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        studentHandler = spy(new StudentDataStreamHandler(tempDir.resolve("student.dat").toString()));
+        var groupHandler = new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString());
+        var subjectHandler = new SubjectDataStreamHandler(tempDir.resolve("subject.dat").toString());
+        var criterionHandler = new GradeCriterionDataStreamHandler(tempDir.resolve("gradeCriterion.dat").toString());
+        var gradeHandler = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString());
+        studentHandler.setStorageMode(StorageMode.APPEND_LOG);
+        gradeHandler.setStorageMode(StorageMode.FIXED_SLOTS);
+
+        group = new StudentGroup("INF2023", "Informatyka", "Grupa dzienna");
+        groupHandler.writeAll(List.of(group));
+        subject = new Subject("Matematyka");
+        subjectHandler.writeAll(List.of(subject));
+        criterion = new GradeCriterion("Kolokwium", (byte) 20, subject.getId());
+        criterionHandler.writeAll(List.of(criterion));
+        studentHandler.writeAll(List.of(new Student("Jan", "Kowalski", "A0001")));
+
+        studentDao = new Dao<>(studentHandler);
+        gradeDao = new Dao<>(gradeHandler);
+        importService = new ImportService(studentDao, new Dao<>(groupHandler), new Dao<>(subjectHandler),
+                new Dao<>(criterionHandler), gradeDao);
+    }
+
+    @Test
+    @DisplayName("Given students with invalid rows, when imported, then valid rows are saved and invalid rows reported")
+    void givenStudentsWithInvalidRows_whenImported_thenValidRowsSavedAndInvalidReported() throws Exception {
+        // Arrange
+        Path source = Files.writeString(tempDir.resolve("students.csv"), String.join("\n",
+                "Album,FirstName,LastName,Group",
+                "A0002,Anna,Nowak,INF2023",
+                "\"A0003\",\"Maria, Ewa\",Wiśniewska,",
+                "a0001,Piotr,Duplikat,",
+                "A0002,Adam,Duplikat,",
+                "A0004,Tomasz,Zielinski,NOPE",
+                "12,Krzysztof,Krotki,",
+                "A0005,\"Niedomknięty",
+                ""));
+        Path errorFile = tempDir.resolve("students.errors.csv");
+
+        // Act
+        ImportResultDto result = importService.importStudents(source, errorFile);
+
+        // Assert
+        assertEquals(7, result.getReadRows());
+        assertEquals(2, result.getImportedRows());
+        assertEquals(5, result.getFailedRows());
+        var persisted = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString()).readAll();
+        assertEquals(List.of("A0001", "A0002", "A0003"),
+                persisted.stream().map(Student::getAlbum).sorted().collect(Collectors.toList()));
+        var anna = persisted.stream().filter(s -> s.getAlbum().equals("A0002")).findFirst().orElseThrow();
+        assertEquals(group.getId(), anna.getStudentGroupId());
+        assertEquals("Maria, Ewa", persisted.stream().filter(s -> s.getAlbum().equals("A0003"))
+                .findFirst().orElseThrow().getFirstName());
+
+        List<String> errors = Files.readAllLines(errorFile);
+        assertEquals(List.of(
+                "line,error,row",
+                "4,student.album.exists,\"a0001,Piotr,Duplikat,\"",
+                "5,student.album.exists,\"A0002,Adam,Duplikat,\"",
+                "6,studentGroup.notExists,\"A0004,Tomasz,Zielinski,NOPE\"",
+                "7,student.album.invalidFormat,\"12,Krzysztof,Krotki,\"",
+                "8,import.row.malformed,\"A0005,\"\"Niedomknięty\""), errors);
+    }
+
+    @Test
+    @DisplayName("Given more rows than a batch holds, when imported, then rows are committed in several batches")
+    void givenMoreRowsThanBatch_whenImported_thenCommittedInSeveralBatches() throws Exception {
+        // Arrange
+        List<String> lines = new ArrayList<>();
+        lines.add("firstName,lastName,album");
+        for (int i = 0; i < ImportService.BATCH_SIZE + 10; i++) {
+            lines.add(String.format("Student,Number%d,B%06d", i, i));
+        }
+        Path source = Files.write(tempDir.resolve("students.csv"), lines);
+        Path errorFile = tempDir.resolve("students.errors.csv");
+
+        // Act
+        ImportResultDto result = importService.importStudents(source, errorFile);
+
+        // Assert
+        assertEquals(ImportService.BATCH_SIZE + 10, result.getImportedRows());
+        assertEquals(0, result.getFailedRows());
+        assertTrue(result.getRowsPerSecond() > 0);
+        assertFalse(Files.exists(errorFile));
+        verify(studentHandler, times(2)).writeBatch(any(), any());
+        assertEquals(ImportService.BATCH_SIZE + 11, studentDao.getAll().size());
+    }
+
+    @Test
+    @DisplayName("Given grades, when imported, then new grades are saved, existing updated and invalid rows reported")
+    void givenGrades_whenImported_thenSavedUpdatedAndInvalidReported() throws Exception {
+        // Arrange
+        var student = studentDao.getAll().get(0);
+        var existing = new Grade(subject.getId(), criterion.getId(), student.getId(), (byte) 5);
+        gradeDao.save(existing);
+        studentDao.save(new Student("Anna", "Nowak", "A0002"));
+        Path source = Files.writeString(tempDir.resolve("grades.csv"), String.join("\n",
+                "album,subject,criterion,grade",
+                "A0001,Matematyka,Kolokwium,15",
+                "A0002,Matematyka,Kolokwium,12",
+                "A0002,Matematyka,Kolokwium,18",
+                "A0003,Matematyka,Kolokwium,10",
+                "A0001,Fizyka,Kolokwium,10",
+                "A0001,Matematyka,Egzamin,10",
+                "A0001,Matematyka,Kolokwium,21",
+                "A0001,Matematyka,Kolokwium,dużo"));
+        Path errorFile = tempDir.resolve("grades.errors.csv");
+
+        // Act
+        ImportResultDto result = importService.importGrades(source, errorFile);
+
+        // Assert
+        assertEquals(8, result.getReadRows());
+        assertEquals(3, result.getImportedRows());
+        assertEquals(5, result.getFailedRows());
+        var persisted = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString()).readAll();
+        assertEquals(2, persisted.size());
+        assertEquals(15, persisted.stream().filter(g -> g.getId().equals(existing.getId()))
+                .findFirst().orElseThrow().getGrade());
+        assertEquals(18, persisted.stream().filter(g -> !g.getId().equals(existing.getId()))
+                .findFirst().orElseThrow().getGrade());
+
+        List<String> errors = Files.readAllLines(errorFile).stream()
+                .map(line -> line.split(",")[1]).collect(Collectors.toList());
+        assertEquals(List.of("error", "student.notExists", "subject.notExists", "gradeCriterion.notExists",
+                "grade.wrongGrade", "grade.wrongFormat"), errors);
+    }
+
+    @Test
+    @DisplayName("Given file without required column, when imported, then throws and nothing is saved")
+    void givenFileWithoutRequiredColumn_whenImported_thenThrowsAndNothingSaved() throws Exception {
+        // Arrange
+        Path source = Files.writeString(tempDir.resolve("students.csv"), "firstName,lastName\nAnna,Nowak\n");
+
+        // Act
+        ValidationException ex = assertThrows(ValidationException.class,
+                () -> importService.importStudents(source, tempDir.resolve("students.errors.csv")));
+
+        // Assert
+        assertEquals("import.header.invalid", ex.getMessageKey());
+        assertEquals(1, studentDao.getAll().size());
+    }
+}
@@ -0,0 +1,173 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link InterProcessLock}, verifying that handlers in several JVMs writing to the same
+ * file do not overwrite each other's records and that a lock held elsewhere makes operations fail
+ * after the lock timeout.
+ */
+@DisplayName("Inter-Process Lock Test Suite")
+class InterProcessLockTest {
+    private static final int PROCESSES = 4;
+    private static final int GRADES_PER_PROCESS = 50;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Given several JVMs writing to one slot file, when they finish, then every surviving record is stored")
+    void givenSeveralJvmsWritingToOneSlotFile_whenFinished_thenEverySurvivingRecordStored() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("grade.dat");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < PROCESSES; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Writer.class.getName(), file.toString(), String.valueOf(GRADES_PER_PROCESS))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+        Set<UUID> expected = new HashSet<>();
+        for (Process process : processes) {
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                out.lines().map(UUID::fromString).forEach(expected::add);
+            }
+            assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, process.exitValue());
+        }
+
+        // Assert
+        var handler = new GradeDataStreamHandler(file.toString());
+        Set<UUID> stored = handler.readAll().stream().map(Grade::getId).collect(Collectors.toSet());
+        assertEquals(PROCESSES * (GRADES_PER_PROCESS - GRADES_PER_PROCESS / 5), expected.size());
+        assertEquals(expected, stored);
+        for (UUID id : expected) {
+            assertTrue(handler.readById(id).isPresent());
+        }
+    }
+
+    @Test
+    @DisplayName("Given slot reused by another handler, when writing, then the other handler's record is kept")
+    void givenSlotReusedByAnotherHandler_whenWriting_thenOtherRecordKept() throws Exception {
+        // Arrange
+        String path = tempDir.resolve("grade.dat").toString();
+        var first = new GradeDataStreamHandler(path);
+        var second = new GradeDataStreamHandler(path);
+        first.setStorageMode(StorageMode.FIXED_SLOTS);
+        second.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade deleted = grade();
+        first.write(deleted);
+        first.write(grade());
+        first.deleteById(deleted.getId());
+
+        // Act
+        Grade other = grade();
+        second.write(other);
+        Grade next = grade();
+        first.write(next);
+
+        // Assert
+        Set<UUID> stored = new GradeDataStreamHandler(path).readAll().stream()
+                .map(Grade::getId).collect(Collectors.toSet());
+        assertEquals(3, stored.size());
+        assertTrue(stored.containsAll(List.of(other.getId(), next.getId())));
+    }
+
+    @Test
+    @DisplayName("Given slot rewritten in place elsewhere within the timestamp granularity, when read through a DAO, then the change is seen")
+    void givenSlotRewrittenInPlaceWithinTimestampGranularity_whenReadThroughDao_thenChangeSeen() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("grade.dat");
+        var handler = new GradeDataStreamHandler(file.toString());
+        handler.setStorageMode(StorageMode.FIXED_SLOTS);
+        Grade grade = grade();
+        handler.write(grade);
+        var dao = new Dao<>(handler);
+        assertEquals(5, dao.getAll().get(0).getGrade());
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        // Act
+        var other = new GradeDataStreamHandler(file.toString());
+        other.setStorageMode(StorageMode.FIXED_SLOTS);
+        other.update(new Grade(grade.getId(), grade.getSubjectId(), grade.getGradeCriterionId(), grade.getStudentId(), (byte) 3));
+        Files.setLastModifiedTime(file, modified);
+
+        // Assert
+        assertEquals(3, dao.getAll().get(0).getGrade());
+    }
+
+    @Test
+    @DisplayName("Given file locked elsewhere, when writing, then fails after the timeout with a clear error")
+    void givenFileLockedElsewhere_whenWriting_thenFailsAfterTimeout() throws Exception {
+        // Arrange
+        var handler = new GradeDataStreamHandler(tempDir.resolve("grade.dat").toString());
+        handler.setLockTimeout(100);
+        var dao = new Dao<>(handler);
+
+        try (FileChannel channel = FileChannel.open(tempDir.resolve("grade.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            // Act
+            long start = System.nanoTime();
+            assertThrows(LockTimeoutException.class, () -> handler.write(grade()));
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            ValidationException ex = assertThrows(ValidationException.class, () -> dao.save(grade()));
+
+            // Assert
+            assertTrue(waited >= 100 && waited < 5_000, "waited " + waited + " ms");
+            assertEquals("data.locked", ex.getMessageKey());
+        }
+        handler.write(grade());
+        assertEquals(1, handler.readAll().size());
+    }
+
+    private static Grade grade() {
+        return new Grade(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), (byte) 5);
+    }
+
+    /**
+     * Entry point of the JVMs started by the multi-process test. Writes grades to the slot file given
+     * as the first argument, deletes every fifth of them so that slots are freed and reused by the other
+     * processes, and prints the ids of the grades left.
+     */
+    static class Writer {
+        public static void main(String[] args) throws IOException {
+            var handler = new GradeDataStreamHandler(args[0]);
+            handler.setStorageMode(StorageMode.FIXED_SLOTS);
+            List<UUID> written = new ArrayList<>();
+            for (int i = 0; i < Integer.parseInt(args[1]); i++) {
+                Grade grade = grade();
+                handler.write(grade);
+                if (i % 5 == 4) {
+                    handler.deleteById(grade.getId());
+                } else {
+                    written.add(grade.getId());
+                }
+            }
+            written.forEach(System.out::println);
+        }
+    }
+}
@@ -17,6 +17,9 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -138,4 +141,17 @@ class StudentGroupServiceTest {
         verify(studentGroupDao).delete(id);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Given studentGroup with students, when delete called, then throw ValidationException")
+    void givenStudentGroupWithStudents_whenDeleteCalled_thenThrowValidationException() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(studentDao.countByIndex(any(), eq(id))).thenReturn(5);
+
+        // Act & Assert
+        ValidationException ex = assertThrows(ValidationException.class, () -> studentGroupService.delete(id));
+        assertEquals("studentGroup.delete.notEmpty", ex.getMessageKey());
+        verify(studentGroupDao, never()).delete(any());
+    }
+}
@@ -0,0 +1,196 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link StudentSearchIndex}, verifying that index lookups find the same students as a scan
+ * and that the index follows the changes made through the DAO. The DAO is real, backed by a handler writing
+ * to a temporary directory.
+ */
+@DisplayName("Student Search Index Test Suite")
+class StudentSearchIndexTest {
+    @TempDir
+    Path tempDir;
+
+    private StudentDataStreamHandler handler;
+    private Dao<Student> studentDao;
+    private StudentSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        handler = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString());
+        handler.writeAll(List.of(
+                new Student("Jan", "Kowalski", "A0001"),
+                new Student("Maria", "Nowak", "A00002"),
+                new Student("Anna", "Janowska", "B1234")));
+        studentDao = new Dao<>(handler);
+        index = new StudentSearchIndex(studentDao);
+    }
+
+    @Test
+    @DisplayName("Given students, when searching, then names and albums are matched as substrings ignoring case")
+    void givenStudents_whenSearching_thenNamesAndAlbumsMatchedIgnoringCase() {
+        // Act & Assert
+        assertEquals(List.of("A0001", "B1234"), albums(index.search("JAN")));
+        assertEquals(List.of("A0001"), albums(index.search("n kow")));
+        assertEquals(List.of("A0001", "A00002"), albums(index.search("a000")));
+        assertEquals(List.of("A0001", "A00002"), albums(index.search("wa")));
+        assertEquals(3, index.search("").size());
+        assertEquals(List.of(), index.search("xyz"));
+        assertEquals(List.of(), index.search("jan nowak"));
+    }
+
+    @Test
+    @DisplayName("Given Polish names, when searching without diacritics, then matches are found and ranked")
+    void givenPolishNames_whenSearchingWithoutDiacritics_thenMatchesFoundAndRanked() throws Exception {
+        // Arrange
+        studentDao.save(new Student("\u0141ukasz", "\u017Bak", "C0003"));
+        studentDao.save(new Student("\u017Baneta", "Kie\u0142basa", "C0004"));
+        studentDao.save(new Student("Pawe\u0142", "Mi\u0142ukasz", "C0005"));
+        studentDao.save(new Student("Zenon", "Paluk", "C0006"));
+
+        // Act & Assert
+        assertEquals(List.of("C0003"), albums(index.search("lukasz zak")));
+        assertEquals(List.of("C0003", "C0005"), albums(index.search("\u0141UKASZ")));
+        assertEquals(List.of("C0004", "C0003"), albums(index.search("\u017Ca")));
+        assertEquals(List.of("C0004"), albums(index.search("kielbasa")));
+        assertEquals(List.of("C0003", "C0005", "C0006"), albums(index.search("luk")));
+        assertEquals(List.of("C0003", "C0005", "C0006"), albums(index.search("uk")));
+    }
+
+    @Test
+    @DisplayName("Given built index, when students change through the DAO, then searches reflect the changes")
+    void givenBuiltIndex_whenStudentsChange_thenSearchesReflectChanges() throws Exception {
+        // Arrange
+        index.search("jan");
+        Student jan = studentDao.getAll().get(0);
+        Student piotr = new Student("Piotr", "Janicki", "C0003");
+
+        // Act
+        studentDao.save(piotr);
+        jan.setLastName("Zielinski");
+        studentDao.update(jan);
+        studentDao.delete(studentDao.getAll().get(2).getId());
+
+        // Assert
+        assertEquals(List.of("A0001", "C0003"), albums(index.search("jan")));
+        assertEquals(List.of(), index.search("kowalski"));
+        assertEquals(List.of("A0001"), albums(index.search("zielin")));
+        assertEquals(List.of(), index.search("janowska"));
+    }
+
+    @Test
+    @DisplayName("Given file changed by another handler, when searching, then the index is rebuilt")
+    void givenFileChangedByAnotherHandler_whenSearching_thenIndexRebuilt() throws Exception {
+        // Arrange
+        index.search("jan");
+
+        // Act
+        new StudentDataStreamHandler(tempDir.resolve("student.dat").toString())
+                .write(new Student("Ewa", "Janik", "D0004"));
+
+        // Assert
+        assertEquals(List.of("A0001", "B1234", "D0004"), albums(index.search("jan")));
+    }
+
+    @Test
+    @DisplayName("Given students, when looking up album numbers, then exact matches and prefixes are found")
+    void givenStudents_whenLookingUpAlbumNumbers_thenExactMatchesAndPrefixesFound() throws Exception {
+        // Arrange
+        studentDao.save(new Student("Piotr", "Zielinski", "A0003"));
+
+        // Act & Assert
+        assertEquals("Jan", index.findByAlbum("A0001").orElseThrow().getFirstName());
+        assertEquals("Jan", index.findByAlbum("a0001").orElseThrow().getFirstName());
+        assertTrue(index.findByAlbum("A000").isEmpty());
+        assertEquals(List.of("A00002", "A0001", "A0003"), albums(index.albumPrefix("a000", 10)));
+        assertEquals(List.of("A00002", "A0001"), albums(index.albumPrefix("A000", 2)));
+        assertEquals(List.of("A00002", "A0001", "A0003", "B1234"), albums(index.albumPrefix("", 10)));
+        assertEquals(List.of(), index.albumPrefix("C", 10));
+    }
+
+    @Test
+    @DisplayName("Given built index, when album numbers change through the DAO, then lookups reflect the changes")
+    void givenBuiltIndex_whenAlbumNumbersChange_thenLookupsReflectChanges() throws Exception {
+        // Arrange
+        index.findByAlbum("A0001");
+        Student jan = studentDao.getAll().get(0);
+
+        // Act
+        jan.setAlbum("C0001");
+        studentDao.update(jan);
+        studentDao.delete(studentDao.getAll().get(1).getId());
+
+        // Assert
+        assertTrue(index.findByAlbum("A0001").isEmpty());
+        assertEquals(jan.getId(), index.findByAlbum("C0001").orElseThrow().getId());
+        assertEquals(List.of(), index.albumPrefix("A", 10));
+    }
+
+    @Test
+    @DisplayName("Given random students and changes, when searching, then results equal a full scan")
+    void givenRandomStudentsAndChanges_whenSearching_thenResultsEqualFullScan() throws Exception {
+        // Arrange
+        Random random = new Random(42);
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            students.add(new Student(word(random), word(random), String.format("A%05d", random.nextInt(100_000))));
+        }
+        handler.writeAll(students);
+        studentDao.invalidate();
+        index.search("");
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            Student student = students.get(random.nextInt(students.size()));
+            student.setFirstName(word(random));
+            studentDao.update(student);
+        }
+
+        // Assert
+        for (int i = 0; i < 200; i++) {
+            String query = i % 2 == 0 ? word(random).substring(0, 1 + random.nextInt(4)) : String.valueOf(random.nextInt(1000));
+            String key = query.toLowerCase();
+            List<String> expected = studentDao.getAll().stream()
+                    .filter(s -> (s.getFirstName() + " " + s.getLastName()).toLowerCase().contains(key)
+                            || s.getAlbum().toLowerCase().contains(key))
+                    .sorted(Comparator.comparingInt(s -> rank(s, key)))
+                    .map(Student::getAlbum).collect(Collectors.toList());
+            assertEquals(expected, albums(index.search(query)), query);
+        }
+    }
+
+    private static int rank(Student student, String key) {
+        String name = (student.getFirstName() + " " + student.getLastName()).toLowerCase();
+        if (name.startsWith(key) || student.getAlbum().toLowerCase().startsWith(key)) {
+            return 0;
+        }
+        return name.contains(" " + key) ? 1 : 2;
+    }
+
+    private static String word(Random random) {
+        String letters = "abcdeklmnoprstwyz";
+        StringBuilder word = new StringBuilder().append((char) ('A' + random.nextInt(26)));
+        for (int i = 0; i < 4 + random.nextInt(5); i++) {
+            word.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return word.toString();
+    }
+
+    private static List<String> albums(List<Student> students) {
+        return students.stream().map(Student::getAlbum).collect(Collectors.toList());
+    }
+}
@@ -11,11 +11,19 @@ import pl.edu.wit.studentManagement.service.dto.student.CreateStudentDto;
 import pl.edu.wit.studentManagement.service.dto.student.StudentDto;
 import pl.edu.wit.studentManagement.service.dto.student.UpdateStudentDto;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -103,6 +111,20 @@ class StudentServiceTest {
         assertEquals("A0001", result.getAlbum());
     }
 
+    @Test
+    @DisplayName("Given album number rejected by the unique index, when createStudent is called, then throw ValidationException")
+    void givenTakenAlbumNumber_whenCreateStudentCalled_thenThrowValidationException() throws ValidationException {
+        // Arrange
+        CreateStudentDto createStudentDto = new CreateStudentDto("Piotr", "Nowak", "a0001");
+
+        doThrow(new ValidationException("student.album.exists")).when(studentDao).save(any());
+
+        // Act & Assert
+        ValidationException ex = assertThrows(ValidationException.class, () -> studentService.createStudent(createStudentDto));
+        assertEquals("student.album.exists", ex.getMessageKey());
+        verify(studentDao).createUniqueIndex(eq("albumKey"), any(), eq("student.album.exists"));
+    }
+
     @Test
     @DisplayName("Given valid student id and updateStudentDto, when updateStudent is called, then update and return student DTO")
     void givenValidStudentIdAndUpdateStudentDto_whenUpdateStudentIsCalled_thenUpdateAndReturnStudentDto() throws ValidationException {
@@ -132,7 +154,6 @@ class StudentServiceTest {
         Student student1 = new Student("Jan", "Kowalski", "A0001");
 
         when(studentDao.delete(student1.getId())).thenReturn(true);
-        when(gradeDao.getAll()).thenReturn(List.of());
 
         // Act & Assert
         boolean result = assertDoesNotThrow(() -> studentService.deleteStudent(student1.getId()));
@@ -140,6 +161,20 @@ class StudentServiceTest {
         verify(studentDao).delete(student1.getId());
     }
 
+    @Test
+    @DisplayName("Given student with grades, when deleteStudent is called, then throw ValidationException")
+    void givenStudentWithGrades_whenDeleteStudentCalled_thenThrowValidationException() {
+        // Arrange
+        Student student1 = new Student("Jan", "Kowalski", "A0001");
+
+        when(gradeDao.countByIndex(any(), eq(student1.getId()))).thenReturn(2);
+
+        // Act & Assert
+        ValidationException ex = assertThrows(ValidationException.class, () -> studentService.deleteStudent(student1.getId()));
+        assertEquals("student.hasGrades", ex.getMessageKey());
+        verify(studentDao, never()).delete(any());
+    }
+
     @Test
     @DisplayName("Given valid query, when search is called, then return list of found student DTOs")
     void givenValidQuery_whenSearchCalled_thenReturnListOfFoundStudentDtos() {
@@ -149,6 +184,7 @@ class StudentServiceTest {
         List<Student> students = List.of(student1, student2);
 
         when(studentDao.getAll()).thenReturn(students);
+        when(studentDao.writeLock()).thenReturn(new ReentrantLock());
 
         // Act
         List<StudentDto> oneStudentResult = studentService.search("jan");
@@ -167,6 +203,33 @@ class StudentServiceTest {
         assertEquals("Maria", twoStudentsResult.get(1).getFirstName());
     }
 
+    @Test
+    @DisplayName("Given many matching students, when pages of a search result are read, then return those pages")
+    void givenManyMatchingStudents_whenPagesOfSearchResultRead_thenReturnThosePages() {
+        // Arrange
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            students.add(new Student("Jan", "Kowalski" + i, "A000" + i + "0"));
+        }
+
+        when(studentDao.getAll()).thenReturn(students);
+        when(studentDao.writeLock()).thenReturn(new ReentrantLock());
+
+        // Act
+        StudentSearchResult result = studentService.searchResult("kowal");
+        List<StudentDto> firstPage = result.page(0, 2);
+        List<StudentDto> lastPage = result.page(4, 2);
+        List<StudentDto> all = studentService.searchResult("").page(0, Integer.MAX_VALUE);
+
+        // Assert
+        assertEquals(5, result.size());
+        assertEquals(List.of("Kowalski0", "Kowalski1"),
+                firstPage.stream().map(StudentDto::getLastName).collect(Collectors.toList()));
+        assertEquals(List.of("Kowalski4"), lastPage.stream().map(StudentDto::getLastName).collect(Collectors.toList()));
+        assertEquals(5, all.size());
+        assertEquals(List.of(), result.page(10, 2));
+    }
+
     @Test
     @DisplayName("Given valid student and group id, when assignStudentToGroup is called, then student is updated")
     void givenValidStudentAndGroupId_whenAssignStudentToGroupCalled_thenStudentIsUpdated() throws ValidationException {
@@ -183,8 +246,48 @@ class StudentServiceTest {
         studentService.assignStudentToGroup(studentId, studentGroupId);
 
         // Assert
-        assertEquals(studentGroupId, student1.getStudentGroupId());
-        verify(studentDao).update(student1);
+        verify(studentDao).update(argThat(student -> student.getId().equals(studentId)
+                && studentGroupId.equals(student.getStudentGroupId())));
+        assertNull(student1.getStudentGroupId());
+    }
+
+    @Test
+    @DisplayName("Given several students and group id, when assignStudentsToGroup is called, then copies are written in one batch")
+    void givenSeveralStudentsAndGroupId_whenAssignStudentsToGroupCalled_thenStudentsWrittenInOneBatch() throws Exception {
+        // Arrange
+        Student student1 = new Student("Jan", "Kowalski", "A0001");
+        Student student2 = new Student("Maria", "Nowak", "A00002");
+        StudentGroup studentGroup = new StudentGroup("INF2023", "Informatyka", "Grupa dzienna");
+        UUID studentGroupId = studentGroup.getId();
+
+        when(studentDao.get(student1.getId())).thenReturn(Optional.of(student1));
+        when(studentDao.get(student2.getId())).thenReturn(Optional.of(student2));
+        when(studentGroupDao.get(studentGroupId)).thenReturn(Optional.of(studentGroup));
+
+        // Act
+        studentService.assignStudentsToGroup(List.of(student1.getId(), student2.getId()), studentGroupId);
+
+        // Assert
+        verify(studentDao).updateAll(argThat(students -> students.size() == 2
+                && students.stream().map(Student::getId).collect(Collectors.toList())
+                        .equals(List.of(student1.getId(), student2.getId()))
+                && students.stream().allMatch(s -> studentGroupId.equals(s.getStudentGroupId()))));
+        verify(studentDao, never()).update(any());
+        assertNull(student1.getStudentGroupId());
+        assertNull(student2.getStudentGroupId());
+    }
+
+    @Test
+    @DisplayName("Given missing group, when assignStudentsToGroup is called, then throw ValidationException")
+    void givenMissingGroup_whenAssignStudentsToGroupCalled_thenThrowValidationException() {
+        // Arrange
+        UUID studentGroupId = UUID.randomUUID();
+        when(studentGroupDao.get(studentGroupId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        var exception = assertThrows(ValidationException.class,
+                () -> studentService.assignStudentsToGroup(List.of(UUID.randomUUID()), studentGroupId));
+        assertEquals("studentGroup.notExists", exception.getMessageKey());
     }
 
     @Test
@@ -202,7 +305,8 @@ class StudentServiceTest {
         studentService.removeFromGroup(studentId);
 
         // Assert
-        assertNull(student1.getStudentGroupId());
-        verify(studentDao).update(student1);
+        verify(studentDao).update(argThat(student -> student.getId().equals(studentId)
+                && student.getStudentGroupId() == null));
+        assertEquals(studentGroupId, student1.getStudentGroupId());
     }
 }
\ No newline at end of file
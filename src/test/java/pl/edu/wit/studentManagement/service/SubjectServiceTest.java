@@ -22,6 +22,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -178,7 +179,6 @@ class SubjectServiceTest {
     void givenExistingSubjectWithoutCriteria_whenDeleteSubjectCalled_thenReturnTrue() {
         // Arrange
         UUID subjectId = UUID.randomUUID();
-        when(gradeCriterionDao.getAll()).thenReturn(List.of());
         when(subjectDao.delete(subjectId)).thenReturn(true);
 
         // Act
@@ -195,8 +195,7 @@ class SubjectServiceTest {
         // Arrange
         Subject subject1 = new Subject("Java");
         byte maxPoints = 20;
-        GradeCriterion gradeCriterion = new GradeCriterion("Kolokwium", maxPoints, subject1.getId());
-        when(gradeCriterionDao.getAll()).thenReturn(List.of(gradeCriterion));
+        when(gradeCriterionDao.countByIndex(any(), eq(subject1.getId()))).thenReturn(1);
 
         // Act & Assert
         ValidationException ex = assertThrows(ValidationException.class, () -> subjectService.deleteSubject(subject1.getId()));
@@ -243,7 +242,6 @@ class SubjectServiceTest {
         Subject subject = new Subject("Java");
         GradeCriterion gradeCriterion = new GradeCriterion("Kolos 1", (byte) 20, subject.getId());
 
-        when(gradeDao.getAll()).thenReturn(List.of());
         when(gradeCriterionDao.delete(gradeCriterion.getId())).thenReturn(true);
 
         // Act & Assert
@@ -267,6 +265,21 @@ class SubjectServiceTest {
         GradeCriterionDto result = assertDoesNotThrow(() -> subjectService.updateGradeCriterion(gradeCriterion.getId(), dto));
         assertEquals("Kolokwium 2", result.getName());
         assertEquals((byte) 20, result.getMaxPoints());
-        verify(gradeCriterionDao).update(gradeCriterion);
+        assertEquals("Test 1", gradeCriterion.getName());
+        verify(gradeCriterionDao).update(argThat(criterion -> criterion.getId().equals(gradeCriterion.getId())
+                && criterion.getName().equals("Kolokwium 2")));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Given grade criterion with grades, when deleteGradeCriterion called, then throw ValidationException")
+    void givenGradeCriterionWithGrades_whenDeleteGradeCriterionCalled_thenThrowValidationException() {
+        // Arrange
+        UUID gradeCriterionId = UUID.randomUUID();
+        when(gradeDao.countByIndex(any(), eq(gradeCriterionId))).thenReturn(3);
+
+        // Act & Assert
+        ValidationException ex = assertThrows(ValidationException.class, () -> subjectService.deleteGradeCriterion(gradeCriterionId));
+        assertEquals("gradeCriterion.delete.hasGrades", ex.getMessageKey());
+        verify(gradeCriterionDao, never()).delete(any());
+    }
+}
@@ -0,0 +1,123 @@
+package pl.edu.wit.studentManagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.stubbing.Answer;
+import pl.edu.wit.studentManagement.exceptions.ValidationException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test suite for {@link Transaction}, verifying that changes to several DAOs are written
+ * in one batch per file and applied either fully or not at all.
+ * DAOs are real, backed by handlers writing to a temporary directory.
+ */
+@DisplayName("Transaction Test Suite")
+class TransactionTest {
+    @TempDir
+    Path tempDir;
+
+    private StudentDataStreamHandler studentHandler;
+    private StudentGroupDataStreamHandler groupHandler;
+    private Dao<Student> studentDao;
+    private Dao<StudentGroup> groupDao;
+    private List<Student> students;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        studentHandler = spy(new StudentDataStreamHandler(tempDir.resolve("student.dat").toString()));
+        groupHandler = spy(new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString()));
+        studentHandler.setStorageMode(StorageMode.APPEND_LOG);
+        groupHandler.setStorageMode(StorageMode.APPEND_LOG);
+        studentDao = new Dao<>(studentHandler);
+        groupDao = new Dao<>(groupHandler);
+
+        students = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            students.add(new Student("Student", "Number" + i, String.format("A%04d", i)));
+        }
+        studentHandler.writeAll(students);
+    }
+
+    @Test
+    @DisplayName("Given changes to two DAOs, when committed, then each file is written once and changes are persisted")
+    void givenChangesToTwoDaos_whenCommitted_thenEachFileWrittenOnceAndPersisted() throws Exception {
+        // Arrange
+        StudentGroup group = new StudentGroup("INF2023", "Informatyka", "Grupa dzienna");
+        Transaction transaction = new Transaction();
+        transaction.save(groupDao, group);
+        for (Student student : students) {
+            student.setStudentGroupId(group.getId());
+            transaction.update(studentDao, student);
+        }
+
+        // Act
+        transaction.commit();
+
+        // Assert
+        verify(studentHandler, times(1)).writeBatch(any(), any());
+        verify(groupHandler, times(1)).writeBatch(any(), any());
+        List<Student> persisted = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString()).readAll();
+        assertEquals(60, persisted.size());
+        assertTrue(persisted.stream().allMatch(s -> group.getId().equals(s.getStudentGroupId())));
+        assertEquals(1, new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString()).readAll().size());
+    }
+
+    @Test
+    @DisplayName("Given change to missing entity, when committed, then throws and nothing is written")
+    void givenChangeToMissingEntity_whenCommitted_thenThrowsAndNothingWritten() throws Exception {
+        // Arrange
+        StudentGroup group = new StudentGroup("INF2023", "Informatyka", "Grupa dzienna");
+        Transaction transaction = new Transaction();
+        transaction.save(groupDao, group);
+        transaction.delete(studentDao, UUID.randomUUID());
+
+        // Act & Assert
+        assertThrows(ValidationException.class, transaction::commit);
+        verify(studentHandler, never()).writeBatch(any(), any());
+        verify(groupHandler, never()).writeBatch(any(), any());
+        assertTrue(groupDao.getAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Given write of second file fails, when committed, then first file is rolled back")
+    void givenWriteOfSecondFileFails_whenCommitted_thenFirstFileRolledBack() throws Exception {
+        // Arrange
+        StudentGroup group = new StudentGroup("INF2023", "Informatyka", "Grupa dzienna");
+        Transaction transaction = new Transaction();
+        transaction.save(groupDao, group);
+        Student moved = students.get(0);
+        moved.setStudentGroupId(group.getId());
+        transaction.update(studentDao, moved);
+        transaction.delete(studentDao, students.get(1).getId());
+        // The batch written second fails, whichever DAO is locked first; the rollback succeeds
+        AtomicInteger batches = new AtomicInteger();
+        Answer<Object> failSecondBatch = invocation -> {
+            if (batches.incrementAndGet() == 2) {
+                throw new IOException("disk full");
+            }
+            return invocation.callRealMethod();
+        };
+        doAnswer(failSecondBatch).when(groupHandler).writeBatch(any(), any());
+        doAnswer(failSecondBatch).when(studentHandler).writeBatch(any(), any());
+
+        // Act & Assert
+        assertThrows(ValidationException.class, transaction::commit);
+        List<Student> persistedStudents = new StudentDataStreamHandler(tempDir.resolve("student.dat").toString()).readAll();
+        assertEquals(60, persistedStudents.size());
+        assertTrue(persistedStudents.stream().allMatch(s -> s.getStudentGroupId() == null));
+        assertTrue(new StudentGroupDataStreamHandler(tempDir.resolve("studentGroup.dat").toString()).readAll().isEmpty());
+        assertNull(studentDao.get(moved.getId()).orElseThrow().getStudentGroupId());
+    }
+}